@@ -0,0 +1,43 @@
+package com.example.tomatomall.configure;
+
+import com.example.tomatomall.util.cache.CacheInvalidationBus;
+import com.example.tomatomall.util.cache.InMemoryRemoteCacheTier;
+import com.example.tomatomall.util.cache.LoopbackInvalidationBus;
+import com.example.tomatomall.util.cache.NoRemoteCacheTier;
+import com.example.tomatomall.util.cache.RemoteCacheTier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 两级缓存的远程层与失效消息通道
+ * cache.remote.type：none（默认）不使用远程层；memory 使用进程内实现，容量为每个缓存 cache.remote.memory.max-entries 条。
+ * cache.invalidation.transport：loopback（默认）只在进程内传递失效消息。
+ * 多实例部署时把这两个配置设为其他值（如 redis），再声明对应的 RemoteCacheTier、CacheInvalidationBus Bean。
+ *
+ * @author TomatoMall Team
+ * @version 1.0
+ * @since 2024
+ */
+@Configuration
+public class CacheConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "cache.remote.type", havingValue = "none", matchIfMissing = true)
+    public RemoteCacheTier noRemoteCacheTier() {
+        return new NoRemoteCacheTier();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "cache.remote.type", havingValue = "memory")
+    public RemoteCacheTier inMemoryRemoteCacheTier(@Value("${cache.remote.memory.max-entries:100000}") int maxEntries) {
+        return new InMemoryRemoteCacheTier(maxEntries);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "cache.invalidation.transport", havingValue = "loopback", matchIfMissing = true)
+    public CacheInvalidationBus loopbackInvalidationBus() {
+        return new LoopbackInvalidationBus();
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.tomatomall.configure;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.boot.web.servlet.server.ConfigurableServletWebServerFactory;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * 响应压缩配置
+ * 由 Tomcat 按 Accept-Encoding 协商 gzip，超过阈值的 JSON/文本响应边写边压缩，
+ * 并自动加上 Vary: Accept-Encoding。图片等已压缩的格式不在 mime 列表中，仍走 sendfile。
+ *
+ * @author TomatoMall Team
+ * @version 1.0
+ * @since 2024
+ */
+@Configuration
+public class CompressionConfig implements WebServerFactoryCustomizer<ConfigurableServletWebServerFactory> {
+
+    @Value("${http.compression.enabled:true}")
+    private boolean enabled;
+
+    @Value("${http.compression.min-response-size:1024}")
+    private int minResponseSize;
+
+    @Value("${http.compression.mime-types:application/json,application/x-ndjson,text/csv,text/plain,text/html,text/css,application/javascript}")
+    private String[] mimeTypes;
+
+    @Override
+    public void customize(ConfigurableServletWebServerFactory factory) {
+        if (!enabled) {
+            return;
+        }
+        Compression compression = new Compression();
+        compression.setEnabled(true);
+        compression.setMinResponseSize(DataSize.ofBytes(minResponseSize));
+        compression.setMimeTypes(mimeTypes);
+        factory.setCompression(compression);
+    }
+}
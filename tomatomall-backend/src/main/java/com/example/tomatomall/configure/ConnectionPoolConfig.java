@@ -0,0 +1,58 @@
+package com.example.tomatomall.configure;
+
+import com.example.tomatomall.util.PoolWaitMetrics;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Hikari 连接池的公共配置，对容器中每个 HikariDataSource（单库时的自动配置池，读写分离时的主库、从库池）生效：
+ * 1. 注册 PoolWaitMetrics，统计取连接等待时间，在 /api/metrics/pools 输出；
+ * 2. 连接 MySQL 时附加 datasource.mysql-properties.* 下的 Connector/J 参数（预编译语句缓存、rewriteBatchedStatements 等）。
+ * 这些参数只对 jdbc:mysql: 连接附加，H2 等其他驱动会拒绝不认识的连接参数。
+ * 参数的推荐值见 application-flashsale.properties。
+ *
+ * @author TomatoMall Team
+ * @version 1.0
+ * @since 2024
+ */
+@Configuration
+public class ConnectionPoolConfig {
+
+    @Bean
+    public static PoolWaitMetrics poolWaitMetrics() {
+        return new PoolWaitMetrics();
+    }
+
+    // BeanPostProcessor 必须是静态方法；在初始化前处理，此时连接池尚未启动，也还没有被 SqlCountingDataSource 包装
+    @Bean
+    public static BeanPostProcessor hikariPoolPostProcessor(PoolWaitMetrics poolWaitMetrics, Environment environment) {
+        Map<String, String> mysqlProperties = Binder.get(environment)
+                .bind("datasource.mysql-properties", Bindable.mapOf(String.class, String.class))
+                .orElse(Collections.emptyMap());
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (!(bean instanceof HikariDataSource)) {
+                    return bean;
+                }
+                HikariDataSource pool = (HikariDataSource) bean;
+                if (pool.getMetricsTrackerFactory() == null) {
+                    pool.setMetricsTrackerFactory(poolWaitMetrics);
+                }
+                String url = pool.getJdbcUrl();
+                if (url != null && url.startsWith("jdbc:mysql:")) {
+                    mysqlProperties.forEach(pool::addDataSourceProperty);
+                }
+                return bean;
+            }
+        };
+    }
+}
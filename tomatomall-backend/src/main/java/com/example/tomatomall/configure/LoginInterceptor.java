@@ -32,8 +32,7 @@ public class LoginInterceptor implements HandlerInterceptor {
      * @return true表示继续执行，false表示中断请求
      */
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
-        // 打印当前访问的请求方法和URI路径，用于调试
-        System.out.println("访问：" + request.getMethod() + " " + request.getRequestURI());
+        // 请求方法、路径和耗时由 RequestMetricsFilter 异步写入 access 日志
 
         // 允许注册请求POST /api/accounts
         if ("POST".equalsIgnoreCase(request.getMethod()) && "/api/accounts".equals(request.getRequestURI())) {
@@ -0,0 +1,26 @@
+package com.example.tomatomall.configure;
+
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 数据库迁移配置
+ * 初始结构由 data.sql 手工导入，视为版本 1；已有数据的库第一次启动时由 Flyway 记为基线，
+ * 之后只执行 db/migration 下版本号大于 1 的脚本。
+ *
+ * @author TomatoMall Team
+ * @version 1.0
+ * @since 2024
+ */
+@Configuration
+public class MigrationConfig {
+
+    @Bean
+    public FlywayConfigurationCustomizer baselineCustomizer() {
+        return configuration -> configuration
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .baselineDescription("data.sql");
+    }
+}
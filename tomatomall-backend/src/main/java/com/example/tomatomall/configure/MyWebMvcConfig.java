@@ -34,6 +34,7 @@ public class MyWebMvcConfig implements WebMvcConfigurer {
                 .excludePathPatterns("/api/accounts/login")
                 .excludePathPatterns("/api/orders/alipay/notify")
                 .excludePathPatterns("/api/accounts/image")
+                .excludePathPatterns("/img/**")
                 .order(1);
     }
 
@@ -0,0 +1,134 @@
+package com.example.tomatomall.configure;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 启动时检查热点查询的执行计划
+ * 对 repository 包中各查询方法生成的 SQL 执行 EXPLAIN，某张表只能全表扫描（type=ALL 且没有可用索引）时
+ * 启动失败并列出所有问题查询，防止迁移漏建或误删索引后才在线上发现。
+ * 有可用索引但优化器因表太小而选择全表扫描的，只记录 WARN。
+ * 只在 MySQL 上执行；schema.explain-check.enabled=false 关闭，schema.explain-check.fail-on-full-scan=false 时只记录不失败。
+ */
+@Component
+public class QueryPlanCheck implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryPlanCheck.class);
+
+    /**
+     * 查询方法 -> 与 Hibernate 生成的语句等价的 SQL，参数一律用 "1" 代入
+     */
+    private static final Map<String, String> HOT_QUERIES = new LinkedHashMap<>();
+
+    static {
+        HOT_QUERIES.put("AccountRepository.findByUsername", "SELECT * FROM accounts WHERE username = ?");
+        HOT_QUERIES.put("AccountRepository.findByRole", "SELECT * FROM accounts WHERE role = ?");
+        HOT_QUERIES.put("AccountRepository.findStaffByShopId", "SELECT * FROM accounts WHERE shop_id = ?");
+        HOT_QUERIES.put("StockpileRepository.findByProductId", "SELECT * FROM stockpiles WHERE product_id = ?");
+        HOT_QUERIES.put("SpecificationRepository.findByProductId", "SELECT * FROM specifications WHERE product_id = ?");
+        HOT_QUERIES.put("SpecificationRepository.findByProductIdIn", "SELECT * FROM specifications WHERE product_id IN (?, ?)");
+        HOT_QUERIES.put("ProductRepository.findByShopId", "SELECT * FROM products WHERE shop_id = ?");
+        HOT_QUERIES.put("CartDocumentRepository.findSnapshot", "SELECT * FROM cart_documents WHERE account_id = ?");
+        HOT_QUERIES.put("OrderRepository.findByAccountId", "SELECT * FROM orders WHERE account_id = ?");
+        HOT_QUERIES.put("OrderItemRepository.findByOrderId", "SELECT * FROM order_items WHERE order_id = ?");
+        HOT_QUERIES.put("MessageRepository.findByToUserOrderByCreatedTimeDesc",
+                "SELECT * FROM messages WHERE to_user = ? ORDER BY created_time DESC");
+        HOT_QUERIES.put("MessageRepository.findByFromUserOrderByCreatedTimeDesc",
+                "SELECT * FROM messages WHERE from_user = ? ORDER BY created_time DESC");
+        HOT_QUERIES.put("MessageRepository.countByToUserAndIsReadFalse",
+                "SELECT COUNT(*) FROM messages WHERE to_user = ? AND is_read = 0");
+        HOT_QUERIES.put("MessageRepository.findByFromUserAndContentAndIsReadFalse",
+                "SELECT * FROM messages WHERE from_user = ? AND content = ? AND is_read = 0");
+        HOT_QUERIES.put("ReviewRepository.findByProductId", "SELECT * FROM reviews WHERE product_id = ?");
+        HOT_QUERIES.put("ReviewRepository.findByShopId", "SELECT * FROM reviews WHERE shop_id = ?");
+        HOT_QUERIES.put("ReviewRepository.findByAccountId", "SELECT * FROM reviews WHERE account_id = ?");
+        HOT_QUERIES.put("AccountCouponsRelationRepository.findByAccountId",
+                "SELECT * FROM account_coupons_relation WHERE account_id = ?");
+        HOT_QUERIES.put("AccountCouponsRelationRepository.findByAccountIdAndCouponId",
+                "SELECT * FROM account_coupons_relation WHERE account_id = ? AND coupon_id = ?");
+        HOT_QUERIES.put("AccountCouponsRelationRepository.deleteByCouponId",
+                "SELECT * FROM account_coupons_relation WHERE coupon_id = ?");
+        HOT_QUERIES.put("ShopRepository.findByOwnerId", "SELECT * FROM shops WHERE owner_id = ?");
+        HOT_QUERIES.put("OutboxEventRepository.findDueIds",
+                "SELECT id FROM event_outbox WHERE status IN (?, ?) AND next_attempt_time <= ? ORDER BY id");
+        HOT_QUERIES.put("OutboxEventRepository.findByClaimTokenOrderById",
+                "SELECT * FROM event_outbox WHERE claim_token = ? ORDER BY id");
+    }
+
+    @Value("${schema.explain-check.enabled:true}")
+    private boolean enabled;
+
+    @Value("${schema.explain-check.fail-on-full-scan:true}")
+    private boolean failOnFullScan;
+
+    @Resource
+    private DataSource dataSource;
+
+    @Resource
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!enabled) {
+            return;
+        }
+        String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        if (!"MySQL".equalsIgnoreCase(product)) {
+            log.info("数据库为 {}，跳过执行计划检查", product);
+            return;
+        }
+
+        List<String> fullScans = new ArrayList<>();
+        for (Map.Entry<String, String> query : HOT_QUERIES.entrySet()) {
+            String sql = query.getValue();
+            Object[] params = new Object[countParams(sql)];
+            // 以字符串代入：整数列会把常量转换后走索引，而字符串列遇到整数常量会放弃索引
+            Arrays.fill(params, "1");
+            for (Map<String, Object> row : jdbcTemplate.queryForList("EXPLAIN " + sql, params)) {
+                if (!"ALL".equals(row.get("type"))) {
+                    continue;
+                }
+                String problem = query.getKey() + " 在表 " + row.get("table") + " 上全表扫描：" + sql;
+                if (row.get("possible_keys") == null) {
+                    fullScans.add(problem);
+                } else {
+                    log.warn("{}（有可用索引 {}，优化器按当前数据量选择了全表扫描）", problem, row.get("possible_keys"));
+                }
+            }
+        }
+        if (fullScans.isEmpty()) {
+            log.info("执行计划检查通过，{} 条热点查询均可走索引", HOT_QUERIES.size());
+            return;
+        }
+        String message = "以下热点查询没有可用索引，请检查 db/migration：\n  " + String.join("\n  ", fullScans);
+        if (failOnFullScan) {
+            throw new IllegalStateException(message);
+        }
+        log.error(message);
+    }
+
+    private static int countParams(String sql) {
+        int count = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) == '?') {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.tomatomall.configure;
+
+import com.example.tomatomall.util.ReadWriteRoutingDataSource;
+import com.example.tomatomall.util.ReadYourWrites;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * 读写分离配置，只在配置了 datasource.replica.url 时生效；否则沿用 Spring Boot 自动配置的单个连接池
+ * 主库沿用 spring.datasource.*（连接池参数 spring.datasource.hikari.*），从库使用 datasource.replica.*，
+ * 两个连接池分别命名为 primary、replica，可在 /api/metrics/pools 分别查看。
+ * 本地验证时启动两个 MySQL 实例（如 3306 与 3307 端口）并都导入 data.sql，
+ * 以 --datasource.replica.url=jdbc:mysql://localhost:3307/tomatomall 启动后端：
+ * 写入只出现在 3306，商品列表等只读接口读的是 3307 上的数据。
+ *
+ * @author TomatoMall Team
+ * @version 1.0
+ * @since 2024
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "datasource.replica", name = "url")
+public class ReadWriteDataSourceConfig {
+
+    @Value("${datasource.replica.url}")
+    private String replicaUrl;
+
+    @Value("${datasource.replica.username:${spring.datasource.username:}}")
+    private String replicaUsername;
+
+    @Value("${datasource.replica.password:${spring.datasource.password:}}")
+    private String replicaPassword;
+
+    @Value("${datasource.replica.maximum-pool-size:10}")
+    private int replicaMaximumPoolSize;
+
+    /**
+     * 写入后多久内仍从主库读，应大于从库的复制延迟
+     */
+    @Value("${datasource.replica.sticky-seconds:5}")
+    private long stickySeconds;
+
+    @Value("${datasource.replica.sticky-max-users:100000}")
+    private int stickyMaxUsers;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(ReadWriteRoutingDataSource.PRIMARY);
+        return dataSource;
+    }
+
+    @Bean
+    public HikariDataSource replicaDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(replicaUrl)
+                .username(replicaUsername)
+                .password(replicaPassword)
+                .build();
+        dataSource.setPoolName(ReadWriteRoutingDataSource.REPLICA);
+        dataSource.setMaximumPoolSize(replicaMaximumPoolSize);
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReadYourWrites readYourWrites() {
+        return new ReadYourWrites(stickySeconds * 1000, stickyMaxUsers);
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                                       @Qualifier("replicaDataSource") DataSource replica,
+                                                       ReadYourWrites readYourWrites) {
+        return new ReadWriteRoutingDataSource(primary, replica, readYourWrites);
+    }
+
+    /**
+     * JPA、Flyway、JdbcTemplate 使用的 DataSource
+     * LazyConnectionDataSourceProxy 把真正取连接推迟到第一条语句，此时事务的只读标记已经绑定，路由才能生效。
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
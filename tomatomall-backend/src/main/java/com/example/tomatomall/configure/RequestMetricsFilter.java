@@ -0,0 +1,116 @@
+package com.example.tomatomall.configure;
+
+import com.example.tomatomall.util.RequestMetrics;
+import com.example.tomatomall.util.SqlCounter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.annotation.Resource;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 请求指标过滤器
+ * 每个请求记录耗时、状态码和该请求线程上执行的 SQL 语句数与耗时，汇总到 RequestMetrics，
+ * 并向 access 日志写一行 JSON（logback-spring.xml 中经 AsyncAppender 异步落盘，不阻塞请求线程）。
+ * 慢请求与 SQL 语句数超过阈值的请求以 WARN 级别记录，便于在线上定位 N+1 回退。
+ * 异步请求（如登录）在 AsyncContext 完成时记录，SQL 只统计请求线程上执行的部分。
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1) // 紧跟在 CorsFilter 之后，覆盖拦截器和控制器的全部耗时
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+    private static final Logger ACCESS_LOG = LoggerFactory.getLogger("access");
+
+    @Resource
+    private RequestMetrics requestMetrics;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        SqlCounter.reset();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            long sqlStatements = SqlCounter.getStatements();
+            long sqlNanos = SqlCounter.getNanos();
+            if (!failed && request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        record(request, response.getStatus(), start, sqlStatements, sqlNanos);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                // 未被处理的异常最终由容器返回 500
+                record(request, failed ? 500 : response.getStatus(), start, sqlStatements, sqlNanos);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, int status, long start, long sqlStatements, long sqlNanos) {
+        long nanos = System.nanoTime() - start;
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        // 按路由模板聚合，避免 /api/products/1、/api/products/2 各占一项
+        String endpoint = request.getMethod() + " " + (pattern == null ? "UNMATCHED" : pattern);
+        requestMetrics.record(endpoint, status, nanos, sqlStatements, sqlNanos);
+
+        boolean slow = requestMetrics.isSlow(nanos);
+        boolean sqlHeavy = requestMetrics.isSqlHeavy(sqlStatements);
+        if (!ACCESS_LOG.isInfoEnabled() && !((slow || sqlHeavy) && ACCESS_LOG.isWarnEnabled())) {
+            return;
+        }
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("endpoint", endpoint);
+        entry.put("uri", request.getRequestURI());
+        entry.put("status", status);
+        entry.put("ms", nanos / 1_000_000.0);
+        entry.put("sql", sqlStatements);
+        entry.put("sqlMs", sqlNanos / 1_000_000.0);
+        entry.put("slow", slow);
+        entry.put("sqlHeavy", sqlHeavy);
+        String line;
+        try {
+            line = objectMapper.writeValueAsString(entry);
+        } catch (JsonProcessingException e) {
+            line = entry.toString();
+        }
+        if (slow || sqlHeavy) {
+            ACCESS_LOG.warn(line);
+        } else {
+            ACCESS_LOG.info(line);
+        }
+    }
+}
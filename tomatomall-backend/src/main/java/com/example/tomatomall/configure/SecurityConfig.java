@@ -1,5 +1,6 @@
 package com.example.tomatomall.configure;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -34,11 +35,12 @@ public class SecurityConfig {
     /**
      * 配置密码编码器
      * 用于对用户密码进行加密和验证
+     * @param strength BCrypt 强度（log2 轮数），决定单次哈希的耗时；已有哈希按各自的强度校验
      * @return PasswordEncoder 密码编码器实例
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
+    public PasswordEncoder passwordEncoder(@Value("${password.bcrypt.strength:10}") int strength) {
         // 返回 BCryptPasswordEncoder 实例，使用BCrypt算法进行密码加密
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(strength);
     }
 }
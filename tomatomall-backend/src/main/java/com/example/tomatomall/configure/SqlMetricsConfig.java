@@ -0,0 +1,36 @@
+package com.example.tomatomall.configure;
+
+import com.example.tomatomall.util.SqlCountingDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * 把容器中名为 dataSource 的 DataSource（应用实际使用的那个）包装成 SqlCountingDataSource，按请求统计 SQL 语句数与耗时
+ * 读写分离时主库、从库连接池都在它之下，只包这一层才不会重复计数。metrics.sql.enabled=false 时不包装。
+ *
+ * @author TomatoMall Team
+ * @version 1.0
+ * @since 2024
+ */
+@Configuration
+@ConditionalOnProperty(name = "metrics.sql.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlMetricsConfig {
+
+    // BeanPostProcessor 必须是静态方法，避免配置类本身被提前实例化
+    @Bean
+    public static BeanPostProcessor sqlCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource && !(bean instanceof SqlCountingDataSource)) {
+                    return new SqlCountingDataSource((DataSource) bean);
+                }
+                return bean;
+            }
+        };
+    }
+}
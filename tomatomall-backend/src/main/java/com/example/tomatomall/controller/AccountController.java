@@ -3,12 +3,16 @@ package com.example.tomatomall.controller;
 import com.example.tomatomall.service.AccountService;
 import com.example.tomatomall.util.TokenUtil;
 import com.example.tomatomall.vo.AccountVO;
+import com.example.tomatomall.vo.CacheStatsVO;
+import com.example.tomatomall.vo.StaffBatchVO;
+import com.example.tomatomall.vo.StaffVO;
 import com.example.tomatomall.vo.Response;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
 import javax.annotation.Resource;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/accounts")
@@ -37,11 +41,11 @@ public class AccountController {
     }
 
     /**
-     * 用户登录
+     * 用户登录（密码校验在专用线程池中异步完成，请求线程立即释放）
      */
     @PostMapping("/login")
-    public Response<String> login(@RequestBody AccountVO accountVO) {
-        return Response.buildSuccess(accountService.login(accountVO));
+    public CompletableFuture<Response<String>> login(@RequestBody AccountVO accountVO) {
+        return accountService.login(accountVO).thenApply(Response::buildSuccess);
     }
 
     /**
@@ -71,15 +75,39 @@ public class AccountController {
         return Response.buildSuccess(accountService.getRole(id));
     }
 
-    // 根据shopId获取店铺员工
+    // 根据shopId获取店铺员工（精简字段）
     @GetMapping("/shop/{shopId}")
-    public Response<List<AccountVO>> getShopStaff(@PathVariable Integer shopId) {
+    public Response<List<StaffVO>> getShopStaff(@PathVariable Integer shopId) {
         return Response.buildSuccess(accountService.getShopStaff(shopId));
     }
 
+    // 批量通过员工申请，返回实际修改的人数
+    @PutMapping("/shop/{shopId}/staff/approve")
+    public Response<Integer> approveStaff(@PathVariable Integer shopId, @RequestBody StaffBatchVO batch) {
+        return Response.buildSuccess(accountService.approveStaff(shopId, batch));
+    }
+
+    // 批量拒绝员工申请或解雇员工，返回实际修改的人数
+    @PutMapping("/shop/{shopId}/staff/release")
+    public Response<Integer> releaseStaff(@PathVariable Integer shopId, @RequestBody StaffBatchVO batch) {
+        return Response.buildSuccess(accountService.releaseStaff(shopId, batch));
+    }
+
+    // 批量把员工调到 targetShopId，返回实际修改的人数
+    @PutMapping("/shop/{shopId}/staff/reassign")
+    public Response<Integer> reassignStaff(@PathVariable Integer shopId, @RequestBody StaffBatchVO batch) {
+        return Response.buildSuccess(accountService.reassignStaff(shopId, batch));
+    }
+
     @GetMapping("/fetchAdmin")
     public Response<Integer> fetchAdminId() {
         return Response.buildSuccess(accountService.fetchAdminId());
     }
 
+    // 账户缓存命中统计
+    @GetMapping("/cache/stats")
+    public Response<List<CacheStatsVO>> getCacheStats() {
+        return Response.buildSuccess(accountService.getCacheStats());
+    }
+
 }
\ No newline at end of file
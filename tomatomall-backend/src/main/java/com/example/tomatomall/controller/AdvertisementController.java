@@ -3,11 +3,13 @@ package com.example.tomatomall.controller;
 import com.example.tomatomall.po.Advertisement;
 import com.example.tomatomall.service.AccountService;
 import com.example.tomatomall.service.AdvertisementService;
+import com.example.tomatomall.util.ResourceVersions;
 import com.example.tomatomall.util.TokenUtil;
 import com.example.tomatomall.vo.AdvertisementVO;
 import com.example.tomatomall.vo.Response;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.annotation.Resource;
@@ -21,9 +23,15 @@ public class AdvertisementController {
     @Resource
     private AdvertisementService advertisementService;
 
+    @Resource
+    private ResourceVersions resourceVersions;
+
     @GetMapping
-    public Response<List<AdvertisementVO>> getAdvertisements() {
-        return Response.buildSuccess(advertisementService.getAdvertisements());
+    public Response<List<AdvertisementVO>> getAdvertisements(@RequestParam(defaultValue = "false") boolean all, WebRequest request) {
+        if (resourceVersions.checkNotModified(request, ResourceVersions.ADVERTISEMENT)) {
+            return null;
+        }
+        return Response.buildSuccess(advertisementService.getAdvertisements(all));
     }
 
 
@@ -1,7 +1,6 @@
 package com.example.tomatomall.controller;
 
 
-import com.example.tomatomall.po.Cart;
 import com.example.tomatomall.po.Order;
 import com.example.tomatomall.service.CartService;
 import com.example.tomatomall.vo.*;
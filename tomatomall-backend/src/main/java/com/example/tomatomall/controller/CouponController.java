@@ -1,11 +1,13 @@
 package com.example.tomatomall.controller;
 
 import com.example.tomatomall.service.CouponService;
+import com.example.tomatomall.util.ResourceVersions;
 import com.example.tomatomall.vo.CouponVO;
 import com.example.tomatomall.vo.Response;
 import com.example.tomatomall.vo.AccountCouponsRelationVO;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -23,13 +25,20 @@ public class CouponController {
     @Autowired
     private CouponService couponService;
 
+    @Autowired
+    private ResourceVersions resourceVersions;
+
     /**
      * 获取所有优惠券
      * 
-     * @return 所有优惠券列表
+     * @param request 当前请求，用于比较 If-None-Match
+     * @return 所有优惠券列表，未变化时返回 304
      */
     @GetMapping("/all")
-    public Response<List<CouponVO>> getAllCoupons() {
+    public Response<List<CouponVO>> getAllCoupons(WebRequest request) {
+        if (resourceVersions.checkNotModified(request, ResourceVersions.COUPON)) {
+            return null;
+        }
         return Response.buildSuccess(couponService.getAllCoupons());
     }
 
@@ -37,10 +46,14 @@ public class CouponController {
      * 根据ID获取优惠券
      * 
      * @param id 优惠券ID
-     * @return 优惠券详细信息
+     * @param request 当前请求，用于比较 If-None-Match
+     * @return 优惠券详细信息，未变化时返回 304
      */
     @GetMapping("/{id}")
-    public Response<CouponVO> getCouponById(@PathVariable int id) {
+    public Response<CouponVO> getCouponById(@PathVariable int id, WebRequest request) {
+        if (resourceVersions.checkNotModified(request, ResourceVersions.COUPON)) {
+            return null;
+        }
         return Response.buildSuccess(couponService.getCouponVOById(id));
     }
 
@@ -93,10 +106,14 @@ public class CouponController {
      * 获取用户拥有的优惠券
      * 
      * @param accountId 用户ID
-     * @return 用户优惠券列表
+     * @param request 当前请求，用于比较 If-None-Match
+     * @return 用户优惠券列表，未变化时返回 304
      */
     @GetMapping("/account/{accountId}")
-    public Response<List<AccountCouponsRelationVO>> getCouponsByAccountId(@PathVariable int accountId) {
+    public Response<List<AccountCouponsRelationVO>> getCouponsByAccountId(@PathVariable int accountId, WebRequest request) {
+        if (resourceVersions.checkNotModified(request, ResourceVersions.COUPON)) {
+            return null;
+        }
         return Response.buildSuccess(couponService.getCouponsForAccount(accountId));
     }
 
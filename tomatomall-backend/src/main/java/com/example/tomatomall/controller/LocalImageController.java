@@ -0,0 +1,175 @@
+package com.example.tomatomall.controller;
+
+import com.example.tomatomall.util.ImageStorage.LocalStorage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 本地图片访问控制器
+ * 直接从 storage.local.dir 提供 LocalStorage 上传的图片（URL 形如 {storage.local.ip}img/{文件名}），
+ * 单机部署不再依赖外部 nginx。
+ *
+ * 支持：
+ * 1. Range 请求（单区间），返回 206 / 416
+ * 2. ETag + If-None-Match，命中时返回 304
+ * 3. 内容哈希命名的文件返回 immutable 的 Cache-Control
+ * 4. 零拷贝：Tomcat 支持 sendfile 时交给连接器发送，否则用 FileChannel.transferTo
+ *
+ * @author TomatoMall Team
+ * @version 1.0
+ * @since 2024
+ */
+@RestController
+@RequestMapping("/img")
+@ConditionalOnExpression("'${storage.type:local}'.toLowerCase() matches 'local|tiered'")
+public class LocalImageController {
+
+    private static final Pattern SAFE_NAME = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]*");
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+
+    @Autowired
+    private LocalStorage localStorage;
+
+    /**
+     * 获取图片
+     *
+     * @param fileName 文件名
+     */
+    @RequestMapping(value = "/{fileName:.+}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void getImage(@PathVariable String fileName, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // 只允许单层文件名，防止路径穿越
+        if (!SAFE_NAME.matcher(fileName).matches()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        File file = localStorage.resolve(fileName);
+        if (!file.isFile()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long length = file.length();
+        boolean hashed = localStorage.isContentHashed(fileName);
+        // 内容哈希命名时文件名本身就是强校验值；否则用大小+修改时间生成弱校验值
+        String etag = hashed
+                ? "\"" + fileName.substring(0, 64) + "\""
+                : "W/\"" + Long.toHexString(length) + "-" + Long.toHexString(file.lastModified()) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, hashed ? "public, max-age=31536000, immutable" : "public, max-age=3600");
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, file.lastModified());
+
+        if (etagMatches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setContentType(MediaTypeFactory.getMediaType(fileName)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        // If-Range 与当前 ETag 不一致时忽略 Range，返回完整内容
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            Matcher matcher = RANGE.matcher(range.trim());
+            // 多区间请求按规范可以忽略，直接返回完整内容
+            if (matcher.matches() && !(matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+                if (matcher.group(1).isEmpty()) {
+                    // bytes=-N 表示最后N个字节
+                    start = Math.max(0, length - parsePosition(matcher.group(2)));
+                } else {
+                    start = parsePosition(matcher.group(1));
+                    if (!matcher.group(2).isEmpty()) {
+                        end = Math.min(end, parsePosition(matcher.group(2)));
+                    }
+                }
+                if (start >= length || start > end) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if (RequestMethod.HEAD.name().equals(request.getMethod()) || count <= 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // 交给 Tomcat 连接器用 sendfile 直接从页缓存发送
+            request.setAttribute("org.apache.tomcat.sendfile.filename", file.getCanonicalPath());
+            request.setAttribute("org.apache.tomcat.sendfile.start", start);
+            request.setAttribute("org.apache.tomcat.sendfile.end", end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            while (position <= end) {
+                position += channel.transferTo(position, end + 1 - position, target);
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * 解析 Range 中的字节位置；位数过多超出 long 的按 Long.MAX_VALUE 处理：
+     * 起点超出文件长度返回 416，终点与后缀长度截到文件长度，不会因 NumberFormatException 返回 500
+     */
+    private static long parsePosition(String digits) {
+        try {
+            return Long.parseLong(digits);
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * 判断 If-None-Match 是否命中当前 ETag（弱比较）
+     */
+    private boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*") || candidate.equals(etag) || candidate.equals(opaque)
+                    || candidate.equals("W/" + opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
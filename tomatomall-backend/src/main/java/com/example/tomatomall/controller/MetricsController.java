@@ -0,0 +1,111 @@
+package com.example.tomatomall.controller;
+
+import com.example.tomatomall.util.CartStore;
+import com.example.tomatomall.util.DataSourcePools;
+import com.example.tomatomall.util.DomainEventBus;
+import com.example.tomatomall.util.RequestMetrics;
+import com.example.tomatomall.util.SingleFlights;
+import com.example.tomatomall.util.StockAvailabilityCache;
+import com.example.tomatomall.util.cache.Caches;
+import com.example.tomatomall.vo.CacheStatsVO;
+import com.example.tomatomall.vo.EndpointMetricsVO;
+import com.example.tomatomall.vo.OutboxStatsVO;
+import com.example.tomatomall.vo.PoolStatsVO;
+import com.example.tomatomall.vo.Response;
+import com.example.tomatomall.vo.SingleFlightStatsVO;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+/**
+ * 运行指标控制器
+ * 输出 RequestMetricsFilter 汇总的各接口请求指标、数据库连接池状态、领域事件发件箱状态、购物车、库存与两级缓存的命中率以及目录读取的请求合并统计
+ *
+ * @author TomatoMall Team
+ * @version 1.0
+ * @since 2024
+ */
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    @Resource
+    private RequestMetrics requestMetrics;
+
+    @Resource
+    private DataSourcePools dataSourcePools;
+
+    @Resource
+    private DomainEventBus domainEventBus;
+
+    @Resource
+    private CartStore cartStore;
+
+    @Resource
+    private StockAvailabilityCache stockAvailabilityCache;
+
+    @Resource
+    private SingleFlights singleFlights;
+
+    @Resource
+    private Caches caches;
+
+    /**
+     * 各接口的延迟直方图、慢请求数与每请求 SQL 语句数（需要 token）
+     */
+    @GetMapping
+    public Response<List<EndpointMetricsVO>> getEndpointMetrics() {
+        return Response.buildSuccess(requestMetrics.snapshot());
+    }
+
+    /**
+     * 各数据库连接池的连接数、等待线程数与取连接等待时间；读写分离时分别列出主库、从库（需要 token）
+     */
+    @GetMapping("/pools")
+    public Response<List<PoolStatsVO>> getPoolStats() {
+        return Response.buildSuccess(dataSourcePools.stats());
+    }
+
+    /**
+     * 领域事件发件箱积压、失败与投递计数（需要 token）
+     */
+    @GetMapping("/outbox")
+    public Response<OutboxStatsVO> getOutboxStats() {
+        return Response.buildSuccess(domainEventBus.stats());
+    }
+
+    /**
+     * 购物车内存层的命中率与条目数（需要 token）
+     */
+    @GetMapping("/cart")
+    public Response<CacheStatsVO> getCartStats() {
+        return Response.buildSuccess(cartStore.stats());
+    }
+
+    /**
+     * 库存短时缓存的命中率与条目数（需要 token）
+     */
+    @GetMapping("/stock")
+    public Response<CacheStatsVO> getStockCacheStats() {
+        return Response.buildSuccess(stockAvailabilityCache.stats());
+    }
+
+    /**
+     * 商品、店铺、优惠券、账户、广告与店铺目录各两级缓存本地层的命中率与条目数（需要 token）
+     */
+    @GetMapping("/caches")
+    public Response<List<CacheStatsVO>> getCacheStats() {
+        return Response.buildSuccess(caches.stats());
+    }
+
+    /**
+     * 商品、店铺、广告读取的请求合并次数（需要 token）
+     */
+    @GetMapping("/single-flight")
+    public Response<List<SingleFlightStatsVO>> getSingleFlightStats() {
+        return Response.buildSuccess(singleFlights.stats());
+    }
+}
@@ -1,12 +1,27 @@
 package com.example.tomatomall.controller;
 
+import com.example.tomatomall.service.FlashSaleService;
+import com.example.tomatomall.service.ProductBulkService;
 import com.example.tomatomall.service.ProductService;
+import com.example.tomatomall.service.ShopCatalogService;
+import com.example.tomatomall.util.JsonSnapshot;
+import com.example.tomatomall.util.ResourceVersions;
+import com.example.tomatomall.vo.ProductImportResultVO;
 import com.example.tomatomall.vo.ProductVO;
 import com.example.tomatomall.vo.Response;
+import com.example.tomatomall.vo.StockAvailabilityVO;
 import com.example.tomatomall.vo.StockpileVO;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
@@ -16,19 +31,51 @@ public class ProductController {
     @Resource
     private ProductService productService;
 
+    @Resource
+    private ProductBulkService productBulkService;
+
+    @Resource
+    private FlashSaleService flashSaleService;
+
+    @Resource
+    private ShopCatalogService shopCatalogService;
+
+    @Resource
+    private ResourceVersions resourceVersions;
+
     @GetMapping
-    public Response<List<ProductVO>> getAllProduct() {
+    public Response<List<ProductVO>> getAllProduct(WebRequest request) {
+        if (resourceVersions.checkNotModified(request, ResourceVersions.PRODUCT)) {
+            return null;
+        }
         return Response.buildSuccess(productService.getAllProducts());
     }
 
     @GetMapping("/{id}")
-    public Response<ProductVO> getProductById(@PathVariable Integer id) {
+    public Response<ProductVO> getProductById(@PathVariable Integer id, WebRequest request) {
+        if (resourceVersions.checkNotModified(request, ResourceVersions.PRODUCT)) {
+            return null;
+        }
         return Response.buildSuccess(productService.getProductById(id));
     }
 
     @GetMapping("/shop/{shopId}")
-    public Response<List<ProductVO>> getProductsByShopId(@PathVariable Integer shopId) {
-        return Response.buildSuccess(productService.getProductsByShopId(shopId));
+    public ResponseEntity<byte[]> getProductsByShopId(@PathVariable Integer shopId, WebRequest request) {
+        // 直接返回预先序列化好的店铺商品目录，未变化时只回 304
+        JsonSnapshot snapshot = shopCatalogService.getCatalog(shopId);
+        if (request.checkNotModified(snapshot.getEtag())) {
+            return null;
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .eTag(snapshot.getEtag())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (snapshot.getGzipBody() != null && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            // 已经带 Content-Encoding 的响应 Tomcat 不会再压缩一次
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.getGzipBody());
+        }
+        return builder.body(snapshot.getBody());
     }
 
     @PostMapping
@@ -52,10 +99,70 @@ public class ProductController {
         return Response.buildSuccess(productService.getStockpile(productId));
     }
 
+    /**
+     * 批量查询商品可售库存，供购物车、商品列表展示是否有货
+     * @param productIds 商品ID，逗号分隔
+     */
+    @GetMapping("/stockpile")
+    public Response<List<StockAvailabilityVO>> getProductStocks(@RequestParam List<Integer> productIds) {
+        return Response.buildSuccess(productService.getStockAvailability(productIds));
+    }
+
     @PatchMapping("/stockpile/{productId}")
     public Response<String> updateProductStock(@PathVariable Integer productId,@RequestBody Map<String, Integer> body ) {
         Integer amount = (Integer) body.get("amount");
         return Response.buildSuccess(productService.updateStockpile(productId,amount));
     }
 
+    /**
+     * 开启抢购分桶库存，当前库存平分到 buckets 个桶
+     */
+    @PostMapping("/stockpile/{productId}/flash-sale")
+    public Response<String> enableFlashSale(@PathVariable Integer productId, @RequestBody Map<String, Integer> body) {
+        return Response.buildSuccess(flashSaleService.enableFlashSale(productId, body.getOrDefault("buckets", 16)));
+    }
+
+    /**
+     * 关闭抢购分桶库存，各桶剩余合并回商品库存
+     */
+    @DeleteMapping("/stockpile/{productId}/flash-sale")
+    public Response<String> disableFlashSale(@PathVariable Integer productId) {
+        return Response.buildSuccess(flashSaleService.disableFlashSale(productId));
+    }
+
+    /**
+     * 批量导入商品（CSV 或 NDJSON），格式由 format 参数或 Content-Type 决定
+     */
+    @PostMapping("/import")
+    public Response<ProductImportResultVO> importProducts(@RequestParam(required = false) String format,
+                                                          HttpServletRequest request) throws IOException {
+        return Response.buildSuccess(productBulkService.importProducts(request.getInputStream(),
+                resolveFormat(format, request.getContentType())));
+    }
+
+    /**
+     * 流式导出商品，shopId 为空时导出全部
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(required = false) Integer shopId,
+                                                                @RequestParam(defaultValue = ProductBulkService.NDJSON) String format) {
+        String resolved = resolveFormat(format, null);
+        MediaType mediaType = ProductBulkService.CSV.equals(resolved)
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : new MediaType("application", "x-ndjson", StandardCharsets.UTF_8);
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=products." + resolved)
+                .body(out -> productBulkService.exportProducts(shopId, resolved, out));
+    }
+
+    private String resolveFormat(String format, String contentType) {
+        if (format != null) {
+            return format.toLowerCase();
+        }
+        if (contentType != null && contentType.toLowerCase().contains("csv")) {
+            return ProductBulkService.CSV;
+        }
+        return ProductBulkService.NDJSON;
+    }
 }
@@ -1,10 +1,13 @@
 package com.example.tomatomall.controller;
 
 import com.example.tomatomall.service.ShopService;
+import com.example.tomatomall.util.ResourceVersions;
+import com.example.tomatomall.vo.PageVO;
 import com.example.tomatomall.vo.Response;
 import com.example.tomatomall.vo.ShopVO;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -23,16 +26,47 @@ public class ShopController {
     @Autowired
     private ShopService shopService;
 
+    @Autowired
+    private ResourceVersions resourceVersions;
+
     /**
      * 获取所有店铺列表
      * 
-     * @return 所有店铺信息列表
+     * @param request 当前请求，用于比较 If-None-Match
+     * @return 所有店铺信息列表，未变化时返回 304
      */
     @GetMapping("/all")
-    public Response<List<ShopVO>> getAllShops() {
+    public Response<List<ShopVO>> getAllShops(WebRequest request) {
+        if (resourceVersions.checkNotModified(request, ResourceVersions.SHOP)) {
+            return null;
+        }
         return Response.buildSuccess(shopService.getAllShops());
     }
 
+    /**
+     * 分页查询店铺目录
+     * 
+     * @param isValid 按是否有效过滤，不传则不过滤
+     * @param name 店铺名前缀
+     * @param sort rate 按评分降序，默认按ID升序
+     * @param page 页码，从0开始
+     * @param size 每页条数
+     * @param request 当前请求，用于比较 If-None-Match
+     * @return 店铺分页结果，未变化时返回 304
+     */
+    @GetMapping("/page")
+    public Response<PageVO<ShopVO>> searchShops(@RequestParam(required = false) Integer isValid,
+                                                @RequestParam(required = false) String name,
+                                                @RequestParam(defaultValue = "id") String sort,
+                                                @RequestParam(defaultValue = "0") int page,
+                                                @RequestParam(defaultValue = "20") int size,
+                                                WebRequest request) {
+        if (resourceVersions.checkNotModified(request, ResourceVersions.SHOP)) {
+            return null;
+        }
+        return Response.buildSuccess(shopService.searchShops(isValid, name, sort, page, size));
+    }
+
     /**
      * 创建新店铺
      * 
@@ -48,10 +82,14 @@ public class ShopController {
      * 获取店铺详细信息
      * 
      * @param shopId 店铺ID
-     * @return 店铺详细信息
+     * @param request 当前请求，用于比较 If-None-Match
+     * @return 店铺详细信息，未变化时返回 304
      */
     @GetMapping("/detail/{shopId}")
-    public Response<ShopVO> getShopDetail(@PathVariable Integer shopId) {
+    public Response<ShopVO> getShopDetail(@PathVariable Integer shopId, WebRequest request) {
+        if (resourceVersions.checkNotModified(request, ResourceVersions.SHOP)) {
+            return null;
+        }
         return Response.buildSuccess(shopService.getShopById(shopId));
     }
 
@@ -0,0 +1,5 @@
+package com.example.tomatomall.enums;
+
+public enum OutboxStatusEnum {
+    PENDING, PROCESSING, FAILED
+}
@@ -0,0 +1,27 @@
+package com.example.tomatomall.event;
+
+import java.util.Collection;
+
+/**
+ * 一批账户被批量修改（员工审核、解雇、调店）
+ * 由 AccountCache 在事务提交后监听，使这些账户的缓存失效。
+ */
+public class AccountsChangedEvent {
+
+    private final Collection<Integer> ids;
+
+    private final Collection<String> usernames;
+
+    public AccountsChangedEvent(Collection<Integer> ids, Collection<String> usernames) {
+        this.ids = ids;
+        this.usernames = usernames;
+    }
+
+    public Collection<Integer> getIds() {
+        return ids;
+    }
+
+    public Collection<String> getUsernames() {
+        return usernames;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.tomatomall.event;
+
+/**
+ * 经发件箱异步投递的领域事件
+ * 通过 DomainEventBus.publish 在业务事务内写入 event_outbox，事务提交后由后台线程投递给各 DomainEventSubscriber。
+ * 事件以 JSON 持久化，实现类需要无参构造器和 getter / setter。
+ */
+public interface DomainEvent {
+}
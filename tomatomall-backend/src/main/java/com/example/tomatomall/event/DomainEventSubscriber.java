@@ -0,0 +1,15 @@
+package com.example.tomatomall.event;
+
+/**
+ * 领域事件订阅者，注册为 Spring Bean 即生效
+ * 每个订阅者在发件箱中有独立的一行，各自重试，互不影响；Bean 名会写入发件箱，修改前需确认没有未投递的行。
+ * handle 与删除发件箱行在同一事务中执行：数据库写入随投递一起提交或回滚，不会重复生效；
+ * 事务之外的副作用（如清缓存）可能因重试而重复执行，必须是幂等的。
+ * @param <E> 订阅的事件类型，也会收到其子类事件
+ */
+public interface DomainEventSubscriber<E extends DomainEvent> {
+
+    Class<E> eventType();
+
+    void handle(E event);
+}
@@ -0,0 +1,23 @@
+package com.example.tomatomall.event;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 订单支付成功，由支付宝回调在订单状态变为已支付的事务中发布，每个订单只发布一次
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class OrderPaidEvent implements DomainEvent {
+
+    private Integer orderId;
+
+    private Integer accountId;
+
+    public OrderPaidEvent(Integer orderId, Integer accountId) {
+        this.orderId = orderId;
+        this.accountId = accountId;
+    }
+}
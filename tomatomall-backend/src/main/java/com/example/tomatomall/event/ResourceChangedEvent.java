@@ -0,0 +1,18 @@
+package com.example.tomatomall.event;
+
+/**
+ * 某类资源（商品、店铺、广告、优惠券）的数据发生变化
+ * 由 ResourceVersions 在事务提交后监听，推进对应资源的版本号，使旧的 ETag 失效。
+ */
+public class ResourceChangedEvent {
+
+    private final String[] resources;
+
+    public ResourceChangedEvent(String... resources) {
+        this.resources = resources;
+    }
+
+    public String[] getResources() {
+        return resources;
+    }
+}
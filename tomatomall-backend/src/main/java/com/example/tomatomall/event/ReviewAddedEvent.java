@@ -0,0 +1,14 @@
+package com.example.tomatomall.event;
+
+import lombok.NoArgsConstructor;
+
+/**
+ * 新增了商品或店铺评价
+ */
+@NoArgsConstructor
+public class ReviewAddedEvent extends ReviewEvent {
+
+    public ReviewAddedEvent(Integer reviewId, String type, Integer productId, Integer shopId) {
+        super(reviewId, type, productId, shopId);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.tomatomall.event;
+
+import lombok.NoArgsConstructor;
+
+/**
+ * 删除了商品或店铺评价
+ */
+@NoArgsConstructor
+public class ReviewDeletedEvent extends ReviewEvent {
+
+    public ReviewDeletedEvent(Integer reviewId, String type, Integer productId, Integer shopId) {
+        super(reviewId, type, productId, shopId);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.tomatomall.event;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 评价增删事件的公共部分，订阅 ReviewEvent 即可同时收到新增与删除
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public abstract class ReviewEvent implements DomainEvent {
+
+    private Integer reviewId;
+
+    private String type;        // PRODUCT / SHOP
+
+    private Integer productId;
+
+    private Integer shopId;
+
+    protected ReviewEvent(Integer reviewId, String type, Integer productId, Integer shopId) {
+        this.reviewId = reviewId;
+        this.type = type;
+        this.productId = productId;
+        this.shopId = shopId;
+    }
+}
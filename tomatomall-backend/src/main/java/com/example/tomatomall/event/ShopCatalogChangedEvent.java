@@ -0,0 +1,18 @@
+package com.example.tomatomall.event;
+
+/**
+ * 店铺商品目录发生变化（商品新增/修改/删除、评分变化等）
+ * 由 ShopCatalogServiceImpl 在事务提交后监听，丢弃该店铺的目录快照。
+ */
+public class ShopCatalogChangedEvent {
+
+    private final Integer shopId;
+
+    public ShopCatalogChangedEvent(Integer shopId) {
+        this.shopId = shopId;
+    }
+
+    public Integer getShopId() {
+        return shopId;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.tomatomall.event;
+
+/**
+ * 店铺信息发生变化（修改、删除、评分变化）
+ * 由 ShopServiceImpl 在事务提交后监听，丢弃该店铺的缓存。
+ */
+public class ShopChangedEvent {
+
+    private final Integer shopId;
+
+    public ShopChangedEvent(Integer shopId) {
+        this.shopId = shopId;
+    }
+
+    public Integer getShopId() {
+        return shopId;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.tomatomall.event;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 商品库存被修改（店家调整、支付扣减）
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class StockChangedEvent implements DomainEvent {
+
+    private Integer productId;
+
+    private Integer amount;     // 修改后的库存
+
+    public StockChangedEvent(Integer productId, Integer amount) {
+        this.productId = productId;
+        this.amount = amount;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.tomatomall.event.subscriber;
+
+import com.example.tomatomall.event.DomainEventSubscriber;
+import com.example.tomatomall.event.StockChangedEvent;
+import com.example.tomatomall.po.Product;
+import com.example.tomatomall.po.Shop;
+import com.example.tomatomall.repository.ProductRepository;
+import com.example.tomatomall.repository.ShopRepository;
+import com.example.tomatomall.service.AccountService;
+import com.example.tomatomall.service.MessageService;
+import com.example.tomatomall.vo.MessageVO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.time.LocalDateTime;
+
+/**
+ * 库存降到预警线（stock.alert-threshold，默认 20）及以下时，以管理员名义给店主发送 LOW_INVENTORY 消息
+ * 消息与删除发件箱行同一事务提交，重试不会重复发送；事件投递时商品或店铺已被删除则不再提醒。
+ */
+@Component
+public class LowStockMessageSubscriber implements DomainEventSubscriber<StockChangedEvent> {
+
+    @Resource
+    private ProductRepository productRepository;
+
+    @Resource
+    private ShopRepository shopRepository;
+
+    @Resource
+    private AccountService accountService;
+
+    @Resource
+    private MessageService messageService;
+
+    @Value("${stock.alert-threshold:20}")
+    private int stockpileAlert;
+
+    @Override
+    public Class<StockChangedEvent> eventType() {
+        return StockChangedEvent.class;
+    }
+
+    @Override
+    public void handle(StockChangedEvent event) {
+        if (event.getAmount() > stockpileAlert) {
+            return;
+        }
+        Product product = productRepository.findById(event.getProductId()).orElse(null);
+        if (product == null) {
+            return;
+        }
+        Shop shop = shopRepository.findById(product.getShopId()).orElse(null);
+        if (shop == null) {
+            return;
+        }
+
+        MessageVO messageVO = new MessageVO();
+        messageVO.setContent("LOW_INVENTORY");
+        messageVO.setIsRead(false);
+        messageVO.setFromUser(accountService.fetchAdminId());
+        messageVO.setToUser(shop.getOwnerId());
+        messageVO.setCreatedTime(LocalDateTime.now());
+        messageService.sendMessage(messageVO);
+    }
+}
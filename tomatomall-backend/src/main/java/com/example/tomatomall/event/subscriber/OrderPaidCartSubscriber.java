@@ -0,0 +1,28 @@
+package com.example.tomatomall.event.subscriber;
+
+import com.example.tomatomall.event.DomainEventSubscriber;
+import com.example.tomatomall.event.OrderPaidEvent;
+import com.example.tomatomall.service.CartService;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+
+/**
+ * 订单支付成功后删除购物车中已购买的商品
+ */
+@Component
+public class OrderPaidCartSubscriber implements DomainEventSubscriber<OrderPaidEvent> {
+
+    @Resource
+    private CartService cartService;
+
+    @Override
+    public Class<OrderPaidEvent> eventType() {
+        return OrderPaidEvent.class;
+    }
+
+    @Override
+    public void handle(OrderPaidEvent event) {
+        cartService.deleteCartItemByOrder(String.valueOf(event.getOrderId()));
+    }
+}
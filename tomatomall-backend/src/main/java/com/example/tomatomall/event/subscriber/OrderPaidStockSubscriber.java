@@ -0,0 +1,29 @@
+package com.example.tomatomall.event.subscriber;
+
+import com.example.tomatomall.event.DomainEventSubscriber;
+import com.example.tomatomall.event.OrderPaidEvent;
+import com.example.tomatomall.service.ProductService;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+
+/**
+ * 订单支付成功后按订单明细扣减库存
+ * 扣减与删除发件箱行同一事务提交，重试不会重复扣减。
+ */
+@Component
+public class OrderPaidStockSubscriber implements DomainEventSubscriber<OrderPaidEvent> {
+
+    @Resource
+    private ProductService productService;
+
+    @Override
+    public Class<OrderPaidEvent> eventType() {
+        return OrderPaidEvent.class;
+    }
+
+    @Override
+    public void handle(OrderPaidEvent event) {
+        productService.reduceStockpileByOrder(String.valueOf(event.getOrderId()));
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.tomatomall.event.subscriber;
+
+import com.example.tomatomall.event.DomainEventSubscriber;
+import com.example.tomatomall.event.ResourceChangedEvent;
+import com.example.tomatomall.event.ReviewEvent;
+import com.example.tomatomall.event.ShopCatalogChangedEvent;
+import com.example.tomatomall.event.ShopChangedEvent;
+import com.example.tomatomall.po.Review;
+import com.example.tomatomall.repository.ProductRepository;
+import com.example.tomatomall.repository.ReviewRepository;
+import com.example.tomatomall.repository.ShopRepository;
+import com.example.tomatomall.util.ResourceVersions;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+
+/**
+ * 评价新增或删除后重算商品或店铺的平均评分（取代原来的数据库触发器），并让相关缓存失效
+ * 每次都按全部评价重新求平均，重复投递、乱序投递的结果都一样；
+ * 缓存失效事件在本次投递的事务提交后才生效，读到的一定是新评分。
+ */
+@Component
+public class ReviewRatingSubscriber implements DomainEventSubscriber<ReviewEvent> {
+
+    @Resource
+    private ReviewRepository reviewRepository;
+
+    @Resource
+    private ProductRepository productRepository;
+
+    @Resource
+    private ShopRepository shopRepository;
+
+    @Resource
+    private ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public Class<ReviewEvent> eventType() {
+        return ReviewEvent.class;
+    }
+
+    @Override
+    public void handle(ReviewEvent event) {
+        if (Review.ReviewType.PRODUCT.name().equals(event.getType()) && event.getProductId() != null) {
+            Double rate = reviewRepository.averageProductRate(Review.ReviewType.PRODUCT, event.getProductId());
+            productRepository.updateRate(event.getProductId(), round2(rate));
+            eventPublisher.publishEvent(new ResourceChangedEvent(ResourceVersions.PRODUCT));
+            productRepository.findById(event.getProductId())
+                    .ifPresent(product -> eventPublisher.publishEvent(new ShopCatalogChangedEvent(product.getShopId())));
+        } else if (Review.ReviewType.SHOP.name().equals(event.getType()) && event.getShopId() != null) {
+            Double rate = reviewRepository.averageShopRate(Review.ReviewType.SHOP, event.getShopId());
+            shopRepository.updateRate(event.getShopId(), round2(rate));
+            eventPublisher.publishEvent(new ShopChangedEvent(event.getShopId()));
+            eventPublisher.publishEvent(new ResourceChangedEvent(ResourceVersions.SHOP));
+        }
+    }
+
+    // 与原触发器一致：没有评价时为 0，保留两位小数
+    private static double round2(Double rate) {
+        return rate == null ? 0 : Math.round(rate * 100) / 100d;
+    }
+}
@@ -2,6 +2,7 @@ package com.example.tomatomall.exception;
 
 import com.example.tomatomall.vo.Response;
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -15,7 +16,10 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(value = TomatoMallException.class)
     public ResponseEntity<Response<String>> handleTomatoMallException(TomatoMallException e) {
-        e.printStackTrace();
+        // 限流拒绝在被攻击时会大量出现，不打印堆栈
+        if (!"429".equals(e.getCode())) {
+            e.printStackTrace();
+        }
 
         // 根据异常类型或信息，返回不同的 HTTP 状态码
         HttpStatus status;
@@ -29,6 +33,12 @@ public class GlobalExceptionHandler {
             case "403":
                 status = HttpStatus.FORBIDDEN; // 403
                 break;
+            case "409":
+                status = HttpStatus.CONFLICT; // 409
+                break;
+            case "429":
+                status = HttpStatus.TOO_MANY_REQUESTS; // 429
+                break;
             default:
                 status = HttpStatus.INTERNAL_SERVER_ERROR; // 500
         }
@@ -37,4 +47,12 @@ public class GlobalExceptionHandler {
                 .status(status)
                 .body(Response.buildFailure(e.getMessage(), String.valueOf(status.value())));
     }
+
+    /**
+     * 提交时版本号校验失败（并发修改同一条记录）
+     */
+    @ExceptionHandler(value = ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<Response<String>> handleOptimisticLockingFailure(ObjectOptimisticLockingFailureException e) {
+        return handleTomatoMallException(TomatoMallException.productVersionConflict());
+    }
 }
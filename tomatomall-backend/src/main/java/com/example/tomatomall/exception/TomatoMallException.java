@@ -51,6 +51,10 @@ public class TomatoMallException extends RuntimeException {
         return new TomatoMallException("商品不存在", "404");
     }
 
+    public static TomatoMallException productVersionConflict() {
+        return new TomatoMallException("商品已被他人修改，请刷新后重试", "409");
+    }
+
     public static TomatoMallException overStock() {
         return new TomatoMallException("超出库存数量" ,"400");
     }
@@ -81,6 +85,10 @@ public class TomatoMallException extends RuntimeException {
         return new TomatoMallException(message, "400");
     }
 
+    public static TomatoMallException tooManyRequests() {
+        return new TomatoMallException("请求过于频繁，请稍后再试", "429");
+    }
+
     public static TomatoMallException forbidden() {
         return new TomatoMallException("没有权限", "403");
     }
@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import javax.persistence.*;
+import java.time.LocalDateTime;
 
 @Getter
 @Setter
@@ -35,7 +36,15 @@ public class Advertisement {
     @Basic
     @Column(name = "product_id", nullable = false)
     private Integer productId;
-    
+
+    @Basic
+    @Column(name = "start_time")
+    private LocalDateTime startTime;    // 投放开始时间，为空表示立即开始
+
+    @Basic
+    @Column(name = "end_time")
+    private LocalDateTime endTime;      // 投放结束时间，为空表示一直投放
+
     public AdvertisementVO toVO() {
         AdvertisementVO advertisementVO = new AdvertisementVO();
         advertisementVO.setId(this.id);
@@ -43,6 +52,8 @@ public class Advertisement {
         advertisementVO.setContent(this.content);
         advertisementVO.setImgUrl(this.imgUrl);
         advertisementVO.setProductId(this.productId);
+        advertisementVO.setStartTime(this.startTime);
+        advertisementVO.setEndTime(this.endTime);
         return advertisementVO;
     }
 }
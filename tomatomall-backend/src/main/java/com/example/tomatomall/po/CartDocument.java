@@ -0,0 +1,41 @@
+package com.example.tomatomall.po;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 一个用户的整个购物车，行的编码与合并规则见 CartStore
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "cart_documents")
+public class CartDocument {
+
+    @Id
+    @Column(name = "account_id")
+    private Integer accountId;
+
+    @Column(name = "items", nullable = false, columnDefinition = "TEXT")
+    private String items;
+
+    /**
+     * 写回时由 CartStore 比较并交换，不用 @Version：写回走批量更新语句，不经过实体
+     */
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @Column(name = "updated_time", nullable = false)
+    private LocalDateTime updatedTime;
+
+    public CartDocument(Integer accountId, String items, Long version) {
+        this.accountId = accountId;
+        this.items = items;
+        this.version = version;
+    }
+}
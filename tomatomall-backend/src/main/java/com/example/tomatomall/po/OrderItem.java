@@ -30,6 +30,12 @@ public class OrderItem{
     @Column(name = "price", nullable = false)
     private double price;
 
+    /**
+     * 结算时的购物车行ID，支付后据此从购物车中删除已购买的行
+     */
+    @Column(name = "cart_item_id")
+    private Integer cartItemId;
+
     public OrderItemVO toVO() {
         OrderItemVO orderItemVO = new OrderItemVO();
         orderItemVO.setOrderItemId(this.orderItemId);
@@ -37,6 +43,7 @@ public class OrderItem{
         orderItemVO.setProductId(this.productId);
         orderItemVO.setQuantity(this.quantity);
         orderItemVO.setPrice(this.price);
+        orderItemVO.setCartItemId(this.cartItemId);
         return orderItemVO;
     }
 }
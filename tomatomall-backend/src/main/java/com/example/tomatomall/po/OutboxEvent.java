@@ -0,0 +1,52 @@
+package com.example.tomatomall.po;
+
+import com.example.tomatomall.enums.OutboxStatusEnum;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 领域事件发件箱中的一行：一个事件投递给一个订阅者
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "event_outbox")
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "event_type", nullable = false)
+    private String eventType;
+
+    @Column(name = "subscriber", nullable = false)
+    private String subscriber;
+
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "status", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private OutboxStatusEnum status;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_time", nullable = false)
+    private LocalDateTime nextAttemptTime;
+
+    @Column(name = "claim_token")
+    private String claimToken;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    @Column(name = "created_time", nullable = false)
+    private LocalDateTime createdTime;
+}
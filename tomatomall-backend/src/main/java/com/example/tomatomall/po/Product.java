@@ -47,6 +47,11 @@ public class Product {
     @Column(name = "shop_id", nullable = false)
     private Integer shopId;
 
+    // 乐观锁版本号，每次更新自增，防止并发编辑互相覆盖
+    @Version
+    @Column(name = "version", nullable = false)
+    private Integer version;
+
     public ProductVO toVO() {
         ProductVO vo = new ProductVO();
         vo.setId(this.id);
@@ -57,6 +62,7 @@ public class Product {
         vo.setCover(this.cover);
         vo.setShopId(this.shopId);
         vo.setDetail(this.detail);
+        vo.setVersion(this.version);
         return vo;
     }
 
@@ -0,0 +1,47 @@
+package com.example.tomatomall.po;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/**
+ * 抢购商品的一个库存分桶
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "stock_buckets")
+@IdClass(StockBucket.Key.class)
+public class StockBucket {
+
+    @Id
+    @Column(name = "product_id")
+    private Integer productId;
+
+    @Id
+    @Column(name = "bucket")
+    private Integer bucket;
+
+    @Column(name = "amount", nullable = false)
+    private Integer amount;
+
+    public StockBucket(Integer productId, Integer bucket, Integer amount) {
+        this.productId = productId;
+        this.bucket = bucket;
+        this.amount = amount;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Integer productId;
+        private Integer bucket;
+    }
+}
@@ -31,6 +31,12 @@ public class Stockpile {
     @Column(name = "frozen", nullable = false)
     private Integer frozen;
 
+    /**
+     * 抢购分桶数，0 表示未开启；开启后库存在 stock_buckets 中扣减，amount 为定期回写的合计
+     */
+    @Column(name = "flash_buckets", nullable = false, columnDefinition = "INT DEFAULT 0")
+    private int flashBuckets;
+
     public StockpileVO toVO() {
         StockpileVO vo = new StockpileVO();
         vo.setAmount(this.amount);
@@ -2,9 +2,14 @@ package com.example.tomatomall.repository;
 
 import com.example.tomatomall.enums.RoleEnum;
 import com.example.tomatomall.po.Account;
+import com.example.tomatomall.vo.StaffVO;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -15,4 +20,41 @@ public interface AccountRepository extends JpaRepository<Account, Integer> {
     List<Account> findByShopId(Integer shopId);
 
     Account findByRole(RoleEnum role);
+
+    @Query("select new com.example.tomatomall.vo.StaffVO(a.id, a.username, a.name, a.telephone, a.email, a.location, a.role, a.isValidStaff) " +
+            "from Account a where a.shopId = :shopId order by a.id")
+    List<StaffVO> findStaffByShopId(@Param("shopId") Integer shopId);
+
+    @Query("select a.username from Account a where a.shopId = :shopId and a.id in :ids")
+    List<String> findUsernamesInShop(@Param("shopId") Integer shopId, @Param("ids") Collection<Integer> ids);
+
+    /**
+     * 批量修改店铺员工的角色和审核状态
+     */
+    @Modifying
+    @Query("update Account a set a.role = :role, a.isValidStaff = :isValidStaff where a.shopId = :shopId and a.id in :ids")
+    int updateStaffStatus(@Param("shopId") Integer shopId, @Param("ids") Collection<Integer> ids,
+                          @Param("role") RoleEnum role, @Param("isValidStaff") Integer isValidStaff);
+
+    /**
+     * 批量解除员工与店铺的关系（拒绝申请或解雇），恢复为普通用户
+     */
+    @Modifying
+    @Query("update Account a set a.role = com.example.tomatomall.enums.RoleEnum.CUSTOMER, a.shopId = null, a.isValidStaff = 0 " +
+            "where a.shopId = :shopId and a.id in :ids")
+    int releaseStaff(@Param("shopId") Integer shopId, @Param("ids") Collection<Integer> ids);
+
+    /**
+     * 批量把员工调到另一个店铺
+     */
+    @Modifying
+    @Query("update Account a set a.shopId = :targetShopId where a.shopId = :shopId and a.id in :ids")
+    int reassignStaff(@Param("shopId") Integer shopId, @Param("ids") Collection<Integer> ids,
+                      @Param("targetShopId") Integer targetShopId);
+
+    /**
+     * 所有头像URL，供 ImageGarbageCollector 判断本地图片是否仍被引用
+     */
+    @Query("select a.avatar from Account a where a.avatar is not null")
+    List<String> findImageReferences();
 }
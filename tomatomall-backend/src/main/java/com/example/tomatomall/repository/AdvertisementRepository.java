@@ -2,6 +2,15 @@ package com.example.tomatomall.repository;
 
 import com.example.tomatomall.po.Advertisement;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
 
 public interface AdvertisementRepository extends JpaRepository<Advertisement, Integer> {
+
+    /**
+     * 所有广告图片URL，供 ImageGarbageCollector 判断本地图片是否仍被引用
+     */
+    @Query("select a.imgUrl from Advertisement a where a.imgUrl is not null")
+    List<String> findImageReferences();
 }
@@ -0,0 +1,39 @@
+package com.example.tomatomall.repository;
+
+import com.example.tomatomall.po.CartDocument;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface CartDocumentRepository extends JpaRepository<CartDocument, Integer> {
+
+    /**
+     * 读取当前库中的购物车；构造新对象而不是返回托管实体，
+     * 请求线程开着 open-in-view 时也不会读到持久化上下文里的旧版本
+     */
+    @Query("select new com.example.tomatomall.po.CartDocument(d.accountId, d.items, d.version) " +
+            "from CartDocument d where d.accountId = :accountId")
+    CartDocument findSnapshot(@Param("accountId") Integer accountId);
+
+    /**
+     * 版本未变时写回并把版本加一；返回 0 说明期间有其他实例写过
+     */
+    @Modifying
+    @Query("update CartDocument d set d.items = :items, d.version = d.version + 1, d.updatedTime = :now " +
+            "where d.accountId = :accountId and d.version = :version")
+    int compareAndSet(@Param("accountId") Integer accountId, @Param("version") Long version,
+                      @Param("items") String items, @Param("now") LocalDateTime now);
+
+    /**
+     * 首次写回；其他实例已先插入时违反主键约束
+     */
+    @Modifying
+    @Query(value = "INSERT INTO cart_documents (account_id, items, version, updated_time) VALUES (:accountId, :items, 1, :now)",
+            nativeQuery = true)
+    int insert(@Param("accountId") Integer accountId, @Param("items") String items, @Param("now") LocalDateTime now);
+}
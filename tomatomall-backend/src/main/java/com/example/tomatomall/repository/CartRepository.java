@@ -1,15 +0,0 @@
-package com.example.tomatomall.repository;
-
-import com.example.tomatomall.po.Cart;
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.stereotype.Repository;
-import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
-
-import java.util.List;
-
-@Repository
-public interface CartRepository extends JpaRepository<Cart, Integer> {
-    Cart findByProductId(Integer productId);
-    List<Cart> findByAccountId(Integer userId);
-}
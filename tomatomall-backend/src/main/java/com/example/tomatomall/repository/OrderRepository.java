@@ -1,8 +1,10 @@
 package com.example.tomatomall.repository;
 
-import com.example.tomatomall.po.Cart;
 import com.example.tomatomall.po.Order;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,4 +12,13 @@ import java.util.List;
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Integer> {
     List<Order> findByAccountId(Integer accountId);
+
+    /**
+     * 把订单标记为已支付；支付宝重复回调或并发回调时只有一次能更新成功
+     * @return 更新的行数，0 表示订单已是已支付状态
+     */
+    @Modifying
+    @Query("update Order o set o.status = com.example.tomatomall.enums.PaymentStatusEnum.SUCCESS " +
+            "where o.orderId = :orderId and o.status <> com.example.tomatomall.enums.PaymentStatusEnum.SUCCESS")
+    int markPaid(@Param("orderId") Integer orderId);
 }
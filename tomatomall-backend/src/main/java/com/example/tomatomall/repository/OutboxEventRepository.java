@@ -0,0 +1,56 @@
+package com.example.tomatomall.repository;
+
+import com.example.tomatomall.enums.OutboxStatusEnum;
+import com.example.tomatomall.po.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * 到期的行：待投递且已到重试时间，或投递中但租约已过期（持有它的实例已宕机）
+     */
+    @Query("select e.id from OutboxEvent e where e.status in :statuses and e.nextAttemptTime <= :now order by e.id")
+    List<Long> findDueIds(@Param("statuses") Collection<OutboxStatusEnum> statuses, @Param("now") LocalDateTime now,
+                          Pageable pageable);
+
+    /**
+     * 认领到期的行；多个实例并发认领同一行时只有一个能更新成功
+     */
+    @Modifying
+    @Query("update OutboxEvent e set e.status = com.example.tomatomall.enums.OutboxStatusEnum.PROCESSING, " +
+            "e.claimToken = :token, e.nextAttemptTime = :leaseUntil " +
+            "where e.id in :ids and e.status in :statuses and e.nextAttemptTime <= :now")
+    int claim(@Param("ids") Collection<Long> ids, @Param("statuses") Collection<OutboxStatusEnum> statuses,
+              @Param("now") LocalDateTime now, @Param("token") String token, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    List<OutboxEvent> findByClaimTokenOrderById(String claimToken);
+
+    /**
+     * 投递成功后删除；租约过期被别的批次重新认领时删不到，调用方应回滚
+     */
+    @Modifying
+    @Query("delete from OutboxEvent e where e.id = :id and e.claimToken = :token")
+    int deleteClaimed(@Param("id") Long id, @Param("token") String token);
+
+    /**
+     * 投递失败后放回待投递（或标记为 FAILED），同样只处理仍由本批次持有的行
+     */
+    @Modifying
+    @Query("update OutboxEvent e set e.status = :status, e.attempts = :attempts, e.nextAttemptTime = :nextAttemptTime, " +
+            "e.claimToken = null, e.lastError = :lastError where e.id = :id and e.claimToken = :token")
+    int release(@Param("id") Long id, @Param("token") String token, @Param("status") OutboxStatusEnum status,
+                @Param("attempts") int attempts, @Param("nextAttemptTime") LocalDateTime nextAttemptTime,
+                @Param("lastError") String lastError);
+
+    long countByStatus(OutboxStatusEnum status);
+}
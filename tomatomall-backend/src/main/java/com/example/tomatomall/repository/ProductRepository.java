@@ -2,6 +2,9 @@ package com.example.tomatomall.repository;
 
 import com.example.tomatomall.po.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,5 +13,18 @@ import java.util.Optional;
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Integer> {
     Optional<Product> findById(Integer productId);
-    Optional<List<Product>> findByShopId(Integer shopId);
+    List<Product> findByShopId(Integer shopId);
+
+    /**
+     * 只改评分，不递增乐观锁版本号：评分由系统重算，不应让店家正在编辑的商品出现版本冲突
+     */
+    @Modifying
+    @Query("update Product p set p.rate = :rate where p.id = :id")
+    int updateRate(@Param("id") Integer id, @Param("rate") Double rate);
+
+    /**
+     * 所有商品的封面与详情（详情中可能嵌有图片URL），供 ImageGarbageCollector 判断本地图片是否仍被引用
+     */
+    @Query("select concat(coalesce(p.cover, ''), ' ', coalesce(p.detail, '')) from Product p")
+    List<String> findImageReferences();
 }
\ No newline at end of file
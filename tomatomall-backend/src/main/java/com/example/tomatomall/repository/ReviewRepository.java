@@ -2,6 +2,8 @@ package com.example.tomatomall.repository;
 
 import com.example.tomatomall.po.Review;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,4 +14,9 @@ public interface ReviewRepository extends JpaRepository<Review, Integer> {
     List<Review> findByShopId(Integer shopId);
     List<Review> findByAccountId(Integer accountId);
 
+    @Query("select avg(r.rate) from Review r where r.type = :type and r.productId = :productId")
+    Double averageProductRate(@Param("type") Review.ReviewType type, @Param("productId") Integer productId);
+
+    @Query("select avg(r.rate) from Review r where r.type = :type and r.shopId = :shopId")
+    Double averageShopRate(@Param("type") Review.ReviewType type, @Param("shopId") Integer shopId);
 }
\ No newline at end of file
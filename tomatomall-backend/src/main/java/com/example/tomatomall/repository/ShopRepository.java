@@ -2,10 +2,26 @@ package com.example.tomatomall.repository;
 
 import com.example.tomatomall.po.Shop;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
-public interface ShopRepository extends JpaRepository<Shop, Integer> {
+public interface ShopRepository extends JpaRepository<Shop, Integer>, JpaSpecificationExecutor<Shop> {
     // 可以添加自定义查询方法
     Shop findByOwnerId(Integer ownerId);
+
+    @Modifying
+    @Query("update Shop s set s.rate = :rate where s.id = :id")
+    int updateRate(@Param("id") Integer id, @Param("rate") Double rate);
+
+    /**
+     * 所有店铺图标URL，供 ImageGarbageCollector 判断本地图片是否仍被引用
+     */
+    @Query("select s.iconUrl from Shop s where s.iconUrl is not null")
+    List<String> findImageReferences();
 } 
\ No newline at end of file
@@ -5,12 +5,15 @@ import com.example.tomatomall.vo.SpecificationVO;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface SpecificationRepository extends JpaRepository<Specification, Integer> {
     List<Specification> findByProductId(Integer productId);
 
+    List<Specification> findByProductIdIn(Collection<Integer> productIds);
+
     void deleteByProductId(Integer productId);
 }
 
@@ -0,0 +1,41 @@
+package com.example.tomatomall.repository;
+
+import com.example.tomatomall.po.StockBucket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.List;
+
+@Repository
+public interface StockBucketRepository extends JpaRepository<StockBucket, StockBucket.Key> {
+
+    /**
+     * 从一个桶中原子扣减，桶内不足时不扣
+     * @return 更新的行数，0 表示该桶不存在或不足
+     */
+    @Modifying
+    @Query("update StockBucket b set b.amount = b.amount - :quantity " +
+            "where b.productId = :productId and b.bucket = :bucket and b.amount >= :quantity")
+    int deduct(@Param("productId") Integer productId, @Param("bucket") Integer bucket, @Param("quantity") Integer quantity);
+
+    /**
+     * 一致性读（不加锁）单独就够扣 quantity 的桶号，用来挑选条件更新的桶；结果可能已过时
+     */
+    @Query("select b.bucket from StockBucket b where b.productId = :productId and b.amount >= :quantity order by b.bucket")
+    List<Integer> findBucketsWithAtLeast(@Param("productId") Integer productId, @Param("quantity") Integer quantity);
+
+    /**
+     * 按桶号顺序锁住商品的所有桶，用于跨桶扣减、重新分配与关闭抢购
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from StockBucket b where b.productId = :productId order by b.bucket")
+    List<StockBucket> lockByProductId(@Param("productId") Integer productId);
+
+    @Query("select coalesce(sum(b.amount), 0) from StockBucket b where b.productId = :productId")
+    long sumAmount(@Param("productId") Integer productId);
+}
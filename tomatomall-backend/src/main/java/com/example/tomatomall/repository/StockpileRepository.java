@@ -4,10 +4,61 @@ package com.example.tomatomall.repository;
 import com.example.tomatomall.po.Stockpile;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface StockpileRepository extends JpaRepository<Stockpile, Integer> {
     Stockpile findByProductId(int product_id);
     void deleteByProductId(int product_id);
+
+    /**
+     * 按订单明细一条语句扣减订单中指定商品的库存；同一商品的多条明细合计扣减，库存不足的商品不扣。
+     * 库存行按传入的商品ID经 product_id 索引定位，只锁这些行：不能改成按订单明细子查询定位再排除抢购商品，
+     * 那样扫描时会先锁住抢购商品的库存行。已开启抢购分桶的商品按当前行判断不扣，开关与扣减并发时也不会重复扣
+     * @param productIds 订单中由 stockpiles 扣减的普通商品
+     * @return 更新的行数，小于 productIds 的个数说明有商品不存在、库存不足或刚开启了抢购
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE stockpiles s " +
+            "SET s.amount = s.amount - (SELECT SUM(oi.quantity) FROM order_items oi WHERE oi.order_id = :orderId AND oi.product_id = s.product_id) " +
+            "WHERE s.product_id IN (:productIds) " +
+            "AND s.flash_buckets = 0 " +
+            "AND s.amount >= (SELECT SUM(oi.quantity) FROM order_items oi WHERE oi.order_id = :orderId AND oi.product_id = s.product_id)",
+            nativeQuery = true)
+    int deductByOrder(@Param("orderId") Integer orderId, @Param("productIds") Collection<Integer> productIds);
+
+    /**
+     * 锁住商品的库存行；抢购的开启、关闭与重新分配先锁库存行再锁分桶，加锁顺序一致
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from Stockpile s where s.productId = :productId")
+    Stockpile lockByProductId(@Param("productId") Integer productId);
+
+    /**
+     * 一致性读（不加锁）开启抢购的商品的库存行与各桶合计，供定期回写使用；
+     * 不能写成 UPDATE ... SET amount = (SELECT SUM ...)，可重复读下子查询会给所有分桶加共享锁，挡住支付扣减
+     * @return [stockpileId, 当前 amount, 各桶合计]，按 stockpileId 排序
+     */
+    @Query("select s.stockpileId, s.amount, sum(b.amount) from Stockpile s, StockBucket b " +
+            "where b.productId = s.productId and s.flashBuckets > 0 " +
+            "group by s.stockpileId, s.amount order by s.stockpileId")
+    List<Object[]> sumFlashSaleBuckets();
+
+    /**
+     * 按主键回写抢购商品的合计，只锁这一行库存行，不碰分桶；期间已关闭抢购的不写
+     * @return 更新的行数
+     */
+    @Modifying
+    @Query("update Stockpile s set s.amount = :amount where s.stockpileId = :stockpileId and s.flashBuckets > 0")
+    int updateFlashSaleAmount(@Param("stockpileId") Integer stockpileId, @Param("amount") int amount);
+
+    List<Stockpile> findByProductIdIn(Collection<Integer> productIds);
 }
@@ -1,9 +1,13 @@
 package com.example.tomatomall.service;
 
 import com.example.tomatomall.vo.AccountVO;
+import com.example.tomatomall.vo.CacheStatsVO;
+import com.example.tomatomall.vo.StaffBatchVO;
+import com.example.tomatomall.vo.StaffVO;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface AccountService {
 
@@ -11,10 +15,15 @@ public interface AccountService {
     String createAccount(AccountVO accountVO);
     String updateAccount(AccountVO accountVO);
     String updateAccountWithoutPassword(AccountVO accountVO);
-    String login(AccountVO accountVO);
+    CompletableFuture<String> login(AccountVO accountVO);
     String updateRole(Integer id, String role);
     String getRole(Integer id);
-    List<AccountVO> getShopStaff(Integer shopId);
+    List<StaffVO> getShopStaff(Integer shopId);
+    int approveStaff(Integer shopId, StaffBatchVO batch);
+    int releaseStaff(Integer shopId, StaffBatchVO batch);
+    int reassignStaff(Integer shopId, StaffBatchVO batch);
 
     Integer fetchAdminId();
+
+    List<CacheStatsVO> getCacheStats();
 }
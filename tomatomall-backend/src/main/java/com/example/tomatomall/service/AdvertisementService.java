@@ -5,7 +5,7 @@ import com.example.tomatomall.vo.AdvertisementVO;
 import java.util.List;
 
 public interface AdvertisementService {
-    List<AdvertisementVO> getAdvertisements();
+    List<AdvertisementVO> getAdvertisements(boolean includeInactive);
     String updateAdvertisement(AdvertisementVO advertisementVO);
     AdvertisementVO createAdvertisement(AdvertisementVO advertisementVO);
     String deleteAdvertisement(Integer advertisementId);
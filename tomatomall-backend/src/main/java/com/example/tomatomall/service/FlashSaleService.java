@@ -0,0 +1,43 @@
+package com.example.tomatomall.service;
+
+/**
+ * 抢购分桶库存
+ * 开启后商品库存平分到多个桶（stock_buckets 中的多行），买家按账户散列到其中一个桶扣减，
+ * 桶不足时依次尝试其他桶，都不足时锁住所有桶合并扣减；每次扣减都是带条件的更新或在行锁内进行，不会超卖。
+ * 并发买家分散到不同的行锁上，不再排队等同一行 stockpiles。stockpiles.amount 定期回写为各桶合计。
+ */
+public interface FlashSaleService {
+    String enableFlashSale(int productId, int buckets);
+    String disableFlashSale(int productId);
+
+    /**
+     * 在当前事务中从分桶扣减
+     * @param productId 商品ID
+     * @param buckets 分桶数
+     * @param accountId 买家账户ID，决定首先尝试的桶
+     * @param quantity 数量
+     * @throws RuntimeException 各桶合计仍不足
+     * @throws org.springframework.dao.ConcurrencyFailureException 挑中的桶被并发扣空，回滚后重试即可
+     */
+    void deduct(int productId, int buckets, int accountId, int quantity);
+
+    /**
+     * 在当前事务中锁住所有桶并返回合计，供在此基础上调整库存
+     */
+    int lockTotal(int productId);
+
+    /**
+     * 在当前事务中把新的库存总量重新平分到各桶
+     */
+    void setAmount(int productId, int amount);
+
+    /**
+     * 各桶当前合计（不加锁）
+     */
+    int currentTotal(int productId);
+
+    /**
+     * 把所有抢购商品的各桶合计回写到 stockpiles.amount
+     */
+    int reconcile();
+}
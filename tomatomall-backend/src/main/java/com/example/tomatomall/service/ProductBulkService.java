@@ -0,0 +1,15 @@
+package com.example.tomatomall.service;
+
+import com.example.tomatomall.vo.ProductImportResultVO;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface ProductBulkService {
+    String CSV = "csv";
+    String NDJSON = "ndjson";
+
+    ProductImportResultVO importProducts(InputStream in, String format) throws IOException;
+    void exportProducts(Integer shopId, String format, OutputStream out) throws IOException;
+}
@@ -2,8 +2,10 @@ package com.example.tomatomall.service;
 
 import com.example.tomatomall.po.Product;
 import com.example.tomatomall.vo.ProductVO;
+import com.example.tomatomall.vo.StockAvailabilityVO;
 import com.example.tomatomall.vo.StockpileVO;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ProductService {
@@ -14,6 +16,7 @@ public interface ProductService {
     String updateProduct(ProductVO productVO);
     String deleteProduct(int id);
     StockpileVO getStockpile(int id);
+    List<StockAvailabilityVO> getStockAvailability(Collection<Integer> productIds);
     String updateStockpile(int id,int amount);
     String increaseStockpile(int id, int amount);
     String reduceStockpile(int id, int amount);
@@ -0,0 +1,8 @@
+package com.example.tomatomall.service;
+
+import com.example.tomatomall.util.JsonSnapshot;
+
+public interface ShopCatalogService {
+    JsonSnapshot getCatalog(int shopId);
+    void evict(Integer shopId);
+}
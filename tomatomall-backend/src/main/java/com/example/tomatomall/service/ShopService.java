@@ -1,10 +1,12 @@
 package com.example.tomatomall.service;
 
+import com.example.tomatomall.vo.PageVO;
 import com.example.tomatomall.vo.ShopVO;
 import java.util.List;
 
 public interface ShopService {
     List<ShopVO> getAllShops();
+    PageVO<ShopVO> searchShops(Integer isValid, String namePrefix, String sort, int page, int size);
     Integer getOwnShopId(Integer ownerId);
     String createShop(ShopVO shopVO);
     ShopVO getShopById(Integer shopId);
@@ -1,21 +1,30 @@
 package com.example.tomatomall.service.serviceImpl;
 
 import com.example.tomatomall.enums.RoleEnum;
+import com.example.tomatomall.event.AccountsChangedEvent;
 import com.example.tomatomall.exception.TomatoMallException;
 import com.example.tomatomall.po.Account;
+import com.example.tomatomall.po.Shop;
 import com.example.tomatomall.repository.AccountRepository;
+import com.example.tomatomall.repository.ShopRepository;
 import com.example.tomatomall.service.AccountService;
 import com.example.tomatomall.util.*;
 import com.example.tomatomall.util.ImageStorage.LocalStorage;
 import com.example.tomatomall.vo.AccountVO;
+import com.example.tomatomall.vo.CacheStatsVO;
+import com.example.tomatomall.vo.StaffBatchVO;
+import com.example.tomatomall.vo.StaffVO;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 
@@ -32,7 +41,22 @@ public class AccountServiceImpl implements AccountService {
     SecurityUtil securityUtil;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    AccountCache accountCache;
+
+    @Autowired
+    PasswordHasher passwordHasher;
+
+    @Autowired
+    LoginThrottle loginThrottle;
+
+    @Autowired
+    ClientIpResolver clientIpResolver;
+
+    @Autowired
+    ShopRepository shopRepository;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
 
     @Autowired
     private HttpServletRequest request;  // 注入 HttpServletRequest
@@ -40,13 +64,14 @@ public class AccountServiceImpl implements AccountService {
 
     @Override
     public String createAccount(AccountVO accountVO) {
-        Account account = accountRepository.findByUsername(accountVO.getUsername());
+        loginThrottle.checkIp(clientIpResolver.resolve(request));
+        Account account = accountCache.getByUsername(accountVO.getUsername());
         if (account != null) {
             throw TomatoMallException.usernameAlreadyExists();
         }
         // 获取用户输入的原始密码
         String rawPassword = accountVO.getPassword();
-        String encodedPassword = passwordEncoder.encode(rawPassword);
+        String encodedPassword = passwordHasher.encode(rawPassword);
         accountVO.setPassword(encodedPassword);
 
         Account newAccount = accountVO.toPO();
@@ -55,25 +80,29 @@ public class AccountServiceImpl implements AccountService {
     }
 
     @Override
-    public String login(AccountVO accountVO) {
-        Account account = accountRepository.findByUsername(accountVO.getUsername());
+    public CompletableFuture<String> login(AccountVO accountVO) {
+        loginThrottle.checkLogin(accountVO.getUsername(), clientIpResolver.resolve(request));
+        Account account = accountCache.getByUsername(accountVO.getUsername());
         if (account == null) {
             throw TomatoMallException.usernameOrPasswordError();
         }
-        // 使用 passwordEncoder 比较原始密码和数据库中加密后的密码
-        boolean isPswMatch = passwordEncoder.matches(accountVO.getPassword(), account.getPassword());
-        if (!isPswMatch) {
-            throw TomatoMallException.usernameOrPasswordError();
-        }
-
-        request.getSession().setAttribute("currentAccount", account);
-        //登录成功返回Token
-        return tokenUtil.getToken(account);
+        // 回调在哈希线程上执行，注入的 request 代理在那里不可用，先在请求线程取到 session
+        HttpSession session = request.getSession();
+        // 在专用线程池中比较原始密码和数据库中加密后的密码，请求线程不被 bcrypt 占用
+        return passwordHasher.matchesAsync(accountVO.getPassword(), account.getPassword())
+                .thenApply(isPswMatch -> {
+                    if (!isPswMatch) {
+                        throw TomatoMallException.usernameOrPasswordError();
+                    }
+                    session.setAttribute("currentAccount", account);
+                    //登录成功返回Token
+                    return tokenUtil.getToken(account);
+                });
     }
 
     @Override
     public AccountVO getAccountInfo(String username) {
-        Account account = accountRepository.findByUsername(username);
+        Account account = accountCache.getByUsername(username);
         if (account == null) {
             throw TomatoMallException.usernameNotExists();
         }
@@ -88,7 +117,7 @@ public class AccountServiceImpl implements AccountService {
         }
 
         if (!accountVO.getPassword().isEmpty()) {
-            account.setPassword(passwordEncoder.encode(accountVO.getPassword()));
+            account.setPassword(passwordHasher.encode(accountVO.getPassword()));
         }
         if (!accountVO.getName().isEmpty()) {
             account.setName(accountVO.getName());
@@ -116,6 +145,7 @@ public class AccountServiceImpl implements AccountService {
         }
 
         accountRepository.save(account);
+        accountCache.evict(account);
 
         // 更新 session 中的 currentAccount
         HttpSession session = request.getSession();
@@ -156,6 +186,7 @@ public class AccountServiceImpl implements AccountService {
         }
 
         accountRepository.save(account);
+        accountCache.evict(account);
         return "更新成功";
     }
 
@@ -164,22 +195,105 @@ public class AccountServiceImpl implements AccountService {
         Account account = accountRepository.findById(id).orElseThrow(() -> TomatoMallException.usernameNotExists());
         account.setRole(RoleEnum.valueOf(role));
         accountRepository.save(account);
+        accountCache.evict(account);
         return "更新成功";
     }
     @Override
     public String getRole(Integer id) {
-        Account account = accountRepository.findById(id).orElseThrow(() -> TomatoMallException.usernameNotExists());
+        Account account = accountCache.getById(id);
+        if (account == null) {
+            throw TomatoMallException.usernameNotExists();
+        }
         return account.getRole().name();
     }
 
-    public List<AccountVO> getShopStaff(Integer shopId) {
-        List<Account> accounts = accountRepository.findByShopId(shopId);
-        return accounts.stream().map(Account::toVO).collect(Collectors.toList());
+    @Override
+    public List<StaffVO> getShopStaff(Integer shopId) {
+        return accountRepository.findStaffByShopId(shopId);
+    }
+
+    /**
+     * 批量通过员工申请
+     * @param shopId 店铺ID
+     * @param batch 账户ID列表
+     * @return 实际修改的账户数
+     */
+    @Override
+    @Transactional
+    public int approveStaff(Integer shopId, StaffBatchVO batch) {
+        List<String> usernames = prepareStaffBatch(shopId, batch);
+        int updated = accountRepository.updateStaffStatus(shopId, batch.getIds(), RoleEnum.STAFF, 1);
+        eventPublisher.publishEvent(new AccountsChangedEvent(batch.getIds(), usernames));
+        return updated;
+    }
+
+    /**
+     * 批量拒绝员工申请或解雇员工
+     * @param shopId 店铺ID
+     * @param batch 账户ID列表
+     * @return 实际修改的账户数
+     */
+    @Override
+    @Transactional
+    public int releaseStaff(Integer shopId, StaffBatchVO batch) {
+        List<String> usernames = prepareStaffBatch(shopId, batch);
+        int updated = accountRepository.releaseStaff(shopId, batch.getIds());
+        eventPublisher.publishEvent(new AccountsChangedEvent(batch.getIds(), usernames));
+        return updated;
+    }
+
+    /**
+     * 批量调店
+     * @param shopId 原店铺ID
+     * @param batch 账户ID列表和目标店铺ID
+     * @return 实际修改的账户数
+     */
+    @Override
+    @Transactional
+    public int reassignStaff(Integer shopId, StaffBatchVO batch) {
+        if (batch.getTargetShopId() == null) {
+            throw TomatoMallException.badRequest("缺少目标店铺");
+        }
+        checkShopManager(batch.getTargetShopId());
+        List<String> usernames = prepareStaffBatch(shopId, batch);
+        int updated = accountRepository.reassignStaff(shopId, batch.getIds(), batch.getTargetShopId());
+        eventPublisher.publishEvent(new AccountsChangedEvent(batch.getIds(), usernames));
+        return updated;
+    }
+
+    /**
+     * 校验权限和参数，并取出受影响账户的用户名用于缓存失效
+     */
+    private List<String> prepareStaffBatch(Integer shopId, StaffBatchVO batch) {
+        if (batch.getIds() == null || batch.getIds().isEmpty()) {
+            throw TomatoMallException.badRequest("未选择员工");
+        }
+        checkShopManager(shopId);
+        return accountRepository.findUsernamesInShop(shopId, batch.getIds());
+    }
+
+    /**
+     * 只有管理员和该店铺的店主可以管理员工
+     */
+    private void checkShopManager(Integer shopId) {
+        Shop shop = shopRepository.findById(shopId).orElseThrow(TomatoMallException::shopNotExists);
+        Account current = securityUtil.getCurrentAccount();
+        if (current == null) {
+            throw TomatoMallException.notLogin();
+        }
+        boolean isOwner = current.getRole() == RoleEnum.SHOPKEEPER && Objects.equals(current.getId(), shop.getOwnerId());
+        if (current.getRole() != RoleEnum.admin && !isOwner) {
+            throw TomatoMallException.forbidden();
+        }
     }
 
     @Override
     public Integer fetchAdminId(){
-        Integer adminAccount = accountRepository.findByRole(RoleEnum.admin).getId();
-        return adminAccount;
+        return accountCache.getAdminId();
+    }
+
+    @Override
+    public List<CacheStatsVO> getCacheStats() {
+        return accountCache.stats();
     }
 }
\ No newline at end of file
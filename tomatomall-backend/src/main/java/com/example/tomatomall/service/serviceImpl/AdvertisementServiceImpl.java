@@ -1,21 +1,42 @@
 package com.example.tomatomall.service.serviceImpl;
 
+import com.example.tomatomall.event.ResourceChangedEvent;
 import com.example.tomatomall.exception.TomatoMallException;
 import com.example.tomatomall.po.Advertisement;
+import com.example.tomatomall.po.Product;
 import com.example.tomatomall.repository.AccountRepository;
 import com.example.tomatomall.repository.AdvertisementRepository;
+import com.example.tomatomall.repository.ProductRepository;
 import com.example.tomatomall.service.AdvertisementService;
+import com.example.tomatomall.util.ResourceVersions;
+import com.example.tomatomall.util.cache.Caches;
+import com.example.tomatomall.util.cache.TwoTierCache;
 import com.example.tomatomall.vo.AdvertisementVO;
+import com.fasterxml.jackson.core.type.TypeReference;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * 广告服务实现类
  * 实现广告的增删改查等功能
+ * 首页轮播读取的是两级缓存中的整体快照（附带关联商品的价格和封面），读取时只在内存中按投放时段过滤；
+ * 广告或商品变化的事务提交后快照失效（其他实例经失效消息同步），下一次读取时重建，
+ * 同时到达的请求合并为一次重建，其余请求等待并共享同一快照。
  *
  * @author TomatoMall Team
  * @version 1.0
@@ -27,21 +48,76 @@ public class AdvertisementServiceImpl implements AdvertisementService {
     @Autowired
     AdvertisementRepository advertisementRepository;
 
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    Caches caches;
+
     /**
-     * 获取所有广告列表
+     * 广告快照，只有一个条目；快照列表及其中的VO由所有请求共享，不能修改
+     */
+    private TwoTierCache<String, List<AdvertisementVO>> snapshotCache;
+
+    @PostConstruct
+    public void init() {
+        snapshotCache = caches.create("advertisement", 1, new TypeReference<List<AdvertisementVO>>() {});
+    }
+
+    /**
+     * 获取广告列表
+     * @param includeInactive 是否包含不在投放时段内的广告（管理页使用）
      * @return 广告VO列表
      */
     @Override
-    public List<AdvertisementVO> getAdvertisements() {
+    public List<AdvertisementVO> getAdvertisements(boolean includeInactive) {
+        List<AdvertisementVO> current = snapshotCache.get("all", key -> buildSnapshot());
+        if (includeInactive) {
+            return current;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        return current.stream().filter(ad -> ad.isActiveAt(now)).collect(Collectors.toList());
+    }
+
+    /**
+     * 广告或商品（价格、封面、删除商品时级联删除广告）变化的事务提交后使快照失效；
+     * 排在 ResourceVersions 之前执行，保证新 ETag 生效后读到的是重建的快照
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onResourceChanged(ResourceChangedEvent event) {
+        List<String> resources = Arrays.asList(event.getResources());
+        if (resources.contains(ResourceVersions.ADVERTISEMENT) || resources.contains(ResourceVersions.PRODUCT)) {
+            snapshotCache.clear();
+        }
+    }
+
+    /**
+     * 全量读取广告并用一次批量查询补全商品价格和封面
+     */
+    private List<AdvertisementVO> buildSnapshot() {
         List<Advertisement> advertisements = advertisementRepository.findAll();
-        return advertisements.stream().map(this::convertToVO).collect(Collectors.toList());
+        Set<Integer> productIds = advertisements.stream().map(Advertisement::getProductId).collect(Collectors.toSet());
+        Map<Integer, Product> products = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return Collections.unmodifiableList(advertisements.stream()
+                .map(advertisement -> convertToVO(advertisement, products.get(advertisement.getProductId())))
+                .collect(Collectors.toList()));
     }
 
     /**
      * 实体转VO
      */
-    private AdvertisementVO convertToVO(Advertisement advertisement) {
-        return advertisement.toVO();
+    private AdvertisementVO convertToVO(Advertisement advertisement, Product product) {
+        AdvertisementVO vo = advertisement.toVO();
+        if (product != null) {
+            vo.setProductPrice(product.getPrice());
+            vo.setProductCover(product.getCover());
+        }
+        return vo;
     }
 
     /**
@@ -75,7 +151,15 @@ public class AdvertisementServiceImpl implements AdvertisementService {
         if (imageUrl != null){
             advertisement.setImgUrl(imageUrl);
         }
+        if (advertisementVO.getStartTime() != null){
+            advertisement.setStartTime(advertisementVO.getStartTime());
+        }
+        if (advertisementVO.getEndTime() != null){
+            advertisement.setEndTime(advertisementVO.getEndTime());
+        }
+        checkWindow(advertisement);
         advertisementRepository.save(advertisement);
+        eventPublisher.publishEvent(new ResourceChangedEvent(ResourceVersions.ADVERTISEMENT));
 
         return "更新成功";
     }
@@ -88,7 +172,9 @@ public class AdvertisementServiceImpl implements AdvertisementService {
     @Override
     public AdvertisementVO createAdvertisement(AdvertisementVO advertisementVO) {
         Advertisement advertisement = advertisementVO.toPO();
+        checkWindow(advertisement);
         advertisementRepository.save(advertisement);
+        eventPublisher.publishEvent(new ResourceChangedEvent(ResourceVersions.ADVERTISEMENT));
         return advertisement.toVO();
     }
 
@@ -105,6 +191,17 @@ public class AdvertisementServiceImpl implements AdvertisementService {
         }
         Advertisement advertisement = opAdvertisement.get();
         advertisementRepository.delete(advertisement);
+        eventPublisher.publishEvent(new ResourceChangedEvent(ResourceVersions.ADVERTISEMENT));
         return "删除成功";
     }
+
+    /**
+     * 检查投放时段是否合法
+     */
+    private void checkWindow(Advertisement advertisement) {
+        if (advertisement.getStartTime() != null && advertisement.getEndTime() != null
+                && !advertisement.getStartTime().isBefore(advertisement.getEndTime())) {
+            throw TomatoMallException.badRequest("投放开始时间必须早于结束时间");
+        }
+    }
 }
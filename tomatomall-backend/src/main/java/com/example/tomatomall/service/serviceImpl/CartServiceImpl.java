@@ -5,16 +5,16 @@ import com.example.tomatomall.exception.TomatoMallException;
 import com.example.tomatomall.po.*;
 import com.example.tomatomall.repository.*;
 import com.example.tomatomall.service.CartService;
+import com.example.tomatomall.util.CartStore;
 import com.example.tomatomall.util.SecurityUtil;
+import com.example.tomatomall.util.StockAvailabilityCache;
 import com.example.tomatomall.vo.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.Resource;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
 /**
  * 购物车服务实现类
@@ -31,13 +31,10 @@ public class CartServiceImpl implements CartService {
     private ProductRepository productRepository;
 
     @Resource
-    private CartRepository cartRepository;
+    private CartStore cartStore;
 
     @Resource
-    private StockpileRepository stockpileRepository;
-
-    @Resource
-    private CartOrderRelationRepository cartOrderRelationRepository;
+    private StockAvailabilityCache stockAvailabilityCache;
 
     @Resource
     private OrderItemRepository orderItemRepository;
@@ -55,25 +52,17 @@ public class CartServiceImpl implements CartService {
      */
     @Override
     public CartVO addCartItem(Integer productId, Integer quantity) {
-        CartVO cartVO = new CartVO();
-
+        Integer accountId = securityUtil.getCurrentAccount().getId();
         Product product = productRepository.findById(productId)
                 .orElseThrow(TomatoMallException::productNotExists);
-        cartVO.setProductId(product.getId());
-        cartVO.setDescription(product.getDescription());
-        cartVO.setTitle(product.getTitle());
-        cartVO.setPrice(product.getPrice());
-        cartVO.setCover(product.getCover());
-        cartVO.setDetail(product.getDetail());
-        cartVO.setAccountId(securityUtil.getCurrentAccount().getId());
-        if (stockpileRepository.findByProductId(productId) == null) {
+        Integer stock = stockAvailabilityCache.getAmount(productId);
+        if (stock == null) {
             throw TomatoMallException.productNotExists();
         }
-        if (quantity > stockpileRepository.findByProductId(productId).getAmount()) {
-            throw TomatoMallException.overStock();
-        }
-        cartVO.setQuantity(quantity);
-        cartRepository.save(cartVO.toPO());
+        // 购物车中已有该商品时合并为一行，合并后的数量同样不能超过库存；真正扣减在支付时按库存表条件更新
+        CartStore.Line line = cartStore.add(accountId, productId, quantity, stock);
+        CartVO cartVO = toVO(line, product);
+        cartVO.setAccountId(accountId);
         return cartVO;
     }
 
@@ -84,10 +73,10 @@ public class CartServiceImpl implements CartService {
      */
     @Override
     public String deleteCartItem(Integer cartItemId) {
-        if (!cartRepository.findById(cartItemId).isPresent()) {
+        Integer accountId = securityUtil.getCurrentAccount().getId();
+        if (cartStore.remove(accountId, Collections.singletonList(cartItemId)) == 0) {
             throw TomatoMallException.cartNotExists();
         }
-        cartRepository.deleteById(cartItemId);
         return "删除成功";
     }
 
@@ -99,17 +88,21 @@ public class CartServiceImpl implements CartService {
      */
     @Override
     public String updateCartItem(Integer cartItemId, Integer quantity) {
-        Optional<Cart> opCartItem = cartRepository.findById(cartItemId);
-        if (!opCartItem.isPresent()) {
+        Integer accountId = securityUtil.getCurrentAccount().getId();
+        CartStore.Line line = cartStore.getLine(accountId, cartItemId);
+        if (line == null) {
             throw TomatoMallException.cartNotExists();
         }
-        Cart cartItem = opCartItem.get();
-        Integer productId = cartItem.getProductId();
-        if (quantity > stockpileRepository.findByProductId(productId).getAmount()) {
+        Integer stock = stockAvailabilityCache.getAmount(line.getProductId());
+        if (stock == null) {
+            throw TomatoMallException.productNotExists();
+        }
+        if (quantity > stock) {
             throw TomatoMallException.overStock();
         }
-        cartItem.setQuantity(quantity);
-        cartRepository.save(cartItem);
+        if (!cartStore.setQuantity(accountId, cartItemId, quantity)) {
+            throw TomatoMallException.cartNotExists();
+        }
         return "修改数量成功";
     }
 
@@ -123,24 +116,22 @@ public class CartServiceImpl implements CartService {
         List<CartVO> cartItemListVO = new ArrayList<>();
         double totalAmount = 0;
 
-        List<Cart> cartItems = cartRepository.findByAccountId(accountId);
-        for (Cart cart : cartItems) {
-            Integer productId = cart.getProductId();
-            Product product = productRepository.findById(productId)
-                    .orElseThrow(TomatoMallException::productNotExists);
-            CartVO itemVO = new CartVO();
-            itemVO.setCartItemId(cart.getCartitemId());
-            itemVO.setProductId(product.getId());
-            itemVO.setTitle(product.getTitle());
-            itemVO.setPrice(product.getPrice());
-            itemVO.setCover(product.getCover());
-            itemVO.setDescription(product.getDescription());
-            itemVO.setDetail(product.getDetail());
-            itemVO.setQuantity(cart.getQuantity());
-
+        List<CartStore.Line> lines = cartStore.getLines(accountId);
+        Map<Integer, Product> products = productsOf(lines);
+        List<Integer> removed = new ArrayList<>();
+        for (CartStore.Line line : lines) {
+            Product product = products.get(line.getProductId());
+            if (product == null) {
+                // 商品已下架删除
+                removed.add(line.getLineId());
+                continue;
+            }
             // 单项小计 = 单价 * 数量
-            totalAmount += product.getPrice() * cart.getQuantity();
-            cartItemListVO.add(itemVO);
+            totalAmount += product.getPrice() * line.getQuantity();
+            cartItemListVO.add(toVO(line, product));
+        }
+        if (!removed.isEmpty()) {
+            cartStore.remove(accountId, removed);
         }
         CartListVO vo = new CartListVO();
         vo.setCartItems(cartItemListVO);
@@ -150,14 +141,43 @@ public class CartServiceImpl implements CartService {
 
     /**
      * 购物车结算，生成订单
+     * 订单明细是所选购物车行在结算时的快照（商品、数量、单价、行ID），订单金额按明细计算；
+     * 支付后扣库存、删购物车行都以订单明细为准，结算后再修改购物车不影响这张订单
      * @param checkRequestVO 结算请求VO
      * @return 订单VO
      */
     @Override
+    @Transactional  // 整个结算只占用一个连接，订单与订单项一起提交
     public OrderVO check(CheckRequestVO checkRequestVO, int couponType, int couponValue) {
-        OrderVO orderVO = new OrderVO();
-        orderVO.setAccountId(securityUtil.getCurrentAccount().getId());
-        double totalAmount = getCart().getTotalAmount();
+        Integer accountId = securityUtil.getCurrentAccount().getId();
+        if (checkRequestVO.cartItemIds == null || checkRequestVO.cartItemIds.isEmpty()) {
+            throw TomatoMallException.badRequest("未选择要结算的购物车项");
+        }
+        List<CartStore.Line> lines = new ArrayList<>();
+        for (Integer cartItemId : new LinkedHashSet<>(checkRequestVO.cartItemIds)) {
+            CartStore.Line line = cartStore.getLine(accountId, cartItemId);
+            if (line == null) {
+                throw TomatoMallException.cartNotExists();
+            }
+            lines.add(line);
+        }
+
+        Map<Integer, Product> products = productsOf(lines);
+        List<OrderItemVO> orderItemVOs = new ArrayList<>();
+        double totalAmount = 0;
+        for (CartStore.Line line : lines) {
+            Product product = products.get(line.getProductId());
+            if (product == null) {
+                throw TomatoMallException.productNotExists();
+            }
+            OrderItemVO orderItemVO = new OrderItemVO();
+            orderItemVO.setProductId(line.getProductId());
+            orderItemVO.setQuantity(line.getQuantity());
+            orderItemVO.setPrice(product.getPrice());
+            orderItemVO.setCartItemId(line.getLineId());
+            orderItemVOs.add(orderItemVO);
+            totalAmount += product.getPrice() * line.getQuantity();
+        }
 
         if (couponType == 2) {
             // 满减
@@ -168,49 +188,72 @@ public class CartServiceImpl implements CartService {
             // 折扣
             totalAmount *= couponValue;
         }
+        OrderVO orderVO = new OrderVO();
+        orderVO.setAccountId(accountId);
         orderVO.setTotalAmount(totalAmount);
-
         orderVO.setPaymentMethod("ALIPAY");
         orderVO.setStatus(PaymentStatusEnum.PENDING);
         orderVO.setCreateTime(new Date());
         Order order = orderRepository.save(orderVO.toPO());
-        for (int i = 0; i < checkRequestVO.cartItemIds.size(); i++){
-            Integer cartItemId = checkRequestVO.cartItemIds.get(i);
-            Cart cart = cartRepository.findById(cartItemId).get();
 
-            OrderItemVO orderItemVO = new OrderItemVO();
+        List<OrderItem> orderItems = new ArrayList<>();
+        for (OrderItemVO orderItemVO : orderItemVOs) {
             orderItemVO.setOrderId(order.getOrderId());
-            orderItemVO.setProductId(cart.getProductId());
-            orderItemVO.setQuantity(cart.getQuantity());
-            Product product = productRepository.findById(cart.getProductId()).get();
-            orderItemVO.setPrice(product.getPrice());
-            orderItemRepository.save(orderItemVO.toPO());
+            orderItems.add(orderItemVO.toPO());
         }
+        orderItemRepository.saveAll(orderItems);
         return order.toVO();
     }
 
     /**
      * 根据订单删除购物车项
+     * 按订单明细记下的购物车行ID，一次从该用户的购物车中删除并立即写回；
+     * 由支付事件在后台线程调用，没有当前登录用户。重复投递时行已不存在，删除为空操作
      * @param orderIdStr 订单ID字符串
      * @return 删除结果
      */
     @Override
     public String deleteCartItemByOrder(String orderIdStr) {
         int orderId = Integer.parseInt(orderIdStr);
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(TomatoMallException::orderNotExists);
 
-        // 1. 获取订单下所有 cartItem 关联
-        List<CartOrderRelation> relationList = cartOrderRelationRepository.findByOrderId(orderId);
-
-        // 2. 遍历每一项关系
-        for (CartOrderRelation relation : relationList) {
-            Integer cartItemId = relation.getCartItemId();
+        List<Integer> cartItemIds = new ArrayList<>();
+        for (OrderItem item : orderItemRepository.findByOrderId(orderId)) {
+            if (item.getCartItemId() != null) {
+                cartItemIds.add(item.getCartItemId());
+            }
+        }
+        if (!cartItemIds.isEmpty()) {
+            cartStore.removeAndFlush(order.getAccountId(), cartItemIds);
+        }
 
-            cartOrderRelationRepository.delete(relation);
-            deleteCartItem(cartItemId);
+        return "删除购物车成功";
+    }
 
+    private Map<Integer, Product> productsOf(List<CartStore.Line> lines) {
+        List<Integer> productIds = new ArrayList<>();
+        for (CartStore.Line line : lines) {
+            productIds.add(line.getProductId());
+        }
+        Map<Integer, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(productIds)) {
+            products.put(product.getId(), product);
         }
+        return products;
+    }
 
-        return "删除购物车成功";
+    private static CartVO toVO(CartStore.Line line, Product product) {
+        CartVO itemVO = new CartVO();
+        itemVO.setCartItemId(line.getLineId());
+        itemVO.setProductId(product.getId());
+        itemVO.setTitle(product.getTitle());
+        itemVO.setPrice(product.getPrice());
+        itemVO.setCover(product.getCover());
+        itemVO.setDescription(product.getDescription());
+        itemVO.setDetail(product.getDetail());
+        itemVO.setQuantity(line.getQuantity());
+        return itemVO;
     }
 
 }
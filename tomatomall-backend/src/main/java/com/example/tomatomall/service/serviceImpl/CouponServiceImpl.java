@@ -1,21 +1,39 @@
 package com.example.tomatomall.service.serviceImpl;
 
 import com.alipay.api.domain.CodeCouponInfo;
+import com.example.tomatomall.event.ResourceChangedEvent;
 import com.example.tomatomall.exception.TomatoMallException;
 import com.example.tomatomall.po.*;
 import com.example.tomatomall.repository.*;
 import com.example.tomatomall.service.CouponService;
+import com.example.tomatomall.util.ResourceVersions;
+import com.example.tomatomall.util.cache.Caches;
+import com.example.tomatomall.util.cache.TwoTierCache;
 import com.example.tomatomall.vo.AccountCouponsRelationVO;
 import com.example.tomatomall.vo.CouponVO;
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+/**
+ * 优惠券服务实现类
+ * 优惠券列表与详情放在两级缓存中，优惠券变化（含领取、使用）的事务提交后失效；
+ * 是否有效按结束时间在每次读取时重新计算，缓存中的过期状态不会过时。
+ */
 @Service
 public class CouponServiceImpl implements CouponService {
 
@@ -25,17 +43,63 @@ public class CouponServiceImpl implements CouponService {
     @Resource
     private AccountCouponsRelationRepository accountCouponsRelationRepository;
 
+    @Resource
+    private ApplicationEventPublisher eventPublisher;
+
+    @Resource
+    private Caches caches;
+
+    @Value("${coupon.cache.max-entries:1000}")
+    private int cacheMaxEntries;
+
+    private TwoTierCache<String, List<CouponVO>> allCouponsCache;
+
+    private TwoTierCache<Integer, CouponVO> couponCache;
+
+    @PostConstruct
+    public void init() {
+        allCouponsCache = caches.create("coupon.all", 1, new TypeReference<List<CouponVO>>() {});
+        couponCache = caches.create("coupon", cacheMaxEntries, CouponVO.class);
+    }
+
     @Override
     public List<CouponVO> getAllCoupons() {
-        List<Coupon> coupons = couponRepository.findAll();
-        for (Coupon coupon : coupons){
-            checkTime(coupon);
-        }
-        return coupons.stream()
-                .map(this::convertToVO)
+        List<CouponVO> cached = allCouponsCache.get("all", key -> {
+            List<Coupon> coupons = couponRepository.findAll();
+            for (Coupon coupon : coupons){
+                checkTime(coupon);
+            }
+            return coupons.stream()
+                    .map(this::convertToVO)
+                    .collect(Collectors.toList());
+        });
+        return cached.stream()
+                .map(CouponServiceImpl::withCurrentValidity)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * 优惠券变化的事务提交后使缓存失效；排在 ResourceVersions 之前，新 ETag 生效时缓存已经失效
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onResourceChanged(ResourceChangedEvent event) {
+        if (Arrays.asList(event.getResources()).contains(ResourceVersions.COUPON)) {
+            allCouponsCache.clear();
+            couponCache.clear();
+        }
+    }
+
+    /**
+     * 复制缓存中的优惠券并按当前时间计算是否有效，与 checkTime 的规则一致；缓存中的对象不被修改
+     */
+    private static CouponVO withCurrentValidity(CouponVO cached) {
+        CouponVO couponVO = new CouponVO();
+        BeanUtils.copyProperties(cached, couponVO);
+        couponVO.setIsValid(LocalDateTime.now().isAfter(cached.getEndTime()) ? 0 : 1);
+        return couponVO;
+    }
+
     /**
      * 获取账户的所有优惠券
      * @param accountId 账户ID
@@ -77,13 +141,15 @@ public class CouponServiceImpl implements CouponService {
     }
 
     public CouponVO getCouponVOById(int couponId){
-        Optional<Coupon> opCoupon = couponRepository.findById(couponId);
-        if (!opCoupon.isPresent()){
-            throw new TomatoMallException("找不到优惠券实体");
-        }
-        Coupon coupon = opCoupon.get();
-        checkTime(coupon);
-        return coupon.toVO();
+        return withCurrentValidity(couponCache.get(couponId, key -> {
+            Optional<Coupon> opCoupon = couponRepository.findById(key);
+            if (!opCoupon.isPresent()){
+                throw new TomatoMallException("找不到优惠券实体");
+            }
+            Coupon coupon = opCoupon.get();
+            checkTime(coupon);
+            return coupon.toVO();
+        }));
     }
 
     /**
@@ -117,6 +183,7 @@ public class CouponServiceImpl implements CouponService {
         coupon.setIsValid(1);
 
         couponRepository.save(coupon);
+        eventPublisher.publishEvent(new ResourceChangedEvent(ResourceVersions.COUPON));
         return "优惠券创建成功";
     }
 
@@ -170,6 +237,7 @@ public class CouponServiceImpl implements CouponService {
         // 减少Coupon中的总数量
         coupon.setUsedQuantity(coupon.getUsedQuantity() + quantity);
         couponRepository.save(coupon);
+        eventPublisher.publishEvent(new ResourceChangedEvent(ResourceVersions.COUPON));
 
         return "领取成功，获得 " + quantity + " 张优惠券";
     }
@@ -194,6 +262,7 @@ public class CouponServiceImpl implements CouponService {
         }
 
         reduceCouponAmountForAccount(accountId, couponId, quantity);
+        eventPublisher.publishEvent(new ResourceChangedEvent(ResourceVersions.COUPON));
 
         return "使用成功，剩余 " + pool.getQuantity() + " 张";
     }
@@ -215,6 +284,7 @@ public class CouponServiceImpl implements CouponService {
 
         // 3. 删除与该优惠券相关的所有用户关系记录
         accountCouponsRelationRepository.deleteByCouponId(couponId);
+        eventPublisher.publishEvent(new ResourceChangedEvent(ResourceVersions.COUPON));
 
         return "优惠券删除成功";
     }
@@ -258,6 +328,7 @@ public class CouponServiceImpl implements CouponService {
 
         // 4. 保存更新
         couponRepository.save(coupon);
+        eventPublisher.publishEvent(new ResourceChangedEvent(ResourceVersions.COUPON));
 
         return "优惠券更新成功";
     }
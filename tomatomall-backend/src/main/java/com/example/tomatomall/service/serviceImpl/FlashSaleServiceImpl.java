@@ -0,0 +1,230 @@
+package com.example.tomatomall.service.serviceImpl;
+
+import com.example.tomatomall.exception.TomatoMallException;
+import com.example.tomatomall.po.StockBucket;
+import com.example.tomatomall.po.Stockpile;
+import com.example.tomatomall.repository.StockBucketRepository;
+import com.example.tomatomall.repository.StockpileRepository;
+import com.example.tomatomall.service.FlashSaleService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 抢购分桶库存服务实现类
+ * 开启、关闭与重新分配都先锁 stockpiles 行再按桶号顺序锁分桶；定期回写不加锁地读各桶合计，只按主键锁 stockpiles 行；
+ * 支付扣减只锁分桶，不碰 stockpiles 行。
+ * 同一商品的分桶在一个事务内只按桶号递增加锁：InnoDB 的条件更新即使条件不满足也会锁住该行，
+ * 所以扣减先不加锁地读出够扣的桶，只对看上去够扣的桶做条件更新；落空后只再试桶号更大的桶，
+ * 仍然落空就抛出 ConcurrencyFailureException 回滚，由支付事件投递重试，不在持有一个桶时再去锁更小的桶。
+ *
+ * @author TomatoMall Team
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+public class FlashSaleServiceImpl implements FlashSaleService {
+
+    private static final Logger log = LoggerFactory.getLogger(FlashSaleServiceImpl.class);
+
+    @Resource
+    private StockpileRepository stockpileRepository;
+
+    @Resource
+    private StockBucketRepository stockBucketRepository;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${stock.flash-sale.max-buckets:64}")
+    private int maxBuckets;
+
+    @Value("${stock.flash-sale.reconcile-ms:1000}")
+    private long reconcileMillis;
+
+    private ScheduledExecutorService reconciler;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "flash-sale-reconciler");
+            t.setDaemon(true);
+            return t;
+        });
+        reconciler.scheduleWithFixedDelay(() -> {
+            try {
+                reconcile();
+            } catch (RuntimeException e) {
+                log.warn("抢购库存回写失败: {}", e.toString());
+            }
+        }, reconcileMillis, reconcileMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (reconciler != null) {
+            reconciler.shutdownNow();
+        }
+    }
+
+    /**
+     * 开启抢购：把当前库存平分到 buckets 个桶
+     * @param productId 商品ID
+     * @param buckets 分桶数，一般取扣减并发数（支付投递线程数 × 实例数）附近
+     * @return 结果
+     */
+    @Override
+    @Transactional
+    public String enableFlashSale(int productId, int buckets) {
+        if (buckets < 2 || buckets > maxBuckets) {
+            throw TomatoMallException.badRequest("分桶数应在 2 到 " + maxBuckets + " 之间");
+        }
+        Stockpile stockpile = stockpileRepository.lockByProductId(productId);
+        if (stockpile == null) {
+            throw TomatoMallException.productNotExists();
+        }
+        if (stockpile.getFlashBuckets() > 0) {
+            throw TomatoMallException.badRequest("该商品已开启抢购库存");
+        }
+        List<StockBucket> rows = new ArrayList<>(buckets);
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            rows.add(new StockBucket(productId, bucket, share(stockpile.getAmount(), buckets, bucket)));
+        }
+        stockBucketRepository.saveAll(rows);
+        stockpile.setFlashBuckets(buckets);
+        stockpileRepository.save(stockpile);
+        return "开启抢购库存成功";
+    }
+
+    /**
+     * 关闭抢购：各桶合计写回 stockpiles.amount 并删除分桶
+     * @param productId 商品ID
+     * @return 结果
+     */
+    @Override
+    @Transactional
+    public String disableFlashSale(int productId) {
+        Stockpile stockpile = stockpileRepository.lockByProductId(productId);
+        if (stockpile == null) {
+            throw TomatoMallException.productNotExists();
+        }
+        if (stockpile.getFlashBuckets() == 0) {
+            throw TomatoMallException.badRequest("该商品未开启抢购库存");
+        }
+        List<StockBucket> rows = stockBucketRepository.lockByProductId(productId);
+        stockpile.setAmount(total(rows));
+        stockpile.setFlashBuckets(0);
+        stockpileRepository.save(stockpile);
+        stockBucketRepository.deleteAll(rows);
+        return "关闭抢购库存成功";
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deduct(int productId, int buckets, int accountId, int quantity) {
+        List<Integer> candidates = stockBucketRepository.findBucketsWithAtLeast(productId, quantity);
+        if (!candidates.isEmpty()) {
+            // 从 accountId 散列到的桶起，按轮转顺序取第一个够扣的桶，不同买家分散到不同的桶
+            int start = Math.floorMod(accountId, buckets);
+            int first = candidates.get(0);
+            for (int bucket : candidates) {
+                if (bucket >= start) {
+                    first = bucket;
+                    break;
+                }
+            }
+            if (stockBucketRepository.deduct(productId, first, quantity) == 1) {
+                return;
+            }
+            // 读取之后被其他事务扣空，此时已持有 first 的行锁，只能再试桶号更大的桶
+            for (int bucket : candidates) {
+                if (bucket > first && stockBucketRepository.deduct(productId, bucket, quantity) == 1) {
+                    return;
+                }
+            }
+            throw new ConcurrencyFailureException("抢购分桶被并发扣空，回滚后重试，productId = " + productId);
+        }
+        // 没有一个桶单独够扣：尚未持有任何桶的锁，按桶号顺序锁住所有桶，从各桶凑齐，合计仍不足才是售罄
+        List<StockBucket> rows = stockBucketRepository.lockByProductId(productId);
+        if (total(rows) < quantity) {
+            throw new RuntimeException("库存不足或商品不存在，productId = " + productId);
+        }
+        int remaining = quantity;
+        for (StockBucket row : rows) {
+            int taken = Math.min(remaining, row.getAmount());
+            row.setAmount(row.getAmount() - taken);
+            remaining -= taken;
+        }
+        stockBucketRepository.saveAll(rows);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int lockTotal(int productId) {
+        stockpileRepository.lockByProductId(productId);
+        return total(stockBucketRepository.lockByProductId(productId));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void setAmount(int productId, int amount) {
+        stockpileRepository.lockByProductId(productId);
+        List<StockBucket> rows = stockBucketRepository.lockByProductId(productId);
+        for (int i = 0; i < rows.size(); i++) {
+            rows.get(i).setAmount(share(amount, rows.size(), i));
+        }
+        stockBucketRepository.saveAll(rows);
+    }
+
+    @Override
+    public int currentTotal(int productId) {
+        return (int) stockBucketRepository.sumAmount(productId);
+    }
+
+    @Override
+    public int reconcile() {
+        // 先不加锁地读出各桶合计，再按主键逐行回写有变化的库存行，整个过程不锁任何分桶
+        Integer updated = transactionTemplate.execute(status -> {
+            int count = 0;
+            for (Object[] row : stockpileRepository.sumFlashSaleBuckets()) {
+                int total = ((Number) row[2]).intValue();
+                if (((Number) row[1]).intValue() != total) {
+                    count += stockpileRepository.updateFlashSaleAmount((Integer) row[0], total);
+                }
+            }
+            return count;
+        });
+        return updated == null ? 0 : updated;
+    }
+
+    /**
+     * 把 amount 平分到 buckets 个桶时第 bucket 个桶分得的数量，余数分给前几个桶
+     */
+    private static int share(int amount, int buckets, int bucket) {
+        int base = Math.max(amount, 0) / buckets;
+        return bucket < Math.max(amount, 0) % buckets ? base + 1 : base;
+    }
+
+    private static int total(List<StockBucket> rows) {
+        int total = 0;
+        for (StockBucket row : rows) {
+            total += row.getAmount();
+        }
+        return total;
+    }
+}
@@ -6,6 +6,7 @@ import com.alipay.api.DefaultAlipayClient;
 import com.alipay.api.internal.util.AlipaySignature;
 import com.alipay.api.request.AlipayTradePagePayRequest;
 import com.example.tomatomall.enums.PaymentStatusEnum;
+import com.example.tomatomall.event.OrderPaidEvent;
 import com.example.tomatomall.exception.TomatoMallException;
 import com.example.tomatomall.po.Account;
 import com.example.tomatomall.po.Order;
@@ -14,7 +15,7 @@ import com.example.tomatomall.repository.AccountRepository;
 import com.example.tomatomall.repository.OrderItemRepository;
 import com.example.tomatomall.repository.OrderRepository;
 import com.example.tomatomall.service.OrderService;
-import com.example.tomatomall.service.ProductService;
+import com.example.tomatomall.util.DomainEventBus;
 import com.example.tomatomall.vo.AccountVO;
 import com.example.tomatomall.vo.OrderItemVO;
 import com.example.tomatomall.vo.OrderVO;
@@ -23,6 +24,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
@@ -51,10 +53,10 @@ public class OrderServiceImpl implements OrderService {
     OrderItemRepository orderItemRepository;
 
     @Autowired
-    ProductService productService;
+    DomainEventBus domainEventBus;
 
     @Autowired
-    CartServiceImpl cartService;
+    TransactionTemplate transactionTemplate;
 
     // ==================== 支付宝配置参数 ====================
     // 从application.yml配置文件中读取支付宝相关配置
@@ -160,14 +162,9 @@ public class OrderServiceImpl implements OrderService {
             String alipayTradeNo = params.get("trade_no");     // 支付宝交易号
             String amount = params.get("total_amount");        // 支付金额
 
-            // 更新订单状态
+            // 更新订单状态，并在同一事务中发布支付成功事件
+            // 扣减库存、删除购物车等后续处理由 OrderPaidEvent 的订阅者异步完成，回调只写入订单状态和发件箱
             updateOrderStatus(aliOrderIdStr, alipayTradeNo, amount);
-
-            // 扣减商品库存
-            productService.reduceStockpileByOrder(aliOrderIdStr);
-
-            // 删除购物车中已购买的商品
-            cartService.deleteCartItemByOrder(aliOrderIdStr);
         }
 
         // 4. 必须返回纯文本的 "success"（支付宝要求）
@@ -220,10 +217,18 @@ public class OrderServiceImpl implements OrderService {
      */
 
     private Boolean updateOrderStatus(String aliOrderId, String alipayTradeNo, String amount) {
+        // 1. 将订单号、金额转换为数字，格式错误的回调直接忽略
+        int orderId;
+        double paidAmount;
         try {
-            // 1. 将订单号字符串转换为整数
-            int orderId = Integer.parseInt(aliOrderId);
-            
+            orderId = Integer.parseInt(aliOrderId);
+            paidAmount = Double.parseDouble(amount);
+        } catch (NumberFormatException | NullPointerException e) {
+            return false;
+        }
+
+        // 数据库异常不在这里吞掉：回调返回错误后支付宝会重新通知
+        return transactionTemplate.execute(status -> {
             // 2. 查询订单是否存在
             Order order = orderRepository.findById(orderId).orElse(null);
             if (order == null) {
@@ -236,22 +241,17 @@ public class OrderServiceImpl implements OrderService {
             }
 
             // 4. 校验支付金额是否与订单金额一致
-            double paidAmount = Double.parseDouble(amount);
             if (order.getTotalAmount() != paidAmount) {
                 return false; // 金额不一致，可能存在异常
             }
 
-            // 5. 更新订单状态为已支付
-            order.setStatus(PaymentStatusEnum.SUCCESS);
-
+            // 5. 条件更新订单状态为已支付，并发的重复回调只有一个能更新成功并发布事件
             // 注意：如需记录支付宝交易号，请在Order类中添加相应字段
-            orderRepository.save(order);
-
+            if (orderRepository.markPaid(orderId) == 1) {
+                domainEventBus.publish(new OrderPaidEvent(orderId, order.getAccountId()));
+            }
             return true;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return false;
-        }
+        });
     }
 
 
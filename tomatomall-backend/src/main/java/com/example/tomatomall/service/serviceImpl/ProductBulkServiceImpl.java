@@ -0,0 +1,510 @@
+package com.example.tomatomall.service.serviceImpl;
+
+import com.example.tomatomall.event.ResourceChangedEvent;
+import com.example.tomatomall.event.ShopCatalogChangedEvent;
+import com.example.tomatomall.exception.TomatoMallException;
+import com.example.tomatomall.repository.ShopRepository;
+import com.example.tomatomall.service.ProductBulkService;
+import com.example.tomatomall.util.CsvUtil;
+import com.example.tomatomall.util.ResourceVersions;
+import com.example.tomatomall.vo.ProductBulkVO;
+import com.example.tomatomall.vo.ProductImportResultVO;
+import com.example.tomatomall.vo.SpecificationVO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * 商品批量导入/导出服务实现类
+ *
+ * 导入：流式逐行解析 CSV / NDJSON，每 batchSize 行一个事务，
+ * 商品、库存、规格三张表各用一次 JDBC 批量插入；
+ * 某一批失败时回滚并逐行重试，从而精确报告每一行的失败原因。
+ *
+ * 导出：单条 SQL 游标流式读取，读到一行写一行，不在内存中缓存整个结果集。
+ *
+ * CSV 列：id,title,price,rate,description,cover,detail,shopId,amount,specifications
+ * 其中 specifications 形如 "颜色:红;尺寸:XL"，名称或内容中的 \ ; : 写作 \\ \; \:，导出时自动转义；
+ * 导入时 id/rate 可省略，rate 须在 0-10 之间。
+ *
+ * @author TomatoMall Team
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+public class ProductBulkServiceImpl implements ProductBulkService {
+
+    private static final String[] CSV_HEADER = {"id", "title", "price", "rate", "description", "cover", "detail", "shopId", "amount", "specifications"};
+
+    private static final String INSERT_PRODUCT =
+            "INSERT INTO products (title, price, rate, description, cover, detail, shop_id) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_STOCKPILE =
+            "INSERT INTO stockpiles (product_id, amount, frozen) VALUES (?, ?, 0)";
+    private static final String INSERT_SPECIFICATION =
+            "INSERT INTO specifications (item, value, product_id) VALUES (?, ?, ?)";
+    private static final String EXPORT_QUERY =
+            "SELECT p.id, p.title, p.price, p.rate, p.description, p.cover, p.detail, p.shop_id, s.amount, sp.item, sp.value " +
+            "FROM products p " +
+            "LEFT JOIN stockpiles s ON s.product_id = p.id " +
+            "LEFT JOIN specifications sp ON sp.product_id = p.id ";
+
+    @Resource
+    private JdbcTemplate jdbcTemplate;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    @Resource
+    private DataSource dataSource;
+
+    @Resource
+    private ShopRepository shopRepository;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    @Resource
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${product.import.batch-size:1000}")
+    private int batchSize;
+
+    // MySQL 驱动只有在 fetchSize = Integer.MIN_VALUE 时才逐行流式返回结果
+    @Value("${product.export.fetch-size:-2147483648}")
+    private int exportFetchSize;
+
+    private JdbcTemplate streamingJdbcTemplate;
+
+    @PostConstruct
+    public void init() {
+        streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        streamingJdbcTemplate.setFetchSize(exportFetchSize);
+    }
+
+    /**
+     * 批量导入商品
+     * @param in 请求体
+     * @param format csv 或 ndjson
+     * @return 导入结果
+     */
+    @Override
+    public ProductImportResultVO importProducts(InputStream in, String format) throws IOException {
+        ProductImportResultVO result = new ProductImportResultVO();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<ImportRow> chunk = new ArrayList<>(batchSize);
+        Map<Integer, Boolean> shopExists = new HashMap<>();
+        int rowNo = 0;
+
+        if (CSV.equals(format)) {
+            List<String> header = CsvUtil.readRecord(reader);
+            if (header == null) {
+                return result;
+            }
+            Map<String, Integer> columns = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim(), i);
+            }
+            List<String> record;
+            while ((record = CsvUtil.readRecord(reader)) != null) {
+                if (isBlank(record)) {
+                    continue;
+                }
+                rowNo++;
+                try {
+                    accept(new ImportRow(rowNo, parseCsv(record, columns)), chunk, shopExists, result);
+                } catch (RuntimeException e) {
+                    result.addError(rowNo, e.getMessage());
+                }
+            }
+        } else if (NDJSON.equals(format)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                rowNo++;
+                try {
+                    accept(new ImportRow(rowNo, objectMapper.readValue(line, ProductBulkVO.class)), chunk, shopExists, result);
+                } catch (JsonProcessingException e) {
+                    result.addError(rowNo, "JSON格式错误: " + e.getOriginalMessage());
+                } catch (RuntimeException e) {
+                    result.addError(rowNo, e.getMessage());
+                }
+            }
+        } else {
+            throw TomatoMallException.badRequest("不支持的导入格式: " + format);
+        }
+        flush(chunk, result);
+        result.setTotal(rowNo);
+        if (result.getSucceeded() > 0) {
+            eventPublisher.publishEvent(new ResourceChangedEvent(ResourceVersions.PRODUCT));
+        }
+        shopExists.forEach((shopId, exists) -> {
+            if (exists) {
+                eventPublisher.publishEvent(new ShopCatalogChangedEvent(shopId));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 流式导出商品
+     * @param shopId 店铺ID，为空时导出全部商品
+     * @param format csv 或 ndjson
+     * @param out 输出流
+     */
+    @Override
+    public void exportProducts(Integer shopId, String format, OutputStream out) throws IOException {
+        if (!CSV.equals(format) && !NDJSON.equals(format)) {
+            throw TomatoMallException.badRequest("不支持的导出格式: " + format);
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (CSV.equals(format)) {
+            writer.write(CsvUtil.toLine((Object[]) CSV_HEADER));
+        }
+        ExportWriter exportWriter = new ExportWriter(writer, format);
+        String sql = EXPORT_QUERY + (shopId == null ? "" : "WHERE p.shop_id = ? ") + "ORDER BY p.id, sp.specification_id";
+        Object[] args = shopId == null ? new Object[0] : new Object[]{shopId};
+        streamingJdbcTemplate.query(sql, (RowCallbackHandler) exportWriter::processRow, args);
+        exportWriter.finish();
+        writer.flush();
+    }
+
+    // ==================== 导入 ====================
+
+    private void accept(ImportRow row, List<ImportRow> chunk, Map<Integer, Boolean> shopExists, ProductImportResultVO result) {
+        validate(row.product, shopExists);
+        chunk.add(row);
+        if (chunk.size() >= batchSize) {
+            flush(chunk, result);
+        }
+    }
+
+    /**
+     * 写入一批数据：整批一个事务；失败则逐行重试以定位出错的行
+     */
+    private void flush(List<ImportRow> chunk, ProductImportResultVO result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> insertBatch(chunk));
+            result.setSucceeded(result.getSucceeded() + chunk.size());
+        } catch (RuntimeException batchError) {
+            for (ImportRow row : chunk) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> insertBatch(Collections.singletonList(row)));
+                    result.setSucceeded(result.getSucceeded() + 1);
+                } catch (RuntimeException e) {
+                    result.addError(row.rowNo, NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+                }
+            }
+        }
+        chunk.clear();
+    }
+
+    private void insertBatch(List<ImportRow> rows) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+            int[] ids = new int[rows.size()];
+            try (PreparedStatement ps = con.prepareStatement(INSERT_PRODUCT, Statement.RETURN_GENERATED_KEYS)) {
+                for (ImportRow row : rows) {
+                    ProductBulkVO p = row.product;
+                    ps.setString(1, p.getTitle());
+                    ps.setDouble(2, p.getPrice());
+                    ps.setDouble(3, p.getRate() == null ? 0 : p.getRate());
+                    ps.setString(4, p.getDescription());
+                    ps.setString(5, p.getCover());
+                    ps.setString(6, p.getDetail());
+                    ps.setInt(7, p.getShopId());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    int i = 0;
+                    while (keys.next() && i < ids.length) {
+                        ids[i++] = keys.getInt(1);
+                    }
+                    if (i != ids.length) {
+                        throw new SQLException("生成的商品ID数量与插入行数不一致");
+                    }
+                }
+            }
+
+            boolean hasSpecs = false;
+            try (PreparedStatement ps = con.prepareStatement(INSERT_STOCKPILE)) {
+                for (int i = 0; i < rows.size(); i++) {
+                    ProductBulkVO p = rows.get(i).product;
+                    ps.setInt(1, ids[i]);
+                    ps.setInt(2, p.getAmount() == null ? 0 : p.getAmount());
+                    ps.addBatch();
+                    hasSpecs |= p.getSpecifications() != null && !p.getSpecifications().isEmpty();
+                }
+                ps.executeBatch();
+            }
+
+            if (hasSpecs) {
+                try (PreparedStatement ps = con.prepareStatement(INSERT_SPECIFICATION)) {
+                    for (int i = 0; i < rows.size(); i++) {
+                        List<SpecificationVO> specs = rows.get(i).product.getSpecifications();
+                        if (specs == null) {
+                            continue;
+                        }
+                        for (SpecificationVO spec : specs) {
+                            ps.setString(1, spec.getItem());
+                            ps.setString(2, spec.getValue());
+                            ps.setInt(3, ids[i]);
+                            ps.addBatch();
+                        }
+                    }
+                    ps.executeBatch();
+                }
+            }
+            return null;
+        });
+    }
+
+    private void validate(ProductBulkVO p, Map<Integer, Boolean> shopExists) {
+        if (p.getTitle() == null || p.getTitle().trim().isEmpty()) {
+            throw TomatoMallException.badRequest("商品名称不能为空");
+        }
+        if (p.getTitle().length() > 50) {
+            throw TomatoMallException.badRequest("商品名称不能超过50个字符");
+        }
+        if (p.getPrice() == null || p.getPrice() < 0) {
+            throw TomatoMallException.badRequest("商品价格不能为空且不能小于0");
+        }
+        if (p.getRate() != null && (p.getRate() < 0 || p.getRate() > 10)) {
+            throw TomatoMallException.badRequest("商品评分须在0到10之间");
+        }
+        if (p.getAmount() != null && p.getAmount() < 0) {
+            throw TomatoMallException.badRequest("库存不能小于0");
+        }
+        if (p.getShopId() == null) {
+            throw TomatoMallException.badRequest("所属商店不能为空");
+        }
+        if (!shopExists.computeIfAbsent(p.getShopId(), shopRepository::existsById)) {
+            throw TomatoMallException.shopNotExists();
+        }
+        if (p.getSpecifications() != null) {
+            for (SpecificationVO spec : p.getSpecifications()) {
+                if (spec.getItem() == null || spec.getItem().isEmpty() || spec.getValue() == null) {
+                    throw TomatoMallException.badRequest("规格名称和内容不能为空");
+                }
+            }
+        }
+    }
+
+    private ProductBulkVO parseCsv(List<String> record, Map<String, Integer> columns) {
+        ProductBulkVO p = new ProductBulkVO();
+        p.setTitle(column(record, columns, "title"));
+        p.setPrice(parseDouble(column(record, columns, "price"), "price"));
+        p.setRate(parseDouble(column(record, columns, "rate"), "rate"));
+        p.setDescription(column(record, columns, "description"));
+        p.setCover(column(record, columns, "cover"));
+        p.setDetail(column(record, columns, "detail"));
+        p.setShopId(parseInt(column(record, columns, "shopId"), "shopId"));
+        p.setAmount(parseInt(column(record, columns, "amount"), "amount"));
+
+        String specs = column(record, columns, "specifications");
+        if (specs != null) {
+            p.setSpecifications(parseSpecifications(specs));
+        }
+        return p;
+    }
+
+    /**
+     * 解析 "名称:内容;名称:内容"，反斜杠转义其后的一个字符
+     * @param specs CSV 中的 specifications 列
+     * @return 规格列表
+     */
+    static List<SpecificationVO> parseSpecifications(String specs) {
+        List<SpecificationVO> specVOs = new ArrayList<>();
+        StringBuilder item = new StringBuilder();
+        StringBuilder value = new StringBuilder();
+        StringBuilder current = item;
+        boolean separated = false;
+        for (int i = 0; i <= specs.length(); i++) {
+            char c = i < specs.length() ? specs.charAt(i) : ';';
+            if (c == '\\' && i + 1 < specs.length()) {
+                current.append(specs.charAt(++i));
+            } else if (c == ':' && !separated) {
+                separated = true;
+                current = value;
+            } else if (c == ';') {
+                if (separated) {
+                    // 名称为空由 validate 报告
+                    SpecificationVO spec = new SpecificationVO();
+                    spec.setItem(item.toString().trim());
+                    spec.setValue(value.toString().trim());
+                    specVOs.add(spec);
+                } else if (item.toString().trim().length() > 0) {
+                    throw TomatoMallException.badRequest("规格格式应为 名称:内容 : " + item);
+                }
+                item.setLength(0);
+                value.setLength(0);
+                current = item;
+                separated = false;
+            } else {
+                current.append(c);
+            }
+        }
+        return specVOs;
+    }
+
+    /**
+     * 把规格写成 parseSpecifications 能还原的 "名称:内容;名称:内容"
+     */
+    static String formatSpecifications(List<SpecificationVO> specifications) {
+        StringBuilder specs = new StringBuilder();
+        for (SpecificationVO spec : specifications) {
+            if (specs.length() > 0) {
+                specs.append(';');
+            }
+            escapeSpec(specs, spec.getItem());
+            specs.append(':');
+            escapeSpec(specs, spec.getValue());
+        }
+        return specs.toString();
+    }
+
+    private static void escapeSpec(StringBuilder sb, String text) {
+        if (text == null) {
+            return;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' || c == ';' || c == ':') {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+    }
+
+    private static String column(List<String> record, Map<String, Integer> columns, String name) {
+        Integer idx = columns.get(name);
+        if (idx == null || idx >= record.size() || record.get(idx).isEmpty()) {
+            return null;
+        }
+        return record.get(idx);
+    }
+
+    private static Double parseDouble(String value, String name) {
+        try {
+            return value == null ? null : Double.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw TomatoMallException.badRequest(name + " 不是合法的数字: " + value);
+        }
+    }
+
+    private static Integer parseInt(String value, String name) {
+        try {
+            return value == null ? null : Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw TomatoMallException.badRequest(name + " 不是合法的整数: " + value);
+        }
+    }
+
+    private static boolean isBlank(List<String> record) {
+        for (String field : record) {
+            if (!field.trim().isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class ImportRow {
+        private final int rowNo;
+        private final ProductBulkVO product;
+
+        private ImportRow(int rowNo, ProductBulkVO product) {
+            this.rowNo = rowNo;
+            this.product = product;
+        }
+    }
+
+    // ==================== 导出 ====================
+
+    /**
+     * 把按商品ID排序的 商品×规格 行合并成一个商品后立即写出
+     */
+    private class ExportWriter {
+        private final Writer writer;
+        private final String format;
+        private ProductBulkVO current;
+
+        private ExportWriter(Writer writer, String format) {
+            this.writer = writer;
+            this.format = format;
+        }
+
+        private void processRow(ResultSet rs) throws SQLException {
+            int id = rs.getInt("id");
+            if (current == null || current.getId() != id) {
+                write();
+                current = new ProductBulkVO();
+                current.setId(id);
+                current.setTitle(rs.getString("title"));
+                current.setPrice(rs.getDouble("price"));
+                current.setRate(rs.getDouble("rate"));
+                current.setDescription(rs.getString("description"));
+                current.setCover(rs.getString("cover"));
+                current.setDetail(rs.getString("detail"));
+                current.setShopId(rs.getInt("shop_id"));
+                int amount = rs.getInt("amount");
+                current.setAmount(rs.wasNull() ? null : amount);
+                current.setSpecifications(new ArrayList<>());
+            }
+            String item = rs.getString("item");
+            if (item != null) {
+                SpecificationVO spec = new SpecificationVO();
+                spec.setItem(item);
+                spec.setValue(rs.getString("value"));
+                current.getSpecifications().add(spec);
+            }
+        }
+
+        private void finish() throws IOException {
+            try {
+                write();
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+
+        private void write() throws SQLException {
+            if (current == null) {
+                return;
+            }
+            try {
+                if (CSV.equals(format)) {
+                    String specs = formatSpecifications(current.getSpecifications());
+                    writer.write(CsvUtil.toLine(current.getId(), current.getTitle(), current.getPrice(), current.getRate(),
+                            current.getDescription(), current.getCover(), current.getDetail(), current.getShopId(),
+                            current.getAmount(), specs));
+                } else {
+                    writer.write(objectMapper.writeValueAsString(current));
+                    writer.write('\n');
+                }
+            } catch (IOException e) {
+                // 客户端断开时终止游标读取
+                throw new SQLException("写出导出数据失败", e);
+            }
+        }
+    }
+}
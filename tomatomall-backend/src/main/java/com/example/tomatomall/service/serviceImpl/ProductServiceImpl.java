@@ -1,24 +1,42 @@
 package com.example.tomatomall.service.serviceImpl;
 
+import com.example.tomatomall.event.ResourceChangedEvent;
+import com.example.tomatomall.event.ShopCatalogChangedEvent;
+import com.example.tomatomall.event.StockChangedEvent;
 import com.example.tomatomall.exception.TomatoMallException;
 import com.example.tomatomall.po.*;
 import com.example.tomatomall.repository.*;
-import com.example.tomatomall.service.AccountService;
-import com.example.tomatomall.service.MessageService;
+import com.example.tomatomall.service.FlashSaleService;
 import com.example.tomatomall.service.ProductService;
+import com.example.tomatomall.util.DomainEventBus;
 import com.example.tomatomall.util.ImageStorageFactory;
-import com.example.tomatomall.vo.MessageVO;
+import com.example.tomatomall.util.ResourceVersions;
+import com.example.tomatomall.util.SingleFlight;
+import com.example.tomatomall.util.SingleFlights;
+import com.example.tomatomall.util.StockAvailabilityCache;
+import com.example.tomatomall.util.cache.Caches;
+import com.example.tomatomall.util.cache.TwoTierCache;
 import com.example.tomatomall.vo.ProductVO;
 import com.example.tomatomall.vo.SpecificationVO;
+import com.example.tomatomall.vo.StockAvailabilityVO;
 import com.example.tomatomall.vo.StockpileVO;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
-import java.time.LocalDateTime;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import javax.annotation.PostConstruct;
 
 import javax.annotation.Resource;
-import javax.transaction.Transactional;
-import java.util.List;
-import java.util.Optional;
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import java.util.*;
 import java.util.stream.Collectors;
 
 /**
@@ -33,8 +51,6 @@ import java.util.stream.Collectors;
 public class ProductServiceImpl implements ProductService {
     @Resource
     private ProductRepository productRepository;
-    @Resource
-    private AccountService accountService;
 
     @Resource
     private SpecificationRepository specificationRepository;
@@ -43,56 +59,125 @@ public class ProductServiceImpl implements ProductService {
     private StockpileRepository stockpileRepository;
 
     @Resource
-    private CartRepository cartRepository;
+    private OrderRepository orderRepository;
 
     @Resource
-    private OrderRepository orderRepository;
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ImageStorageFactory storageFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     @Resource
-    private CartOrderRelationRepository cartOrderRelationRepository;
+    private DomainEventBus domainEventBus;
 
     @Resource
-    private ShopRepository shopRepository;
+    private StockAvailabilityCache stockAvailabilityCache;
 
     @Resource
-    private MessageService messageService;
+    private FlashSaleService flashSaleService;
 
-    @Autowired
-    private ImageStorageFactory storageFactory;
+    @Resource
+    private SingleFlights singleFlights;
+
+    @Resource
+    private Caches caches;
+
+    @Resource
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${stock.availability.max-batch:500}")
+    private int availabilityMaxBatch;
 
-    private int stockpileAlert = 20;
+    @Value("${product.cache.max-entries:10000}")
+    private int cacheMaxEntries;
+
+    /**
+     * 商品读取的只读事务由合并后的执行者开启，等待同一结果的请求不占用连接
+     */
+    private TransactionTemplate readOnlyTemplate;
+
+    private SingleFlight<Boolean, List<ProductVO>> allProductLoads;
+
+    private SingleFlight<Integer, List<ProductVO>> shopProductLoads;
+
+    /**
+     * 商品详情按ID缓存，商品变化的事务提交后整体失效
+     */
+    private TwoTierCache<Integer, ProductVO> productCache;
+
+    @PostConstruct
+    public void init() {
+        readOnlyTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTemplate.setReadOnly(true);
+        allProductLoads = singleFlights.create("product.all");
+        shopProductLoads = singleFlights.create("product.byShop");
+        productCache = caches.create("product", cacheMaxEntries, ProductVO.class);
+    }
 
     /**
-     * 获取所有商品列表
+     * 获取所有商品列表；同时到达的请求合并为一次查询
      * @return 商品VO列表
      */
     @Override
     public List<ProductVO> getAllProducts() {
-        List<Product> products = productRepository.findAll();
-        return products.stream().map(this::convertToVO).collect(Collectors.toList());
+        return allProductLoads.load(Boolean.TRUE,
+                () -> readOnlyTemplate.execute(status -> convertToVOs(productRepository.findAll())));
     }
 
     /**
-     * 根据店铺ID获取商品列表
+     * 根据店铺ID获取商品列表；同一店铺同时到达的请求合并为一次查询
      * @param shopId 店铺ID
      * @return 商品VO列表
      */
     @Override
     public List<ProductVO> getProductsByShopId(int shopId) {
-        List<Product> products = productRepository.findByShopId(shopId).get();
-        return products.stream().map(this::convertToVO).collect(Collectors.toList());
+        return shopProductLoads.load(shopId,
+                () -> readOnlyTemplate.execute(status -> convertToVOs(productRepository.findByShopId(shopId))));
     }
 
     /**
-     * 根据商品ID获取商品详情
+     * 根据商品ID获取商品详情；读取两级缓存，同一商品同时未命中的请求合并为一次查询，商品不存在时都抛出同一异常
      * @param id 商品ID
      * @return 商品VO
      */
     @Override
     public ProductVO getProductById(int id) {
-        Product product = productRepository.findById(id)
-                .orElseThrow(TomatoMallException::productNotExists);
-        return convertToVO(product);
+        return productCache.get(id, key -> readOnlyTemplate.execute(status -> {
+            Product product = productRepository.findById(id)
+                    .orElseThrow(TomatoMallException::productNotExists);
+            return convertToVO(product);
+        }));
+    }
+
+    /**
+     * 商品变化的事务提交后使商品缓存失效（其他实例经失效消息同步），之后的请求也不再加入变化前开始的加载；
+     * 排在 ResourceVersions 之前，新 ETag 不会配上旧数据
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onResourceChanged(ResourceChangedEvent event) {
+        if (Arrays.asList(event.getResources()).contains(ResourceVersions.PRODUCT)) {
+            allProductLoads.forgetAll();
+            shopProductLoads.forgetAll();
+            productCache.clear();
+        }
+    }
+
+    /**
+     * 店铺商品目录变化时先于 ShopCatalogService 失效快照，重建快照的请求不会加入变化前的加载
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onShopCatalogChanged(ShopCatalogChangedEvent event) {
+        if (event.getShopId() != null) {
+            shopProductLoads.forget(event.getShopId());
+        }
     }
 
     /**
@@ -109,19 +194,29 @@ public class ProductServiceImpl implements ProductService {
         stockpile.setFrozen(0);
         stockpile.setAmount(0);
         stockpileRepository.save(stockpile);
+        eventPublisher.publishEvent(new ShopCatalogChangedEvent(newProduct.getShopId()));
+        eventPublisher.publishEvent(new ResourceChangedEvent(ResourceVersions.PRODUCT));
         return convertToVO(newProduct);
     }
 
     /**
      * 更新商品信息
+     * 必须回传读取时的 version，缺少时拒绝更新，避免不带版本号的客户端覆盖他人的修改
      * @param productVO 商品VO
      * @return 更新结果
      */
     @Override
     @Transactional
     public String updateProduct(ProductVO productVO) {
+        if (productVO.getVersion() == null) {
+            throw TomatoMallException.badRequest("更新商品必须携带读取时的 version");
+        }
         Product product = productRepository.findById(productVO.getId())
                 .orElseThrow(TomatoMallException::productNotExists);
+        // 客户端读取后已被他人修改
+        if (!productVO.getVersion().equals(product.getVersion())) {
+            throw TomatoMallException.productVersionConflict();
+        }
         String oldCover = product.getCover();
 
         if (productVO.getTitle() != null) product.setTitle(productVO.getTitle());
@@ -140,14 +235,14 @@ public class ProductServiceImpl implements ProductService {
             }
         }
 
-        if(productVO.getSpecifications() != null){
-            specificationRepository.deleteByProductId(productVO.getId());
-            List<SpecificationVO> specifications = productVO.getSpecifications();
-            for (SpecificationVO specificationVO : specifications) {
-                specificationRepository.save(specificationVO.toPO());
-            }
+        if(productVO.getSpecifications() != null
+                && syncSpecifications(product.getId(), productVO.getSpecifications())){
+            // 只改了规格时商品行本身不脏，强制递增版本号，使并发的规格修改也能被检测到
+            entityManager.lock(product, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
         }
         productRepository.save(product);
+        eventPublisher.publishEvent(new ShopCatalogChangedEvent(product.getShopId()));
+        eventPublisher.publishEvent(new ResourceChangedEvent(ResourceVersions.PRODUCT));
         return "更新成功";
     }
 
@@ -167,6 +262,9 @@ public class ProductServiceImpl implements ProductService {
         stockpileRepository.deleteByProductId(id);
         specificationRepository.deleteByProductId(id);
         productRepository.delete(product);
+        eventPublisher.publishEvent(new ShopCatalogChangedEvent(product.getShopId()));
+        // 删除商品的触发器会级联删除相关广告
+        eventPublisher.publishEvent(new ResourceChangedEvent(ResourceVersions.PRODUCT, ResourceVersions.ADVERTISEMENT));
 
         return "删除成功";
     }
@@ -182,7 +280,34 @@ public class ProductServiceImpl implements ProductService {
         if (stockpile == null) {
             throw TomatoMallException.productNotExists();
         }
-        return stockpile.toVO();
+        StockpileVO vo = stockpile.toVO();
+        if (stockpile.getFlashBuckets() > 0) {
+            // 抢购中 stockpiles.amount 是定期回写的合计，直接返回各桶当前合计
+            vo.setAmount(flashSaleService.currentTotal(id));
+        }
+        return vo;
+    }
+
+    /**
+     * 批量查询商品可售库存，走短时缓存，未命中的商品合并为一次查询
+     * @param productIds 商品ID
+     * @return 按请求顺序排列的库存，不存在的商品不返回
+     */
+    @Override
+    public List<StockAvailabilityVO> getStockAvailability(Collection<Integer> productIds) {
+        Set<Integer> distinct = new LinkedHashSet<>(productIds);
+        if (distinct.size() > availabilityMaxBatch) {
+            throw TomatoMallException.badRequest("一次最多查询 " + availabilityMaxBatch + " 个商品的库存");
+        }
+        Map<Integer, Integer> amounts = stockAvailabilityCache.getAmounts(distinct);
+        List<StockAvailabilityVO> result = new ArrayList<>(amounts.size());
+        for (Integer productId : distinct) {
+            Integer amount = amounts.get(productId);
+            if (amount != null) {
+                result.add(new StockAvailabilityVO(productId, amount));
+            }
+        }
+        return result;
     }
 
     /**
@@ -192,37 +317,22 @@ public class ProductServiceImpl implements ProductService {
      * @return 更新结果
      */
     @Override
+    @Transactional
     public String updateStockpile(int id,int amount) {
         Stockpile stockpile = stockpileRepository.findByProductId(id);
         if (stockpile == null) {
             throw TomatoMallException.productNotExists();
         }
+        if (stockpile.getFlashBuckets() > 0) {
+            // 抢购中按新的总量重新平分到各桶
+            flashSaleService.setAmount(id, amount);
+        }
         stockpile.setAmount(amount);
         stockpileRepository.save(stockpile);
-        if (amount <= stockpileAlert){
-            Optional<Product> opProduct = productRepository.findById(stockpile.getProductId());
-            if (!opProduct.isPresent()){
-                throw TomatoMallException.productNotExists();
-            }
-            Product product = opProduct.get();
-            Optional<Shop> opShop = shopRepository.findById(product.getShopId());
-            if (!opShop.isPresent()){
-                throw TomatoMallException.shopNotExists();
-            }
-            Shop shop = opShop.get();
-            int ownerId = shop.getOwnerId();
-
-            MessageVO messageVO = new MessageVO();
-            messageVO.setContent("LOW_INVENTORY");
-            messageVO.setIsRead(false);
-            // 找到管理员Id
-            int adminId =  accountService.fetchAdminId();
-            messageVO.setFromUser(adminId);
-            messageVO.setToUser(ownerId);
-            messageVO.setCreatedTime(LocalDateTime.now());
-
-            messageService.sendMessage(messageVO);
-        }
+        // 低库存提醒等由 StockChangedEvent 的订阅者在事务提交后异步处理；本实例的库存缓存在提交后立即更新
+        StockChangedEvent event = new StockChangedEvent(id, amount);
+        domainEventBus.publish(event);
+        eventPublisher.publishEvent(event);
         return "调整库存成功";
     }
 
@@ -233,9 +343,9 @@ public class ProductServiceImpl implements ProductService {
      * @return 增加结果
      */
     @Override
+    @Transactional
     public String increaseStockpile(int id, int amount){
-        StockpileVO stockpileVO = getStockpile(id);
-        updateStockpile(id, stockpileVO.getAmount()+amount);
+        updateStockpile(id, currentAmount(id) + amount);
         return "添加库存成功";
     }
 
@@ -246,56 +356,169 @@ public class ProductServiceImpl implements ProductService {
      * @return 减少结果
      */
     @Override
+    @Transactional
     public String reduceStockpile(int id, int amount){
-        StockpileVO stockpileVO = getStockpile(id);
-        updateStockpile(id, stockpileVO.getAmount()-amount);
+        updateStockpile(id, currentAmount(id) - amount);
         return "减少库存成功";
     }
 
     /**
      * 根据订单减少商品库存
+     * 按下单时写入的订单明细扣减，与购物车项是否已被删除无关；有商品库存不足时整单回滚。
+     * 普通商品一条条件更新全部扣完，开启抢购的商品从分桶扣减。两条路径都按数据库中的当前值判断是否开启抢购，
+     * 这里读到的开关状态过时只会让扣减失败后重试，不会重复扣或超卖
      * @param orderIdStr 订单ID字符串
      * @return 结果
      */
     @Override
+    @Transactional
     public String reduceStockpileByOrder(String orderIdStr) {
         int orderId = Integer.parseInt(orderIdStr);
 
-        // 1. 获取订单下所有 cartItem 关联
-        List<CartOrderRelation> relationList = cartOrderRelationRepository.findByOrderId(orderId);
-
-        // 2. 遍历每一项关系
-        for (CartOrderRelation relation : relationList) {
-            Integer cartItemId = relation.getCartItemId();
-
+        Map<Integer, Integer> quantities = new TreeMap<>();
+        for (OrderItem item : orderItemRepository.findByOrderId(orderId)) {
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        if (quantities.isEmpty()) {
+            return "订单库存已全部扣除成功";
+        }
+        // 商品ID -> 分桶数，按商品ID排序扣减，多个抢购商品的订单之间加锁顺序一致
+        Map<Integer, Integer> flashSales = new TreeMap<>();
+        for (Stockpile stockpile : stockpileRepository.findByProductIdIn(quantities.keySet())) {
+            if (stockpile.getFlashBuckets() > 0) {
+                flashSales.put(stockpile.getProductId(), stockpile.getFlashBuckets());
+            }
+        }
 
-            // 3. 查找对应 Cart
-            Optional<Cart> opCart = cartRepository.findById(cartItemId);
-            if (!opCart.isPresent()) {
-                throw new RuntimeException("找不到 cartItemId = " + cartItemId);
+        Set<Integer> ordinary = new HashSet<>(quantities.keySet());
+        ordinary.removeAll(flashSales.keySet());
+        if (!ordinary.isEmpty()) {
+            int updated = stockpileRepository.deductByOrder(orderId, ordinary);
+            if (updated != ordinary.size()) {
+                throw new RuntimeException("库存不足或商品不存在，orderId = " + orderId);
             }
-            Cart cart = opCart.get();
+        }
+        if (!flashSales.isEmpty()) {
+            int accountId = orderRepository.findById(orderId).map(Order::getAccountId).orElse(orderId);
+            for (Map.Entry<Integer, Integer> flashSale : flashSales.entrySet()) {
+                flashSaleService.deduct(flashSale.getKey(), flashSale.getValue(), accountId, quantities.get(flashSale.getKey()));
+            }
+        }
 
-            // 4. 查找对应 Product
-            Integer productId = cart.getProductId();
-            Stockpile stockpile = stockpileRepository.findByProductId(productId);
-            if (stockpile == null){
-                throw new RuntimeException("找不到 stockpile 的 productId = " + productId);
+        List<StockChangedEvent> events = new ArrayList<>();
+        if (!ordinary.isEmpty()) {
+            for (Stockpile stockpile : stockpileRepository.findByProductIdIn(ordinary)) {
+                events.add(new StockChangedEvent(stockpile.getProductId(), stockpile.getAmount()));
             }
+        }
+        for (Integer productId : flashSales.keySet()) {
+            events.add(new StockChangedEvent(productId, flashSaleService.currentTotal(productId)));
+        }
+        for (StockChangedEvent event : events) {
+            domainEventBus.publish(event);
+            eventPublisher.publishEvent(event);
+        }
 
-            // 5. 扣除库存
-            int newStock = stockpile.getAmount() - cart.getQuantity();
-            if (newStock < 0) {
-                throw new RuntimeException("库存不足，productId = " + productId);
+        return "订单库存已全部扣除成功";
+    }
+
+    /**
+     * 调整库存前的当前库存；抢购中锁住各桶取合计，调整完成前不会再被扣减
+     */
+    private int currentAmount(int id) {
+        Stockpile stockpile = stockpileRepository.findByProductId(id);
+        if (stockpile == null) {
+            throw TomatoMallException.productNotExists();
+        }
+        return stockpile.getFlashBuckets() > 0 ? flashSaleService.lockTotal(id) : stockpile.getAmount();
+    }
+
+    /**
+     * 按差异同步商品规格：新增的插入、变化的更新、移除的删除，未变化的行不动
+     * 请求中的规格优先按ID匹配，没有ID时按规格名称匹配已有行，从而保持规格ID稳定
+     * @param productId 商品ID
+     * @param specifications 新的规格列表
+     * @return 规格是否有变化
+     */
+    private boolean syncSpecifications(Integer productId, List<SpecificationVO> specifications) {
+        List<Specification> existing = specificationRepository.findByProductId(productId);
+        Map<Integer, Specification> unmatched = new LinkedHashMap<>();
+        for (Specification spec : existing) {
+            unmatched.put(spec.getSpecificationId(), spec);
+        }
+
+        List<SpecificationVO> pending = new ArrayList<>();
+        List<Specification> toInsert = new ArrayList<>();
+        boolean changed = false;
+
+        for (SpecificationVO specVO : specifications) {
+            Specification matched = specVO.getId() == null ? null : unmatched.remove(specVO.getId());
+            if (matched == null) {
+                pending.add(specVO);
+            } else {
+                changed |= apply(matched, specVO);
+            }
+        }
+        for (SpecificationVO specVO : pending) {
+            Specification matched = null;
+            for (Specification spec : unmatched.values()) {
+                if (spec.getItem().equals(specVO.getItem())) {
+                    matched = spec;
+                    break;
+                }
+            }
+            if (matched != null) {
+                unmatched.remove(matched.getSpecificationId());
+                changed |= apply(matched, specVO);
+            } else {
+                Specification spec = new Specification();
+                spec.setItem(specVO.getItem());
+                spec.setValue(specVO.getValue());
+                spec.setProductId(productId);
+                toInsert.add(spec);
             }
-            this.updateStockpile(stockpile.getStockpileId(), newStock);
+        }
 
+        // 修改过的规格是受管实体，由事务提交时统一 flush
+        if (!toInsert.isEmpty()) {
+            specificationRepository.saveAll(toInsert);
         }
+        if (!unmatched.isEmpty()) {
+            specificationRepository.deleteAllInBatch(unmatched.values());
+        }
+        return changed || !toInsert.isEmpty() || !unmatched.isEmpty();
+    }
 
-        return "订单库存已全部扣除成功";
+    private boolean apply(Specification spec, SpecificationVO specVO) {
+        if (Objects.equals(spec.getItem(), specVO.getItem()) && Objects.equals(spec.getValue(), specVO.getValue())) {
+            return false;
+        }
+        spec.setItem(specVO.getItem());
+        spec.setValue(specVO.getValue());
+        return true;
+    }
+
+    /**
+     * 批量转换商品，所有商品的规格只用一次查询取出
+     */
+    private List<ProductVO> convertToVOs(List<Product> products) {
+        if (products.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Integer> ids = products.stream().map(Product::getId).collect(Collectors.toList());
+        Map<Integer, List<Specification>> specsByProduct = specificationRepository.findByProductIdIn(ids).stream()
+                .collect(Collectors.groupingBy(Specification::getProductId));
+        return products.stream()
+                .map(product -> convertToVO(product, specsByProduct.getOrDefault(product.getId(), Collections.emptyList())))
+                .collect(Collectors.toList());
     }
 
     private ProductVO convertToVO(Product product) {
+        // 通过 productId 查询规格信息
+        return convertToVO(product, specificationRepository.findByProductId(product.getId()));
+    }
+
+    private ProductVO convertToVO(Product product, List<Specification> specs) {
         ProductVO productVO = new ProductVO();
         productVO.setId(product.getId());
         productVO.setTitle(product.getTitle());
@@ -304,10 +527,9 @@ public class ProductServiceImpl implements ProductService {
         productVO.setDescription(product.getDescription());
         productVO.setCover(product.getCover());
         productVO.setDetail(product.getDetail());
+        productVO.setVersion(product.getVersion());
 
-        // 通过 productId 查询规格信息，并转换成 VO
-        List<Specification> specs = specificationRepository.findByProductId(product.getId());
-
+        // 规格信息转换成 VO
         if(!specs.isEmpty()) {
             List<SpecificationVO> specVOs = specs.stream()
                     .map(Specification::toVO)
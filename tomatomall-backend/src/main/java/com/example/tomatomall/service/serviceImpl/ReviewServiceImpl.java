@@ -1,9 +1,12 @@
 package com.example.tomatomall.service.serviceImpl;
 
+import com.example.tomatomall.event.ReviewAddedEvent;
+import com.example.tomatomall.event.ReviewDeletedEvent;
 import com.example.tomatomall.exception.TomatoMallException;
 import com.example.tomatomall.po.Review;
 import com.example.tomatomall.repository.ReviewRepository;
 import com.example.tomatomall.service.ReviewService;
+import com.example.tomatomall.util.DomainEventBus;
 import com.example.tomatomall.vo.ReviewVO;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -15,6 +18,7 @@ import java.util.stream.Collectors;
 /**
  * 评价服务实现类
  * 实现商品和店铺评价的增删查等功能
+ * 商品、店铺评分由 ReviewRatingSubscriber 收到评价事件后异步重算，并让相关缓存失效
  *
  * @author TomatoMall Team
  * @version 1.0
@@ -26,6 +30,9 @@ public class ReviewServiceImpl implements ReviewService {
     @Resource
     private ReviewRepository reviewRepository;
 
+    @Resource
+    private DomainEventBus domainEventBus;
+
     /**
      * 添加商品评价
      * @param reviewVO 评价VO
@@ -37,6 +44,7 @@ public class ReviewServiceImpl implements ReviewService {
         Review review = reviewVO.toPO();
         review.setType(Review.ReviewType.PRODUCT);
         review = reviewRepository.save(review);
+        domainEventBus.publish(new ReviewAddedEvent(review.getId(), review.getType().name(), review.getProductId(), review.getShopId()));
         return "succ";
     }
 
@@ -51,6 +59,7 @@ public class ReviewServiceImpl implements ReviewService {
         Review review = reviewVO.toPO();
         review.setType(Review.ReviewType.SHOP);
         review = reviewRepository.save(review);
+        domainEventBus.publish(new ReviewAddedEvent(review.getId(), review.getType().name(), review.getProductId(), review.getShopId()));
         return "succ";
     }
 
@@ -60,6 +69,7 @@ public class ReviewServiceImpl implements ReviewService {
      * @return 评价VO列表
      */
     @Override
+    @Transactional(readOnly = true)
     public List<ReviewVO> getProductReviews(Integer productId) {
         List<Review> reviews = reviewRepository.findByProductId(productId);
         return reviews.stream()
@@ -73,6 +83,7 @@ public class ReviewServiceImpl implements ReviewService {
      * @return 评价VO列表
      */
     @Override
+    @Transactional(readOnly = true)
     public List<ReviewVO> getShopReviews(Integer shopId) {
         List<Review> reviews = reviewRepository.findByShopId(shopId);
         return reviews.stream()
@@ -91,6 +102,7 @@ public class ReviewServiceImpl implements ReviewService {
         Review review = reviewRepository.findById(reviewId)
                 .orElseThrow(TomatoMallException::reviewNotExists);
         reviewRepository.delete(review);
+        domainEventBus.publish(new ReviewDeletedEvent(review.getId(), review.getType().name(), review.getProductId(), review.getShopId()));
         return "评价删除成功";
     }
 
@@ -0,0 +1,82 @@
+package com.example.tomatomall.service.serviceImpl;
+
+import com.example.tomatomall.event.ShopCatalogChangedEvent;
+import com.example.tomatomall.service.ProductService;
+import com.example.tomatomall.service.ShopCatalogService;
+import com.example.tomatomall.util.JsonSnapshot;
+import com.example.tomatomall.util.cache.Caches;
+import com.example.tomatomall.util.cache.TwoTierCache;
+import com.example.tomatomall.vo.Response;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
+/**
+ * 店铺商品目录快照服务
+ * 每个店铺的商品列表（完整的 Response JSON）序列化后保存在内存中，
+ * 店铺主页直接返回快照字节并带上 ETag；店铺内商品变化时在事务提交后丢弃快照，
+ * 下一次访问时重新构建。快照是序列化好的字节，只放在本地层，其他实例经失效消息同步丢弃。
+ *
+ * @author TomatoMall Team
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+public class ShopCatalogServiceImpl implements ShopCatalogService {
+
+    @Resource
+    private ProductService productService;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    @Resource
+    private Caches caches;
+
+    @Value("${catalog.snapshot.max-shops:1000}")
+    private int maxShops;
+
+    @Value("${http.compression.min-response-size:1024}")
+    private int gzipMinSize;
+
+    private TwoTierCache<Integer, JsonSnapshot> snapshots;
+
+    @PostConstruct
+    public void init() {
+        snapshots = caches.createLocal("catalog", maxShops);
+    }
+
+    /**
+     * 获取店铺商品目录快照
+     * @param shopId 店铺ID
+     * @return 快照
+     */
+    @Override
+    public JsonSnapshot getCatalog(int shopId) {
+        return snapshots.get(shopId, id ->
+                JsonSnapshot.of(objectMapper, Response.buildSuccess(productService.getProductsByShopId(id)), gzipMinSize));
+    }
+
+    /**
+     * 丢弃店铺的目录快照
+     * @param shopId 店铺ID
+     */
+    @Override
+    public void evict(Integer shopId) {
+        snapshots.evict(shopId);
+    }
+
+    /**
+     * 商品变化的事务提交后再失效，避免并发读取把未提交前的旧数据重新放入快照
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onShopCatalogChanged(ShopCatalogChangedEvent event) {
+        if (event.getShopId() != null) {
+            evict(event.getShopId());
+        }
+    }
+}
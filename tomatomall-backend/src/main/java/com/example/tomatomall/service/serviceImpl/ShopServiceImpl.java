@@ -1,18 +1,40 @@
 package com.example.tomatomall.service.serviceImpl;
 
+import com.example.tomatomall.event.ResourceChangedEvent;
+import com.example.tomatomall.event.ShopChangedEvent;
 import com.example.tomatomall.po.Account;
 import com.example.tomatomall.po.Shop;
 import com.example.tomatomall.repository.ShopRepository;
 import com.example.tomatomall.service.ShopService;
+import com.example.tomatomall.util.ResourceVersions;
 import com.example.tomatomall.util.SecurityUtil;
+import com.example.tomatomall.util.SingleFlight;
+import com.example.tomatomall.util.SingleFlights;
+import com.example.tomatomall.util.cache.Caches;
+import com.example.tomatomall.util.cache.TwoTierCache;
+import com.example.tomatomall.vo.PageVO;
 import com.example.tomatomall.vo.ShopVO;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 import com.example.tomatomall.exception.TomatoMallException;
 
 
+import javax.annotation.PostConstruct;
 import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Predicate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -23,6 +45,8 @@ import static com.example.tomatomall.enums.RoleEnum.*;
 /**
  * 店铺服务实现类
  * 实现店铺的增删改查等功能
+ * 店铺详情按ID放在两级缓存中，修改、删除或评分变化的事务提交后失效（其他实例经失效消息同步）；
+ * 缓存未命中和店铺列表的同时到达的相同请求合并为一次查询
  *
  * @author TomatoMall Team
  * @version 1.0
@@ -36,16 +60,87 @@ public class ShopServiceImpl implements ShopService {
     @Autowired
     private SecurityUtil securityUtil;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private SingleFlights singleFlights;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private Caches caches;
+
+    @Value("${shop.cache.max-entries:10000}")
+    private int cacheMaxEntries;
+
+    @Value("${shop.page.max-size:100}")
+    private int pageMaxSize;
+
+    private TwoTierCache<Integer, ShopVO> shopCache;
+
     /**
-     * 获取所有店铺列表
+     * 只读事务由合并后的执行者开启，等待同一结果的请求不占用连接
+     */
+    private TransactionTemplate readOnlyTemplate;
+
+    private SingleFlight<Boolean, List<ShopVO>> allShopLoads;
+
+    @PostConstruct
+    public void init() {
+        shopCache = caches.create("shop", cacheMaxEntries, ShopVO.class);
+        readOnlyTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTemplate.setReadOnly(true);
+        allShopLoads = singleFlights.create("shop.all");
+    }
+
+    /**
+     * 获取所有店铺列表；同时到达的请求合并为一次查询
      * @return 店铺VO列表
      */
     @Override
     public List<ShopVO> getAllShops() {
-        List<Shop> shops = shopRepository.findAll();
-        return shops.stream()
-                .map(Shop::toVO)
-                .collect(Collectors.toList());
+        return allShopLoads.load(Boolean.TRUE, () -> readOnlyTemplate.execute(status ->
+                shopRepository.findAll().stream()
+                        .map(Shop::toVO)
+                        .collect(Collectors.toList())));
+    }
+
+    /**
+     * 分页查询店铺
+     * @param isValid 按是否有效过滤，为空不过滤
+     * @param namePrefix 店铺名前缀，为空不过滤
+     * @param sort rate 按评分降序，否则按ID升序
+     * @param page 页码，从0开始
+     * @param size 每页条数
+     * @return 分页结果
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public PageVO<ShopVO> searchShops(Integer isValid, String namePrefix, String sort, int page, int size) {
+        if (page < 0 || size <= 0 || size > pageMaxSize) {
+            throw TomatoMallException.badRequest("分页参数不合法，每页最多" + pageMaxSize + "条");
+        }
+        Specification<Shop> spec = (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (isValid != null) {
+                predicates.add(cb.equal(root.get("isValid"), isValid));
+            }
+            if (namePrefix != null && !namePrefix.isEmpty()) {
+                // 只做前缀匹配，才能用上 name 上的索引
+                predicates.add(cb.like(root.get("name"), escapeLike(namePrefix) + "%", '\\'));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+        Sort order = "rate".equals(sort)
+                ? Sort.by(Sort.Order.desc("rate"), Sort.Order.desc("id"))
+                : Sort.by("id");
+        return PageVO.of(shopRepository.findAll(spec, PageRequest.of(page, size, order)), Shop::toVO);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 
     /**
@@ -79,6 +174,7 @@ public class ShopServiceImpl implements ShopService {
             shopVO.setIsValid(0);
             Shop shop = shopVO.toPO();
             shopRepository.save(shop);
+            eventPublisher.publishEvent(new ResourceChangedEvent(ResourceVersions.SHOP));
             return "创建成功";
         } catch (Exception e) {
             return "创建失败";
@@ -92,11 +188,33 @@ public class ShopServiceImpl implements ShopService {
      */
     @Override
     public ShopVO getShopById(Integer shopId) {
-        Optional<Shop> opShop = shopRepository.findById(shopId);
-        if (!opShop.isPresent()) {
-            throw TomatoMallException.shopNotExists();
+        return shopCache.get(shopId, id -> {
+            Optional<Shop> opShop = shopRepository.findById(id);
+            if (!opShop.isPresent()) {
+                throw TomatoMallException.shopNotExists();
+            }
+            return opShop.get().toVO();
+        });
+    }
+
+    /**
+     * 店铺变化的事务提交后失效缓存；排在 ResourceVersions 之前，新 ETag 生效时缓存已经失效
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onShopChanged(ShopChangedEvent event) {
+        shopCache.evict(event.getShopId());
+    }
+
+    /**
+     * 店铺新增或变化的事务提交后，之后的店铺列表请求不再加入变化前开始的加载
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onResourceChanged(ResourceChangedEvent event) {
+        if (Arrays.asList(event.getResources()).contains(ResourceVersions.SHOP)) {
+            allShopLoads.forgetAll();
         }
-        return opShop.get().toVO();
     }
 
     /**
@@ -126,6 +244,8 @@ public class ShopServiceImpl implements ShopService {
             if (shopVO.getIconUrl() != null) shop.setIconUrl(shopVO.getIconUrl());
             if (shopVO.getIsValid() != null) shop.setIsValid(shopVO.getIsValid());
             shopRepository.save(shop);
+            eventPublisher.publishEvent(new ShopChangedEvent(shop.getId()));
+            eventPublisher.publishEvent(new ResourceChangedEvent(ResourceVersions.SHOP));
             return "更新成功";
         } catch (Exception e) {
             throw new RuntimeException("更新失败");
@@ -146,6 +266,8 @@ public class ShopServiceImpl implements ShopService {
             }
             Shop shop = opShop.get();
             shopRepository.delete(shop);
+            eventPublisher.publishEvent(new ShopChangedEvent(shop.getId()));
+            eventPublisher.publishEvent(new ResourceChangedEvent(ResourceVersions.SHOP));
             return "删除成功";
         } catch (Exception e) {
             throw new RuntimeException("删除失败");
@@ -0,0 +1,121 @@
+package com.example.tomatomall.util;
+
+import com.example.tomatomall.enums.RoleEnum;
+import com.example.tomatomall.event.AccountsChangedEvent;
+import com.example.tomatomall.po.Account;
+import com.example.tomatomall.repository.AccountRepository;
+import com.example.tomatomall.util.cache.Caches;
+import com.example.tomatomall.util.cache.TwoTierCache;
+import com.example.tomatomall.vo.CacheStatsVO;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 账户缓存
+ * 登录拦截器每次请求都要按ID取账户校验 token，账户信息又很少变化，
+ * 因此按ID和用户名各维护一个两级缓存，管理员ID单独缓存；修改后其他实例经失效消息同步。
+ * 缓存中保存的是副本，取出时也返回副本，调用方修改返回的对象不会影响缓存；
+ * 所有修改账户的路径在保存后都必须调用 evict。
+ *
+ * @author TomatoMall Team
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class AccountCache {
+
+    private static final String ADMIN = "admin";
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @Autowired
+    Caches caches;
+
+    @Value("${account.cache.max-entries:10000}")
+    private int maxEntries;
+
+    private TwoTierCache<Integer, Account> byId;
+
+    private TwoTierCache<String, Account> byUsername;
+
+    private TwoTierCache<String, Integer> adminId;
+
+    @PostConstruct
+    public void init() {
+        byId = caches.create("account.byId", maxEntries, Account.class);
+        byUsername = caches.create("account.byUsername", maxEntries, Account.class);
+        adminId = caches.create("account.adminId", 1, Integer.class);
+    }
+
+    /**
+     * 按ID获取账户
+     * @param id 账户ID
+     * @return 账户副本，不存在时返回 null
+     */
+    public Account getById(Integer id) {
+        return copyOf(byId.get(id, key -> accountRepository.findById(key).map(AccountCache::copyOf).orElse(null)));
+    }
+
+    /**
+     * 按用户名获取账户
+     * @param username 用户名
+     * @return 账户副本，不存在时返回 null
+     */
+    public Account getByUsername(String username) {
+        return copyOf(byUsername.get(username, key -> copyOf(accountRepository.findByUsername(key))));
+    }
+
+    /**
+     * 获取管理员ID
+     * @return 管理员ID
+     */
+    public Integer getAdminId() {
+        return adminId.get(ADMIN, key -> accountRepository.findByRole(RoleEnum.admin).getId());
+    }
+
+    /**
+     * 账户修改后使其缓存失效；角色可能变化，管理员ID一并失效
+     * @param account 被修改的账户
+     */
+    public void evict(Account account) {
+        byId.evict(account.getId());
+        if (account.getUsername() != null) {
+            byUsername.evict(account.getUsername());
+        }
+        adminId.clear();
+    }
+
+    /**
+     * 批量修改的事务提交后使相关账户失效
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAccountsChanged(AccountsChangedEvent event) {
+        byId.evictAll(event.getIds());
+        byUsername.evictAll(event.getUsernames());
+        adminId.clear();
+    }
+
+    /**
+     * @return 按ID、按用户名两个索引的命中统计
+     */
+    public List<CacheStatsVO> stats() {
+        return Arrays.asList(byId.stats(), byUsername.stats());
+    }
+
+    private static Account copyOf(Account account) {
+        if (account == null) {
+            return null;
+        }
+        Account copy = new Account();
+        BeanUtils.copyProperties(account, copy);
+        return copy;
+    }
+}
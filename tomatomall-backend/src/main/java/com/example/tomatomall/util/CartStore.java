@@ -0,0 +1,496 @@
+package com.example.tomatomall.util;
+
+import com.example.tomatomall.exception.TomatoMallException;
+import com.example.tomatomall.po.CartDocument;
+import com.example.tomatomall.repository.CartDocumentRepository;
+import com.example.tomatomall.vo.CacheStatsVO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 购物车存储
+ * 每个用户的整个购物车是 cart_documents 中的一行，编码为 下一个行ID|行ID:商品ID:数量;...，
+ * 行ID只在该用户的购物车内唯一，删除后不复用。同一商品再次加购时合并到已有的行。
+ *
+ * 活跃用户的购物车保存在容量有限的 LRU 中，读写都在内存完成；修改后标记为待写回，
+ * 由后台线程每 cart.write-behind.flush-ms 写回一次，关闭时全部写回。待写回的购物车被 LRU 淘汰后仍保留到写回为止。
+ * 同一用户的并发请求（多个标签页）在该用户的购物车对象上加锁串行执行。
+ *
+ * 写回按 version 比较并交换。登录态保存在实例内存中，同一用户的请求总落在同一实例，
+ * 但支付事件可能由任一实例投递，因此版本冲突时读取库中的版本与本地修改三方合并后重试：
+ * 以上次读取或写回的内容为基准，本地删除的行删除，本地新增或改过数量的行以本地为准，其余以库中为准。
+ * 连续冲突时修改仍保留为待写回，下一周期再合并重试；支付事件的 removeAndFlush 则抛出异常，由投递回滚后重试。
+ * 没有待写回修改的购物车超过 cart.hot.revalidate-seconds 后，下次读取时核对一次版本，取回其他实例的修改。
+ *
+ * 实例崩溃会丢失最近一个写回周期内的购物车修改；订单与库存不经过这里。
+ *
+ * @author TomatoMall Team
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class CartStore {
+
+    private static final Logger log = LoggerFactory.getLogger(CartStore.class);
+
+    private static final int LOAD_LOCK_STRIPES = 64;
+
+    private static final int MAX_FLUSH_ATTEMPTS = 3;
+
+    @Resource
+    private CartDocumentRepository cartDocumentRepository;
+
+    @Resource
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${cart.hot.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${cart.hot.revalidate-seconds:30}")
+    private long revalidateSeconds;
+
+    @Value("${cart.write-behind.flush-ms:1000}")
+    private long flushMillis;
+
+    private LruCache<Integer, Entry> hot;
+
+    /**
+     * 有未写回修改的购物车
+     */
+    private final ConcurrentHashMap<Integer, Entry> dirty = new ConcurrentHashMap<>();
+
+    /**
+     * 同一用户只从库中加载一次
+     */
+    private final Object[] loadLocks = new Object[LOAD_LOCK_STRIPES];
+
+    /**
+     * 写回使用独立事务：由支付事件触发时，不随事件投递事务回滚，内存与库中的版本号始终一致
+     */
+    private TransactionTemplate writeTemplate;
+
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void init() {
+        hot = new LruCache<>(maxEntries);
+        for (int i = 0; i < LOAD_LOCK_STRIPES; i++) {
+            loadLocks[i] = new Object();
+        }
+        writeTemplate = new TransactionTemplate(transactionManager);
+        writeTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cart-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flushAll, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (flusher != null) {
+            flusher.shutdown();
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        flushAll();
+    }
+
+    /**
+     * 获取购物车的所有行
+     * @param accountId 用户ID
+     * @return 按加入顺序排列的行
+     */
+    public List<Line> getLines(Integer accountId) {
+        Entry entry = entry(accountId);
+        synchronized (entry) {
+            return new ArrayList<>(entry.lines.values());
+        }
+    }
+
+    /**
+     * 获取购物车中的一行
+     * @param accountId 用户ID
+     * @param lineId 行ID（购物车项ID）
+     * @return 行，不存在时返回 null
+     */
+    public Line getLine(Integer accountId, Integer lineId) {
+        Entry entry = entry(accountId);
+        synchronized (entry) {
+            return entry.lines.get(lineId);
+        }
+    }
+
+    /**
+     * 加购；购物车中已有该商品时合并数量
+     * @param accountId 用户ID
+     * @param productId 商品ID
+     * @param quantity 加购数量
+     * @param limit 合并后数量上限（当前库存）
+     * @return 加购后的行
+     * @throws TomatoMallException 合并后超过库存
+     */
+    public Line add(Integer accountId, Integer productId, int quantity, int limit) {
+        Entry entry = entry(accountId);
+        synchronized (entry) {
+            Line existing = findByProduct(entry.lines, productId);
+            int merged = existing == null ? quantity : existing.quantity + quantity;
+            if (merged > limit) {
+                throw TomatoMallException.overStock();
+            }
+            Line line = new Line(existing == null ? entry.nextLineId++ : existing.lineId, productId, merged);
+            entry.lines.put(line.lineId, line);
+            markDirty(entry);
+            return line;
+        }
+    }
+
+    /**
+     * 修改一行的数量
+     * @return 行不存在时返回 false
+     */
+    public boolean setQuantity(Integer accountId, Integer lineId, int quantity) {
+        Entry entry = entry(accountId);
+        synchronized (entry) {
+            Line line = entry.lines.get(lineId);
+            if (line == null) {
+                return false;
+            }
+            entry.lines.put(lineId, new Line(lineId, line.productId, quantity));
+            markDirty(entry);
+            return true;
+        }
+    }
+
+    /**
+     * 删除若干行
+     * @return 实际删除的行数
+     */
+    public int remove(Integer accountId, Collection<Integer> lineIds) {
+        Entry entry = entry(accountId);
+        synchronized (entry) {
+            return removeLines(entry, lineIds);
+        }
+    }
+
+    /**
+     * 删除若干行并立即写回；供后台线程（支付事件投递）调用，调用返回时删除已落库
+     * @return 实际删除的行数
+     * @throws ConcurrencyFailureException 连续版本冲突未能写回；删除仍保留在待写回的购物车中，调用方回滚后重试
+     */
+    public int removeAndFlush(Integer accountId, Collection<Integer> lineIds) {
+        Entry entry = entry(accountId);
+        synchronized (entry) {
+            int removed = removeLines(entry, lineIds);
+            if (!flush(entry)) {
+                throw new ConcurrencyFailureException("购物车写回连续版本冲突，accountId = " + accountId);
+            }
+            return removed;
+        }
+    }
+
+    public CacheStatsVO stats() {
+        return CacheStatsVO.of("cart.hot", hot);
+    }
+
+    /**
+     * 写回所有待写回的购物车；单个购物车失败不影响其他购物车，留到下一周期重试
+     */
+    public void flushAll() {
+        for (Entry entry : new ArrayList<>(dirty.values())) {
+            try {
+                flush(entry);
+            } catch (RuntimeException e) {
+                log.warn("购物车写回失败 (accountId={}): {}", entry.accountId, e.toString());
+            }
+        }
+    }
+
+    private int removeLines(Entry entry, Collection<Integer> lineIds) {
+        int removed = 0;
+        for (Integer lineId : lineIds) {
+            if (entry.lines.remove(lineId) != null) {
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            markDirty(entry);
+        }
+        return removed;
+    }
+
+    private Entry entry(Integer accountId) {
+        Entry entry = cached(accountId);
+        if (entry != null && !entry.needsRevalidation(revalidateSeconds)) {
+            return entry;
+        }
+        synchronized (loadLocks[Math.floorMod(accountId, LOAD_LOCK_STRIPES)]) {
+            entry = cached(accountId);
+            if (entry == null) {
+                entry = new Entry(accountId);
+                entry.reset(cartDocumentRepository.findSnapshot(accountId));
+            } else {
+                revalidate(entry);
+            }
+            hot.put(accountId, entry);
+            return entry;
+        }
+    }
+
+    private Entry cached(Integer accountId) {
+        Entry entry = hot.get(accountId);
+        // 被 LRU 淘汰但还没写回的购物车
+        return entry != null ? entry : dirty.get(accountId);
+    }
+
+    private void revalidate(Entry entry) {
+        synchronized (entry) {
+            if (!entry.dirty && entry.needsRevalidation(revalidateSeconds)) {
+                CartDocument document = cartDocumentRepository.findSnapshot(entry.accountId);
+                long version = document == null ? 0 : document.getVersion();
+                if (version != entry.version) {
+                    entry.reset(document);
+                }
+            }
+            entry.validatedAt = System.nanoTime();
+        }
+    }
+
+    private void markDirty(Entry entry) {
+        entry.dirty = true;
+        Entry other = dirty.putIfAbsent(entry.accountId, entry);
+        if (other != null && other != entry) {
+            // 同一用户的旧缓存对象刚被淘汰、仍有请求在使用时会出现两份；这一份直接写回，版本冲突时与另一份合并
+            flush(entry);
+        }
+    }
+
+    /**
+     * 写回一个购物车
+     * @return 已写回（或本来就没有待写回的修改）返回 true；连续版本冲突时返回 false，购物车仍待写回
+     */
+    private boolean flush(Entry entry) {
+        synchronized (entry) {
+            if (!entry.dirty) {
+                dirty.remove(entry.accountId, entry);
+                return true;
+            }
+            for (int attempt = 1; ; attempt++) {
+                String items = encode(entry.nextLineId, entry.lines.values());
+                if (write(entry.accountId, entry.version, items)) {
+                    entry.version++;
+                    entry.base = new HashMap<>(entry.lines);
+                    entry.dirty = false;
+                    entry.validatedAt = System.nanoTime();
+                    dirty.remove(entry.accountId, entry);
+                    return true;
+                }
+                if (attempt == MAX_FLUSH_ATTEMPTS) {
+                    // 修改仍标记为待写回，由后台线程下一周期与库中的版本再合并重试，不丢弃用户的修改
+                    log.warn("购物车写回连续 {} 次版本冲突，留待下一周期重试 (accountId={})", attempt, entry.accountId);
+                    dirty.putIfAbsent(entry.accountId, entry);
+                    return false;
+                }
+                entry.merge(cartDocumentRepository.findSnapshot(entry.accountId));
+            }
+        }
+    }
+
+    /**
+     * 比较并交换写回
+     * @return 版本冲突时返回 false
+     */
+    private boolean write(Integer accountId, long version, String items) {
+        LocalDateTime now = LocalDateTime.now();
+        if (version == 0) {
+            try {
+                writeTemplate.executeWithoutResult(status -> cartDocumentRepository.insert(accountId, items, now));
+                return true;
+            } catch (DataIntegrityViolationException e) {
+                // 其他实例已先插入
+                return false;
+            }
+        }
+        Integer updated = writeTemplate.execute(status -> cartDocumentRepository.compareAndSet(accountId, version, items, now));
+        return updated != null && updated == 1;
+    }
+
+    private static Line findByProduct(Map<Integer, Line> lines, Integer productId) {
+        for (Line line : lines.values()) {
+            if (line.productId.equals(productId)) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    static String encode(int nextLineId, Collection<Line> lines) {
+        StringBuilder sb = new StringBuilder().append(nextLineId).append('|');
+        boolean first = true;
+        for (Line line : lines) {
+            if (!first) {
+                sb.append(';');
+            }
+            sb.append(line.lineId).append(':').append(line.productId).append(':').append(line.quantity);
+            first = false;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 解析 encode 的结果
+     * @param items 编码后的购物车，库中没有该用户的购物车时为 null
+     * @param into 按原顺序放入解析出的行
+     * @return 下一个行ID
+     */
+    static int decode(String items, Map<Integer, Line> into) {
+        if (items == null || items.isEmpty()) {
+            return 1;
+        }
+        int bar = items.indexOf('|');
+        int nextLineId = Integer.parseInt(items.substring(0, bar));
+        for (String part : items.substring(bar + 1).split(";")) {
+            if (part.isEmpty()) {
+                continue;
+            }
+            String[] fields = part.split(":");
+            Line line = new Line(Integer.valueOf(fields[0]), Integer.valueOf(fields[1]), Integer.parseInt(fields[2]));
+            into.put(line.lineId, line);
+        }
+        return nextLineId;
+    }
+
+    /**
+     * 购物车中的一行，不可变
+     */
+    public static final class Line {
+
+        private final Integer lineId;
+
+        private final Integer productId;
+
+        private final int quantity;
+
+        Line(Integer lineId, Integer productId, int quantity) {
+            this.lineId = lineId;
+            this.productId = productId;
+            this.quantity = quantity;
+        }
+
+        public Integer getLineId() {
+            return lineId;
+        }
+
+        public Integer getProductId() {
+            return productId;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        boolean sameAs(Line other) {
+            return other != null && productId.equals(other.productId) && quantity == other.quantity;
+        }
+    }
+
+    /**
+     * 一个用户的购物车，字段由自身的锁保护
+     */
+    private static final class Entry {
+
+        final Integer accountId;
+
+        /**
+         * 行ID -> 行，按加入顺序
+         */
+        LinkedHashMap<Integer, Line> lines;
+
+        /**
+         * 上次从库中读取或写回的内容，三方合并的基准
+         */
+        Map<Integer, Line> base;
+
+        /**
+         * 库中的版本；0 表示库中还没有该用户的购物车
+         */
+        long version;
+
+        int nextLineId;
+
+        boolean dirty;
+
+        volatile long validatedAt;
+
+        Entry(Integer accountId) {
+            this.accountId = accountId;
+        }
+
+        void reset(CartDocument document) {
+            lines = new LinkedHashMap<>();
+            nextLineId = decode(document == null ? null : document.getItems(), lines);
+            base = new HashMap<>(lines);
+            version = document == null ? 0 : document.getVersion();
+            dirty = false;
+            validatedAt = System.nanoTime();
+        }
+
+        boolean needsRevalidation(long revalidateSeconds) {
+            return System.nanoTime() - validatedAt > TimeUnit.SECONDS.toNanos(revalidateSeconds);
+        }
+
+        /**
+         * 与库中的版本三方合并，合并结果仍待写回
+         */
+        void merge(CartDocument remote) {
+            LinkedHashMap<Integer, Line> theirs = new LinkedHashMap<>();
+            int next = Math.max(nextLineId, decode(remote == null ? null : remote.getItems(), theirs));
+            LinkedHashMap<Integer, Line> merged = new LinkedHashMap<>(theirs);
+            for (Integer lineId : base.keySet()) {
+                if (!lines.containsKey(lineId)) {
+                    merged.remove(lineId);
+                }
+            }
+            for (Line mine : lines.values()) {
+                if (mine.sameAs(base.get(mine.lineId))) {
+                    continue;
+                }
+                Line same = findByProduct(merged, mine.productId);
+                if (same != null) {
+                    merged.put(same.lineId, new Line(same.lineId, same.productId, mine.quantity));
+                } else {
+                    // 两边各自新增的行可能分到同一个行ID
+                    Integer lineId = merged.containsKey(mine.lineId) ? next++ : mine.lineId;
+                    merged.put(lineId, new Line(lineId, mine.productId, mine.quantity));
+                }
+            }
+            lines = merged;
+            base = theirs;
+            version = remote == null ? 0 : remote.getVersion();
+            nextLineId = next;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.tomatomall.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 客户端IP解析
+ * 部署在 nginx/负载均衡之后时 getRemoteAddr() 是代理地址，所有客户端会共用一个限流桶。
+ * 只有直连来源在 client-ip.trusted-proxies 中时才读取 X-Forwarded-For：从右往左跳过可信代理，
+ * 取第一个不可信的地址；客户端自己伪造的左侧条目不会被采用。未配置可信代理时始终使用直连地址。
+ *
+ * @author TomatoMall Team
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class ClientIpResolver {
+
+    private static final String FORWARDED_FOR = "X-Forwarded-For";
+
+    @Value("${client-ip.trusted-proxies:}")
+    private String[] trustedProxies;
+
+    private Set<String> trusted;
+
+    @PostConstruct
+    public void init() {
+        trusted = new HashSet<>();
+        for (String proxy : trustedProxies) {
+            if (!proxy.trim().isEmpty()) {
+                trusted.add(proxy.trim());
+            }
+        }
+    }
+
+    /**
+     * 解析请求的真实客户端IP
+     * @param request 当前请求
+     * @return 客户端IP
+     */
+    public String resolve(HttpServletRequest request) {
+        String remote = request.getRemoteAddr();
+        if (!trusted.contains(remote)) {
+            return remote;
+        }
+        String header = request.getHeader(FORWARDED_FOR);
+        if (header == null) {
+            return remote;
+        }
+        String[] hops = header.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (hop.isEmpty()) {
+                continue;
+            }
+            if (!trusted.contains(hop)) {
+                return hop;
+            }
+            remote = hop;
+        }
+        return remote;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.tomatomall.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 简单的 CSV（RFC 4180）读写工具，
+ * 支持双引号包裹的字段、字段内的逗号/换行以及 "" 转义。
+ * readRecord 每次只读一条记录，可用于流式处理大文件。
+ */
+public class CsvUtil {
+
+    private CsvUtil() {
+    }
+
+    /**
+     * 读取一条记录
+     * @param reader 输入（调用方负责缓冲）
+     * @return 字段列表，读到文件末尾时返回 null
+     * @throws IOException IO异常
+     */
+    public static List<String> readRecord(Reader reader) throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean any = false;
+        int c;
+        while ((c = reader.read()) != -1) {
+            any = true;
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (next != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+        }
+        if (!any) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * 把字段写成一行 CSV（以换行结尾）
+     * @param fields 字段
+     * @return CSV 行
+     */
+    public static String toLine(Object... fields) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(escape(fields[i] == null ? "" : String.valueOf(fields[i])));
+        }
+        return sb.append('\n').toString();
+    }
+
+    private static String escape(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.tomatomall.util;
+
+import com.example.tomatomall.vo.PoolStatsVO;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 汇总容器中各 Hikari 连接池的状态
+ * 单库时只有 Spring Boot 自动配置的一个池；读写分离时主库、从库各一个，并附上路由计数。
+ * 取连接等待时间与超时次数来自 PoolWaitMetrics。
+ */
+@Component
+public class DataSourcePools {
+
+    @Resource
+    private ObjectProvider<DataSource> dataSources;
+
+    @Resource
+    private ObjectProvider<ReadWriteRoutingDataSource> routingDataSource;
+
+    @Resource
+    private PoolWaitMetrics poolWaitMetrics;
+
+    public List<PoolStatsVO> stats() {
+        // 同一个池可能被多个 DataSource 包装，按池名去重
+        Map<String, HikariDataSource> pools = new LinkedHashMap<>();
+        dataSources.orderedStream().forEach(dataSource -> {
+            HikariDataSource pool = unwrap(dataSource);
+            if (pool != null) {
+                pools.putIfAbsent(pool.getPoolName(), pool);
+            }
+        });
+
+        ReadWriteRoutingDataSource routing = routingDataSource.getIfAvailable();
+        List<PoolStatsVO> list = new ArrayList<>();
+        for (HikariDataSource pool : pools.values()) {
+            PoolStatsVO vo = new PoolStatsVO();
+            vo.setName(pool.getPoolName());
+            vo.setMaximumPoolSize(pool.getMaximumPoolSize());
+            HikariPoolMXBean mxBean = pool.getHikariPoolMXBean();
+            if (mxBean != null) {
+                vo.setActiveConnections(mxBean.getActiveConnections());
+                vo.setIdleConnections(mxBean.getIdleConnections());
+                vo.setTotalConnections(mxBean.getTotalConnections());
+                vo.setThreadsAwaitingConnection(mxBean.getThreadsAwaitingConnection());
+            }
+            PoolWaitMetrics.Pool waits = poolWaitMetrics.get(pool.getPoolName());
+            if (waits != null) {
+                vo.setConnectionAcquires(waits.getAcquire().getCount());
+                vo.setAcquireMeanMillis(waits.getAcquire().getMeanMillis());
+                vo.setAcquireP99Millis(waits.getAcquire().percentileMillis(99));
+                vo.setAcquireMaxMillis(waits.getAcquire().getMaxMillis());
+                vo.setConnectionTimeouts(waits.getTimeouts());
+                vo.setUsageMeanMillis(waits.getUsage().getMeanMillis());
+                vo.setUsageP99Millis(waits.getUsage().percentileMillis(99));
+            }
+            if (routing != null) {
+                if (ReadWriteRoutingDataSource.PRIMARY.equals(pool.getPoolName())) {
+                    vo.setRoutedConnections(routing.getPrimaryRoutes());
+                } else if (ReadWriteRoutingDataSource.REPLICA.equals(pool.getPoolName())) {
+                    vo.setRoutedConnections(routing.getReplicaRoutes());
+                }
+            }
+            list.add(vo);
+        }
+        return list;
+    }
+
+    private static HikariDataSource unwrap(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource) {
+            return (HikariDataSource) dataSource;
+        }
+        if (dataSource instanceof ReadWriteRoutingDataSource) {
+            // 路由数据源的 unwrap 会按当前事务选池，不能用来识别
+            return null;
+        }
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.tomatomall.util;
+
+import com.example.tomatomall.enums.OutboxStatusEnum;
+import com.example.tomatomall.event.DomainEvent;
+import com.example.tomatomall.event.DomainEventSubscriber;
+import com.example.tomatomall.po.OutboxEvent;
+import com.example.tomatomall.repository.OutboxEventRepository;
+import com.example.tomatomall.vo.OutboxStatsVO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进程内领域事件总线（事务性发件箱）
+ *
+ * 发布：publish 只能在业务事务内调用，按订阅者各向 event_outbox 写一行，随业务数据一起提交，
+ * 请求线程不执行任何订阅者逻辑；事务回滚时事件也随之消失。
+ *
+ * 投递：一个轮询线程每 poll-ms 或在有事件提交后被唤醒，分批认领到期的行，交给固定大小的工作线程池并行投递。
+ * 每一行单独一个事务：订阅者的写入与删除该行一起提交；失败则回滚并按指数退避重试，
+ * 超过 max-attempts 次后标记为 FAILED，不再自动重试。
+ * 认领带租约（lease-seconds），实例宕机时租约过期的行会被重新认领，多实例部署时可同时投递。
+ *
+ * 配置前缀 events.outbox；events.outbox.enabled=false 时本实例只写发件箱，不投递。
+ *
+ * @author TomatoMall Team
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class DomainEventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(DomainEventBus.class);
+
+    private static final List<OutboxStatusEnum> DUE = Arrays.asList(OutboxStatusEnum.PENDING, OutboxStatusEnum.PROCESSING);
+
+    @Resource
+    private OutboxEventRepository outboxEventRepository;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    @Resource
+    private ApplicationContext applicationContext;
+
+    @Value("${events.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${events.outbox.threads:4}")
+    private int threads;
+
+    @Value("${events.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${events.outbox.poll-ms:1000}")
+    private long pollMillis;
+
+    @Value("${events.outbox.lease-seconds:60}")
+    private long leaseSeconds;
+
+    @Value("${events.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${events.outbox.backoff-ms:1000}")
+    private long backoffMillis;
+
+    @Value("${events.outbox.max-backoff-ms:300000}")
+    private long maxBackoffMillis;
+
+    /**
+     * 订阅者 Bean 名 -> 订阅者；订阅者往往依赖发布事件的服务，启动后再查找以免循环依赖
+     */
+    private volatile Map<String, DomainEventSubscriber<?>> subscribers;
+
+    private ScheduledExecutorService poller;
+
+    private ThreadPoolExecutor workers;
+
+    private final AtomicBoolean wakeQueued = new AtomicBoolean();
+
+    private final LongAdder delivered = new LongAdder();
+
+    private final LongAdder retried = new LongAdder();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("events.outbox.enabled=false，本实例不投递领域事件");
+            return;
+        }
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "outbox-poller");
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger counter = new AtomicInteger();
+        workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "outbox-worker-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        poller.scheduleWithFixedDelay(this::drain, 0, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (poller != null) {
+            poller.shutdownNow();
+            // 让正在投递的行提交完；来不及的行租约过期后会被重新认领
+            workers.shutdown();
+            workers.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * 在当前事务中发布领域事件
+     * @param event 事件
+     * @throws org.springframework.transaction.IllegalTransactionStateException 当前没有事务
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(DomainEvent event) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("领域事件无法序列化: " + event.getClass().getName(), e);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> rows = new ArrayList<>();
+        subscribers().forEach((name, subscriber) -> {
+            if (subscriber.eventType().isInstance(event)) {
+                OutboxEvent row = new OutboxEvent();
+                row.setEventType(event.getClass().getName());
+                row.setSubscriber(name);
+                row.setPayload(payload);
+                row.setStatus(OutboxStatusEnum.PENDING);
+                row.setNextAttemptTime(now);
+                row.setCreatedTime(now);
+                rows.add(row);
+            }
+        });
+        if (rows.isEmpty()) {
+            return;
+        }
+        outboxEventRepository.saveAll(rows);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                wakeUp();
+            }
+        });
+    }
+
+    public OutboxStatsVO stats() {
+        OutboxStatsVO vo = new OutboxStatsVO();
+        vo.setPending(outboxEventRepository.countByStatus(OutboxStatusEnum.PENDING));
+        vo.setProcessing(outboxEventRepository.countByStatus(OutboxStatusEnum.PROCESSING));
+        vo.setFailed(outboxEventRepository.countByStatus(OutboxStatusEnum.FAILED));
+        vo.setDelivered(delivered.sum());
+        vo.setRetried(retried.sum());
+        return vo;
+    }
+
+    /**
+     * 事件提交后立即安排一次投递，不必等到下一个轮询周期；多次唤醒合并为一次
+     */
+    private void wakeUp() {
+        if (poller != null && wakeQueued.compareAndSet(false, true)) {
+            try {
+                poller.execute(() -> {
+                    wakeQueued.set(false);
+                    drain();
+                });
+            } catch (RejectedExecutionException e) {
+                // 正在关闭
+                wakeQueued.set(false);
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            // 一批认领满了说明还有积压，接着取下一批
+            while (drainBatch() == batchSize && !Thread.currentThread().isInterrupted()) {
+                // continue
+            }
+        } catch (RuntimeException e) {
+            // 数据库暂时不可用等，等下一个周期
+            log.warn("领域事件投递轮询失败: {}", e.toString());
+        }
+    }
+
+    /**
+     * 认领并投递一批到期的行，等这一批全部完成后返回
+     * @return 认领的行数
+     */
+    int drainBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = outboxEventRepository.findDueIds(DUE, now, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String token = UUID.randomUUID().toString();
+        transactionTemplate.execute(status ->
+                outboxEventRepository.claim(ids, DUE, now, token, now.plusSeconds(leaseSeconds)));
+        List<OutboxEvent> rows = outboxEventRepository.findByClaimTokenOrderById(token);
+
+        List<Future<?>> futures = new ArrayList<>(rows.size());
+        for (OutboxEvent row : rows) {
+            futures.add(workers.submit(() -> deliver(row, token)));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                log.error("领域事件投递线程异常", e.getCause());
+            }
+        }
+        return rows.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void deliver(OutboxEvent row, String token) {
+        try {
+            DomainEventSubscriber<DomainEvent> subscriber = (DomainEventSubscriber<DomainEvent>) subscribers().get(row.getSubscriber());
+            if (subscriber == null) {
+                throw new IllegalStateException("订阅者不存在: " + row.getSubscriber());
+            }
+            Class<?> type = Class.forName(row.getEventType());
+            DomainEvent event = (DomainEvent) objectMapper.readValue(row.getPayload(), type);
+            Boolean owned = transactionTemplate.execute(status -> {
+                subscriber.handle(event);
+                if (outboxEventRepository.deleteClaimed(row.getId(), token) == 0) {
+                    // 租约已过期并被其他批次认领，由对方投递，这里的写入作废
+                    status.setRollbackOnly();
+                    return false;
+                }
+                return true;
+            });
+            // 作废的投递不计入，由重新认领的批次计数
+            if (Boolean.TRUE.equals(owned)) {
+                delivered.increment();
+            }
+        } catch (Exception e) {
+            failed(row, token, e);
+        }
+    }
+
+    private void failed(OutboxEvent row, String token, Exception e) {
+        int attempts = row.getAttempts() + 1;
+        boolean giveUp = attempts >= maxAttempts;
+        long backoff = Math.min(maxBackoffMillis, backoffMillis << Math.min(attempts - 1, 20));
+        String error = String.valueOf(NestedExceptionUtils.getMostSpecificCause(e));
+        if (error.length() > 500) {
+            error = error.substring(0, 500);
+        }
+        String lastError = error;
+        transactionTemplate.execute(status -> outboxEventRepository.release(row.getId(), token,
+                giveUp ? OutboxStatusEnum.FAILED : OutboxStatusEnum.PENDING, attempts,
+                LocalDateTime.now().plusNanos(backoff * 1_000_000), lastError));
+        if (giveUp) {
+            log.error("领域事件 {} 投递给 {} 失败 {} 次，已标记为 FAILED (id={})",
+                    row.getEventType(), row.getSubscriber(), attempts, row.getId(), e);
+        } else {
+            retried.increment();
+            log.warn("领域事件 {} 投递给 {} 失败，{} ms 后重试 (id={}): {}",
+                    row.getEventType(), row.getSubscriber(), backoff, row.getId(), lastError);
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private Map<String, DomainEventSubscriber<?>> subscribers() {
+        Map<String, DomainEventSubscriber<?>> result = subscribers;
+        if (result == null) {
+            result = new LinkedHashMap<>();
+            for (Map.Entry<String, DomainEventSubscriber> entry : applicationContext.getBeansOfType(DomainEventSubscriber.class).entrySet()) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+            subscribers = result;
+        }
+        return result;
+    }
+}
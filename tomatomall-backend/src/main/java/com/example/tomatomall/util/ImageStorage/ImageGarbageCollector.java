@@ -0,0 +1,157 @@
+package com.example.tomatomall.util.ImageStorage;
+
+import com.example.tomatomall.repository.AccountRepository;
+import com.example.tomatomall.repository.AdvertisementRepository;
+import com.example.tomatomall.repository.ProductRepository;
+import com.example.tomatomall.repository.ShopRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.File;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 本地内容哈希图片的垃圾回收（storage.type 为 local 或 tiered 时启用）
+ * 同一图片文件可能被多个商品、广告、头像、店铺图标共用，删除记录时不能直接删文件；
+ * 本组件每 storage.local.gc-interval-minutes 分钟扫描一次保存目录，
+ * 删除不再被任何记录引用、且超过 storage.local.gc-grace-hours 小时没有被上传过的文件，
+ * 宽限期内刚上传、还没保存到记录里的图片不会被删除。tiered 模式下同时删除OSS副本。
+ * 多实例部署时各实例只清理自己的本地目录。
+ *
+ * @author TomatoMall Team
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+@ConditionalOnExpression("'${storage.type:local}'.toLowerCase() matches 'local|tiered'")
+public class ImageGarbageCollector {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageGarbageCollector.class);
+
+    /**
+     * 记录中出现的内容哈希（不含后缀），前后不能紧挨其他十六进制字符
+     */
+    private static final Pattern CONTENT_HASH = Pattern.compile("(?<![0-9a-f])[0-9a-f]{64}(?![0-9a-f])");
+
+    @Resource
+    private LocalStorage localStorage;
+
+    @Resource
+    private ObjectProvider<TieredStorage> tieredStorage;
+
+    @Resource
+    private ProductRepository productRepository;
+
+    @Resource
+    private AdvertisementRepository advertisementRepository;
+
+    @Resource
+    private AccountRepository accountRepository;
+
+    @Resource
+    private ShopRepository shopRepository;
+
+    @Value("${storage.local.gc-interval-minutes:60}")
+    private long intervalMinutes;
+
+    @Value("${storage.local.gc-grace-hours:24}")
+    private long graceHours;
+
+    private ScheduledExecutorService scheduler;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "image-gc");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::sweepQuietly, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 清理一次
+     * @return 删除的文件数
+     */
+    public int sweep() {
+        // 先记下截止时间再读引用：之后上传的文件修改时间都晚于截止时间，不会被删除
+        long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(graceHours);
+        File[] files = localStorage.listContentHashed();
+        if (files.length == 0) {
+            return 0;
+        }
+        Set<String> referenced = referencedNames();
+        TieredStorage tiered = tieredStorage.getIfAvailable();
+        int deleted = 0;
+        for (File file : files) {
+            if (referenced.contains(file.getName().substring(0, 64))) {
+                continue;
+            }
+            boolean removed = tiered != null
+                    ? tiered.deleteIfIdleSince(file, cutoff)
+                    : localStorage.deleteIfIdleSince(file, cutoff);
+            if (removed) {
+                deleted++;
+            }
+        }
+        if (deleted > 0) {
+            log.info("图片垃圾回收删除了 {} 个不再被引用的文件", deleted);
+        }
+        return deleted;
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            // 数据库暂时不可用等，等下一个周期
+            log.warn("图片垃圾回收失败: {}", e.toString());
+        }
+    }
+
+    /**
+     * 所有记录中出现的内容哈希；按哈希而不是完整文件名比较，URL 的前缀（域名、本地或OSS）与后缀都不影响匹配
+     */
+    private Set<String> referencedNames() {
+        Set<String> names = new HashSet<>();
+        collect(productRepository.findImageReferences(), names);
+        collect(advertisementRepository.findImageReferences(), names);
+        collect(accountRepository.findImageReferences(), names);
+        collect(shopRepository.findImageReferences(), names);
+        return names;
+    }
+
+    private static void collect(List<String> values, Set<String> names) {
+        for (String value : values) {
+            if (value == null) {
+                continue;
+            }
+            Matcher matcher = CONTENT_HASH.matcher(value);
+            while (matcher.find()) {
+                names.add(matcher.group());
+            }
+        }
+    }
+}
@@ -1,14 +1,30 @@
 package com.example.tomatomall.util.ImageStorage;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.UUID;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.regex.Pattern;
 
+/**
+ * 本地磁盘存储，storage.type 为 local 或 tiered 时才会被装配
+ * 文件以内容的SHA-256命名，同一内容只存一份，且文件名对应的内容永不改变，
+ * 因此 LocalImageController 可以对其返回 immutable 的缓存头。
+ * 同一文件可能同时被多个商品、广告引用，delete 不物理删除哈希命名的文件，
+ * 由 ImageGarbageCollector 定期清理不再被任何记录引用的文件。
+ * 单机部署时把 storage.local.ip 配成后端自身地址即可由后端直接提供图片，无需nginx。
+ */
 @Component
+@ConditionalOnExpression("'${storage.type:local}'.toLowerCase() matches 'local|tiered'")
 public class LocalStorage implements ImageStorage {
 
     @Value("${storage.local.ip:http://121.41.41.33/}")
@@ -17,6 +33,11 @@ public class LocalStorage implements ImageStorage {
     @Value("${storage.local.dir:/home/img}")
     private String saveDir;
 
+    /**
+     * 内容哈希文件名：64位十六进制 + 可选后缀
+     */
+    private static final Pattern HASHED_NAME = Pattern.compile("[0-9a-f]{64}(\\.[A-Za-z0-9]+)?");
+
     @Override
     public String upload(MultipartFile file) {
         if (file.isEmpty()) {
@@ -24,7 +45,6 @@ public class LocalStorage implements ImageStorage {
         }
 
         // 设置保存路径（相对路径或绝对路径）
-        String saveDir = "/home/img"; // img 文件夹
         File dir = new File(saveDir);
         if (!dir.exists()) {
             dir.mkdirs(); // 创建目录
@@ -33,17 +53,35 @@ public class LocalStorage implements ImageStorage {
         // 获取原始文件名并生成唯一文件名
         String originalFilename = file.getOriginalFilename();
         String suffix = "";
-        if (originalFilename != null) {
-            suffix = originalFilename.substring(originalFilename.lastIndexOf("."));
+        if (originalFilename != null && originalFilename.contains(".")) {
+            suffix = originalFilename.substring(originalFilename.lastIndexOf(".")).toLowerCase();
         }
-        String newFileName = UUID.randomUUID().toString() + suffix;
 
-        File dest = new File(dir, newFileName);
+        File tmp = null;
         try {
-            file.transferTo(dest);
+            // 先写入临时文件并同时计算内容哈希，再原子重命名为哈希文件名
+            tmp = File.createTempFile("upload-", ".tmp", dir);
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(in, tmp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            String newFileName = toHex(digest.digest()) + suffix;
+            File dest = new File(dir, newFileName);
+            synchronized (this) {
+                if (dest.exists()) {
+                    // 相同内容已存在，直接复用；刷新修改时间，使其重新获得垃圾回收的宽限期
+                    dest.setLastModified(System.currentTimeMillis());
+                    Files.delete(tmp.toPath());
+                } else {
+                    Files.move(tmp.toPath(), dest.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
             return ip + "img/" + newFileName; // 返回图片相对路径或可访问的路径
-        } catch (IOException e) {
+        } catch (IOException | NoSuchAlgorithmException e) {
             e.printStackTrace();
+            if (tmp != null) {
+                tmp.delete();
+            }
             return "上传失败，服务器错误";
         }
     }
@@ -52,11 +90,12 @@ public class LocalStorage implements ImageStorage {
     public String delete(String url) {
         try {
             // 1. 从 URL 中提取文件名（假设 URL 格式为 "http://121.41.41.33/img/filename.jpg"）
-            String fileName = url.substring(url.lastIndexOf("/") + 1);
-
             // 2. 拼接本地文件路径
-            String filePath = "/home/img/" + fileName;
-            File file = new File(filePath);
+            File file = resolve(url);
+            if (isContentHashed(file.getName())) {
+                // 内容哈希文件可能还被其他记录引用，留给 ImageGarbageCollector 确认无引用后删除
+                return "删除成功: " + url;
+            }
 
             // 3. 检查文件是否存在并删除
             if (file.exists()) {
@@ -73,4 +112,50 @@ public class LocalStorage implements ImageStorage {
             return "删除失败: 服务器错误";
         }
     }
+
+    /**
+     * 根据图片URL（或文件名）定位到本地保存目录下的文件
+     * @param url 图片URL
+     * @return 本地文件
+     */
+    public File resolve(String url) {
+        String fileName = url.substring(url.lastIndexOf("/") + 1);
+        return new File(saveDir, fileName);
+    }
+
+    /**
+     * @return 保存目录下所有内容哈希命名的文件
+     */
+    public File[] listContentHashed() {
+        File[] files = new File(saveDir).listFiles(file -> file.isFile() && isContentHashed(file.getName()));
+        return files == null ? new File[0] : files;
+    }
+
+    /**
+     * 文件在 cutoffMillis 之前没有被上传过（包括重复上传复用）时删除；与 upload 的复用判断互斥，
+     * 不会删掉刚被重新上传、即将被新记录引用的文件
+     * @param file 内容哈希文件
+     * @param cutoffMillis 最后修改时间早于该时刻才删除
+     * @return 是否已删除
+     */
+    public synchronized boolean deleteIfIdleSince(File file, long cutoffMillis) {
+        return file.isFile() && file.lastModified() < cutoffMillis && file.delete();
+    }
+
+    /**
+     * 判断文件名是否为内容哈希命名（内容不可变）
+     * @param fileName 文件名
+     * @return 是否为内容哈希命名
+     */
+    public boolean isContentHashed(String fileName) {
+        return HASHED_NAME.matcher(fileName).matches();
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
 }
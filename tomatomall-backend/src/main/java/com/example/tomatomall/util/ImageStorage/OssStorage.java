@@ -9,6 +9,7 @@ import com.aliyun.oss.model.PutObjectRequest;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
@@ -25,8 +26,10 @@ import java.util.Date;
  * 3. 自动配置OSS连接参数
  * 
  * 使用@ConfigurationProperties注解自动绑定配置文件中的OSS配置
+ * storage.type 为 oss 或 tiered 时才会被装配
  */
 @Component
+@ConditionalOnExpression("'${storage.type:local}'.toLowerCase() matches 'oss|tiered'")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -77,13 +80,14 @@ public class OssStorage implements ImageStorage {
     }
 
     /**
-     * 私有方法：执行实际的文件上传操作
+     * 执行实际的文件上传操作
+     * 分层存储（TieredStorage）复制本地文件时也直接调用此方法
      * 
      * @param objectName 对象名称（文件名）
      * @param inputStream 文件输入流
      * @return 上传成功后的文件访问URL（不包含签名参数）
      */
-    private String upload(String objectName, InputStream inputStream) {
+    public String upload(String objectName, InputStream inputStream) {
         // 创建OSS客户端实例
         OSS ossClient = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret);
         
@@ -150,6 +154,16 @@ public class OssStorage implements ImageStorage {
         }
     }
 
+    /**
+     * 根据Object Key拼出OSS上的访问URL（与extractObjectKeyFromUrl互逆）
+     *
+     * @param objectKey 对象名称
+     * @return 文件访问URL
+     */
+    public String objectUrl(String objectKey) {
+        return "https://" + bucketName + "." + endpoint + "/" + objectKey;
+    }
+
     /**
      * 从OSS URL中提取Object Key
      * 
@@ -0,0 +1,107 @@
+package com.example.tomatomall.util.ImageStorage;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分层存储实现类（storage.type=tiered）
+ *
+ * 上传时先同步写入本地磁盘并立即返回本地URL，保证上传延迟只取决于本地IO；
+ * 随后由后台单线程把同名文件异步复制到阿里云OSS，作为备份/CDN源。
+ * 删除时同时删除本地文件和OSS上的副本；内容哈希命名的文件可能被多处引用，
+ * 两处副本都由 ImageGarbageCollector 在确认无引用后删除。
+ */
+@Component
+@Primary
+@ConditionalOnExpression("'${storage.type:local}'.toLowerCase() == 'tiered'")
+public class TieredStorage implements ImageStorage {
+
+    private final LocalStorage localStorage;
+
+    private final OssStorage ossStorage;
+
+    /**
+     * 复制线程，单线程即可保证同一文件的上传/删除按提交顺序执行
+     */
+    private final ExecutorService replicator = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "image-replicator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public TieredStorage(LocalStorage localStorage, OssStorage ossStorage) {
+        this.localStorage = localStorage;
+        this.ossStorage = ossStorage;
+    }
+
+    @Override
+    public String upload(MultipartFile file) {
+        String url = localStorage.upload(file);
+        File local = localStorage.resolve(url);
+        // 本地写入失败时 LocalStorage 返回的是错误信息，对应文件不存在，不做复制
+        if (local.isFile()) {
+            replicator.execute(() -> replicate(local));
+        }
+        return url;
+    }
+
+    @Override
+    public String delete(String url) {
+        String objectKey = localStorage.resolve(url).getName();
+        String result = localStorage.delete(url);
+        if (!localStorage.isContentHashed(objectKey)) {
+            replicator.execute(() -> ossStorage.delete(ossStorage.objectUrl(objectKey)));
+        }
+        return result;
+    }
+
+    /**
+     * 删除不再被引用的内容哈希文件及其OSS副本；OSS删除与复制走同一线程，
+     * 删除之后重新上传的同名文件会在删除完成后再复制，不会被误删
+     * @param file 本地内容哈希文件
+     * @param cutoffMillis 最后修改时间早于该时刻才删除
+     * @return 是否已删除
+     */
+    public boolean deleteIfIdleSince(File file, long cutoffMillis) {
+        if (!localStorage.deleteIfIdleSince(file, cutoffMillis)) {
+            return false;
+        }
+        String objectKey = file.getName();
+        replicator.execute(() -> ossStorage.delete(ossStorage.objectUrl(objectKey)));
+        return true;
+    }
+
+    /**
+     * 把本地文件复制到OSS，Object Key 与本地文件名一致
+     * @param local 本地文件
+     */
+    private void replicate(File local) {
+        // 复制排队期间文件可能已被删除
+        if (!local.isFile()) {
+            return;
+        }
+        try (InputStream inputStream = new FileInputStream(local)) {
+            ossStorage.upload(local.getName(), inputStream);
+        } catch (Exception e) {
+            // 复制失败不影响本地访问，仅记录
+            e.printStackTrace();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // 停机前尽量把已排队的复制任务做完
+        replicator.shutdown();
+        replicator.awaitTermination(30, TimeUnit.SECONDS);
+    }
+}
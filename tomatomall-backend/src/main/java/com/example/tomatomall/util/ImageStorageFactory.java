@@ -1,32 +1,39 @@
 package com.example.tomatomall.util;
 
 import com.example.tomatomall.util.ImageStorage.*;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+/**
+ * 图片存储工厂
+ * 存储后端在启动时根据 storage.type 选定一次：
+ * local  -> LocalStorage（只初始化本地存储）
+ * oss    -> OssStorage（只初始化OSS存储）
+ * tiered -> TieredStorage（先写本地，再异步复制到OSS）
+ * 未被选中的后端由条件装配直接跳过，不会被实例化。
+ */
 @Component
 public class ImageStorageFactory {
-    @Autowired
-    private LocalStorage localStorage;  // Spring 管理的 Bean
 
-    @Autowired
-    private OssStorage ossStorage;
+    private final ImageStorage storage;
 
-    @Value("${storage.type:local}")  // 默认值为 "local"
-    private String storageType;  // 值为 "oss" 或 "local"
+    public ImageStorageFactory(@Value("${storage.type:local}") String storageType,  // 默认值为 "local"
+                               ObjectProvider<ImageStorage> storages) {
+        if (!storageType.toLowerCase().matches("local|oss|tiered")) {
+            throw new IllegalArgumentException("Invalid storage.type: " + storageType);
+        }
+        // tiered 模式下同时存在本地和OSS两个后端，TieredStorage 标注了 @Primary
+        this.storage = storages.getIfAvailable();
+        if (this.storage == null) {
+            throw new IllegalStateException("No ImageStorage available for storage.type: " + storageType);
+        }
+    }
 
     /**
-     * 从配置动态选择（推荐）
+     * 返回启动时选定的存储后端
      */
     public ImageStorage getStorage() {
-        // 默认从配置读取，storage.type=oss或者local
-        if ("oss".equalsIgnoreCase(storageType)) {
-            return ossStorage;
-        } else if ("local".equalsIgnoreCase(storageType)) {
-            return localStorage;
-        } else {
-            throw new IllegalArgumentException("Invalid storage.type: " + storageType);
-        }
+        return storage;
     }
-}
\ No newline at end of file
+}
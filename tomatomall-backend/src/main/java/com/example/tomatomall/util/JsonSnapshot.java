@@ -0,0 +1,71 @@
+package com.example.tomatomall.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 预先序列化好的 JSON 响应体及其 ETag
+ * 命中时直接把字节写回客户端，不再查库也不再序列化；
+ * 较大的响应体同时保存一份 gzip 结果，支持 gzip 的客户端无需每次重新压缩。
+ */
+public class JsonSnapshot {
+
+    private final byte[] body;
+
+    private final byte[] gzipBody;
+
+    private final String etag;
+
+    private JsonSnapshot(byte[] body, byte[] gzipBody, String etag) {
+        this.body = body;
+        this.gzipBody = gzipBody;
+        this.etag = etag;
+    }
+
+    /**
+     * 序列化对象并以内容的MD5作为强ETag
+     * @param objectMapper Jackson
+     * @param value 要序列化的对象
+     * @param gzipMinSize 响应体达到该字节数时预先压缩
+     * @return 快照
+     */
+    public static JsonSnapshot of(ObjectMapper objectMapper, Object value, int gzipMinSize) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(value);
+            byte[] gzipBody = body.length >= gzipMinSize ? gzip(body) : null;
+            return new JsonSnapshot(body, gzipBody, "\"" + DigestUtils.md5DigestAsHex(body) + "\"");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("序列化快照失败", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new IllegalStateException("压缩快照失败", e);
+        }
+        return out.toByteArray();
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * @return gzip 压缩后的响应体，响应体较小时为 null
+     */
+    public byte[] getGzipBody() {
+        return gzipBody;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.tomatomall.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 容量有限的 LRU 缓存（线程安全）
+ * 超过容量时淘汰最久未访问的条目；同时统计命中/未命中次数。
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class LruCache<K, V> {
+
+    private final int capacity;
+
+    private final LinkedHashMap<K, V> map;
+
+    private long hits;
+
+    private long misses;
+
+    public LruCache(int capacity) {
+        this.capacity = capacity;
+        this.map = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > LruCache.this.capacity;
+            }
+        };
+    }
+
+    public synchronized V get(K key) {
+        V value = map.get(key);
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        map.put(key, value);
+    }
+
+    public synchronized V remove(K key) {
+        return map.remove(key);
+    }
+
+    public synchronized void clear() {
+        map.clear();
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.tomatomall.util;
+
+import com.example.tomatomall.exception.TomatoMallException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 密码哈希执行器
+ * bcrypt 计算刻意很慢，放在 Tomcat 工作线程上执行时，撞库流量会占满所有工作线程，拖垮其他接口。
+ * 这里把 bcrypt 放到固定大小的专用线程池中执行，等待队列有界，队列满时立即拒绝，
+ * 保证哈希计算最多占用固定数量的 CPU，其余请求快速失败。
+ *
+ * @author TomatoMall Team
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class PasswordHasher {
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Value("${password.hash.threads:0}")
+    private int threads;
+
+    @Value("${password.hash.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${password.hash.timeout-ms:5000}")
+    private long timeoutMs;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "password-hasher-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 异步校验密码，不占用调用线程
+     * @param rawPassword 明文密码
+     * @param encodedPassword 数据库中的哈希
+     * @return 校验结果
+     * @throws TomatoMallException 线程池已饱和
+     */
+    public CompletableFuture<Boolean> matchesAsync(String rawPassword, String encodedPassword) {
+        try {
+            return CompletableFuture.supplyAsync(() -> passwordEncoder.matches(rawPassword, encodedPassword), executor);
+        } catch (RejectedExecutionException e) {
+            throw TomatoMallException.tooManyRequests();
+        }
+    }
+
+    /**
+     * 计算密码哈希，调用线程最多等待 timeoutMs
+     * @param rawPassword 明文密码
+     * @return 哈希
+     * @throws TomatoMallException 线程池已饱和或等待超时
+     */
+    public String encode(String rawPassword) {
+        Future<String> future;
+        try {
+            future = executor.submit(() -> passwordEncoder.encode(rawPassword));
+        } catch (RejectedExecutionException e) {
+            throw TomatoMallException.tooManyRequests();
+        }
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw TomatoMallException.tooManyRequests();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw TomatoMallException.tooManyRequests();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("密码加密失败", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.tomatomall.util;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hikari 连接池的取连接等待与占用时长统计
+ * 由 ConnectionPoolConfig 注册为每个连接池的 MetricsTrackerFactory，按池名分别记录：
+ * 取连接等待时间（getConnection 到拿到连接）、连接被占用的时长、取连接超时次数。
+ * 等待时间升高而数据库本身不慢，说明池太小或事务持有连接太久。
+ */
+public class PoolWaitMetrics implements MetricsTrackerFactory {
+
+    private final ConcurrentHashMap<String, Pool> pools = new ConcurrentHashMap<>();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        return pools.computeIfAbsent(poolName, name -> new Pool());
+    }
+
+    /**
+     * @param poolName 连接池名
+     * @return 该池的统计，连接池尚未启动时为 null
+     */
+    public Pool get(String poolName) {
+        return pools.get(poolName);
+    }
+
+    public static class Pool implements IMetricsTracker {
+
+        private final LatencyHistogram acquire = new LatencyHistogram();
+
+        private final LatencyHistogram usage = new LatencyHistogram();
+
+        private final LongAdder timeouts = new LongAdder();
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquire.record(elapsedAcquiredNanos);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            usage.record(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+        }
+
+        public LatencyHistogram getAcquire() {
+            return acquire;
+        }
+
+        public LatencyHistogram getUsage() {
+            return usage;
+        }
+
+        public long getTimeouts() {
+            return timeouts.sum();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.tomatomall.util;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按事务读写属性选择主库或从库的 DataSource
+ * 服务层 @Transactional(readOnly = true) 的方法走从库，其余（写事务、无事务）走主库。
+ * Spring Data 仓库方法自带的只读事务（事务名以 org.springframework.data. 开头）仍走主库：
+ * 这类事务出现在没有声明事务的服务方法里，常与写操作交错，读从库会读到自己刚写之前的数据。
+ * 必须包在 LazyConnectionDataSourceProxy 里使用，使取连接推迟到只读标记绑定之后。
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    public static final String REPLICA = "replica";
+
+    private static final Object WRITE_MARKER = new Object();
+
+    private final ReadYourWrites readYourWrites;
+
+    private final LongAdder primaryRoutes = new LongAdder();
+
+    private final LongAdder replicaRoutes = new LongAdder();
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReadYourWrites readYourWrites) {
+        this.readYourWrites = readYourWrites;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        targets.put(REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && !isRepositoryTransaction()
+                && !readYourWrites.shouldReadPrimary()) {
+            replicaRoutes.increment();
+            return REPLICA;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            watchCommit();
+        }
+        primaryRoutes.increment();
+        return PRIMARY;
+    }
+
+    private static boolean isRepositoryTransaction() {
+        String name = TransactionSynchronizationManager.getCurrentTransactionName();
+        return name != null && name.startsWith("org.springframework.data.");
+    }
+
+    /**
+     * 写事务提交后记下当前用户，之后一段时间内该用户的只读事务走主库
+     */
+    private void watchCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(WRITE_MARKER)) {
+            return;
+        }
+        // 在请求线程上取用户，提交回调可能已不在请求上下文中
+        Integer accountId = readYourWrites.currentAccountId();
+        TransactionSynchronizationManager.bindResource(WRITE_MARKER, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(WRITE_MARKER);
+                if (status == STATUS_COMMITTED) {
+                    readYourWrites.markWrite(accountId);
+                }
+            }
+        });
+    }
+
+    public long getPrimaryRoutes() {
+        return primaryRoutes.sum();
+    }
+
+    public long getReplicaRoutes() {
+        return replicaRoutes.sum();
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.tomatomall.util;
+
+import com.example.tomatomall.event.ResourceChangedEvent;
+import com.example.tomatomall.po.Account;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * 读写分离下的“读己之写”
+ * 用户自己的写事务提交后 stickyMillis 内，该用户的只读事务仍走主库，避免从库延迟导致刚改的数据“消失”；
+ * 商品、店铺、广告、优惠券变化（ResourceChangedEvent）后的同一时间窗口内，所有只读事务都走主库，
+ * 保证 ResourceVersions 推进 ETag 之后返回的一定是新数据，不会把从库上的旧数据配上新 ETag 缓存到客户端。
+ * 目录类数据很少修改，这个全局窗口几乎不影响从库分流。其他实例上的修改经 ResourceChangeRelay 同样开启这个窗口。
+ * 只在配置了从库时由 ReadWriteDataSourceConfig 创建。
+ */
+public class ReadYourWrites {
+
+    private final long stickyMillis;
+
+    /**
+     * 用户ID -> 最近一次写事务提交的时间
+     */
+    private final LruCache<Integer, Long> lastWrites;
+
+    private volatile long globalStickyUntil;
+
+    public ReadYourWrites(long stickyMillis, int maxUsers) {
+        this.stickyMillis = stickyMillis;
+        this.lastWrites = new LruCache<>(maxUsers);
+    }
+
+    /**
+     * @return 当前请求的登录用户ID，没有请求上下文或未登录时为 null
+     */
+    public Integer currentAccountId() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        Object account = attributes.getAttribute("currentAccount", RequestAttributes.SCOPE_SESSION);
+        return account instanceof Account ? ((Account) account).getId() : null;
+    }
+
+    /**
+     * 记录用户的写事务已提交
+     * @param accountId 用户ID，为 null 时忽略（如支付宝回调等无登录用户的写入）
+     */
+    public void markWrite(Integer accountId) {
+        if (accountId != null) {
+            lastWrites.put(accountId, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * @return 当前只读事务是否必须走主库
+     */
+    public boolean shouldReadPrimary() {
+        long now = System.currentTimeMillis();
+        if (now < globalStickyUntil) {
+            return true;
+        }
+        Integer accountId = currentAccountId();
+        if (accountId == null) {
+            return false;
+        }
+        Long lastWrite = lastWrites.get(accountId);
+        return lastWrite != null && now - lastWrite < stickyMillis;
+    }
+
+    // 先于 ResourceVersions（最低优先级）执行，新 ETag 生效时已经只读主库
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onResourceChanged(ResourceChangedEvent event) {
+        markResourceChanged();
+    }
+
+    /**
+     * 开始全局主库窗口；其他实例修改了目录数据时由 ResourceChangeRelay 在推进 ETag 之前调用
+     */
+    public void markResourceChanged() {
+        globalStickyUntil = System.currentTimeMillis() + stickyMillis;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.tomatomall.util;
+
+import com.example.tomatomall.vo.EndpointMetricsVO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按接口（HTTP 方法 + 路由模板，如 GET /api/products/{id}）累计请求指标：
+ * 延迟直方图、5xx 数、慢请求数、SQL 语句数与耗时、单请求最大语句数，
+ * 以及语句数超过阈值的请求数（多为 N+1 查询）。
+ */
+@Component
+public class RequestMetrics {
+
+    @Value("${metrics.slow-request-ms:500}")
+    private long slowRequestMillis;
+
+    @Value("${metrics.sql-warn-statements:20}")
+    private long sqlWarnStatements;
+
+    private final ConcurrentHashMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次请求
+     * @param endpoint 接口
+     * @param status 响应状态码
+     * @param nanos 耗时
+     * @param sqlStatements 执行的 SQL 语句数
+     * @param sqlNanos SQL 总耗时
+     */
+    public void record(String endpoint, int status, long nanos, long sqlStatements, long sqlNanos) {
+        Endpoint metrics = endpoints.computeIfAbsent(endpoint, key -> new Endpoint());
+        metrics.latency.record(nanos);
+        if (status >= 500) {
+            metrics.serverErrors.increment();
+        }
+        if (isSlow(nanos)) {
+            metrics.slow.increment();
+        }
+        metrics.sqlStatements.add(sqlStatements);
+        metrics.sqlNanos.add(sqlNanos);
+        metrics.maxSqlStatements.accumulate(sqlStatements);
+        if (isSqlHeavy(sqlStatements)) {
+            metrics.sqlHeavy.increment();
+        }
+    }
+
+    public boolean isSlow(long nanos) {
+        return nanos >= slowRequestMillis * 1_000_000L;
+    }
+
+    public boolean isSqlHeavy(long sqlStatements) {
+        return sqlStatements > sqlWarnStatements;
+    }
+
+    /**
+     * @return 各接口指标，按请求数从多到少排序
+     */
+    public List<EndpointMetricsVO> snapshot() {
+        List<EndpointMetricsVO> list = new ArrayList<>();
+        endpoints.forEach((name, metrics) -> list.add(metrics.toVO(name)));
+        list.sort(Comparator.comparingLong(EndpointMetricsVO::getCount).reversed());
+        return list;
+    }
+
+    private static class Endpoint {
+
+        final LatencyHistogram latency = new LatencyHistogram();
+
+        final LongAdder serverErrors = new LongAdder();
+
+        final LongAdder slow = new LongAdder();
+
+        final LongAdder sqlStatements = new LongAdder();
+
+        final LongAdder sqlNanos = new LongAdder();
+
+        final LongAccumulator maxSqlStatements = new LongAccumulator(Math::max, 0);
+
+        final LongAdder sqlHeavy = new LongAdder();
+
+        EndpointMetricsVO toVO(String name) {
+            EndpointMetricsVO vo = new EndpointMetricsVO();
+            long count = latency.getCount();
+            vo.setEndpoint(name);
+            vo.setCount(count);
+            vo.setServerErrors(serverErrors.sum());
+            vo.setSlowRequests(slow.sum());
+            vo.setMeanMillis(latency.getMeanMillis());
+            vo.setP50Millis(latency.percentileMillis(50));
+            vo.setP90Millis(latency.percentileMillis(90));
+            vo.setP99Millis(latency.percentileMillis(99));
+            vo.setMaxMillis(latency.getMaxMillis());
+            vo.setBucketBoundsMillis(LatencyHistogram.getBoundsMillis());
+            vo.setBucketCounts(latency.getBucketCounts());
+            vo.setSqlStatementsPerRequest(count == 0 ? 0 : (double) sqlStatements.sum() / count);
+            vo.setSqlMillisPerRequest(count == 0 ? 0 : sqlNanos.sum() / 1e6 / count);
+            vo.setMaxSqlStatements(maxSqlStatements.get());
+            vo.setSqlHeavyRequests(sqlHeavy.sum());
+            return vo;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.tomatomall.util;
+
+import com.example.tomatomall.event.ResourceChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 读接口的响应版本号
+ * 每类资源维护一个单调递增的版本号，写操作提交后递增；读接口用版本号生成弱 ETag，
+ * 在查库和序列化之前先比较 If-None-Match，命中时直接返回 304。
+ * ETag 中带有本实例启动时生成的随机标识，重启或多实例部署时不会把旧版本号误认为新数据。
+ * 版本号只在本实例内递增：其他实例上的修改由 ResourceChangeRelay 经 CacheInvalidationBus 转来后推进，
+ * 否则本实例会对已经过期的 ETag 继续返回 304。
+ *
+ * @author TomatoMall Team
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class ResourceVersions {
+
+    public static final String PRODUCT = "product";
+    public static final String SHOP = "shop";
+    public static final String ADVERTISEMENT = "advertisement";
+    public static final String COUPON = "coupon";
+
+    private final String instanceTag = UUID.randomUUID().toString().substring(0, 8);
+
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    /**
+     * 优惠券是否有效、广告是否在投放时段内都取决于当前时间，这类资源的 ETag 额外按时间分桶滚动
+     */
+    private static final Set<String> TIME_SENSITIVE = new HashSet<>(Arrays.asList(COUPON, ADVERTISEMENT));
+
+    @Value("${http.etag.time-bucket-seconds:60}")
+    private long timeBucketSeconds;
+
+    /**
+     * 生成若干资源组合后的弱 ETag
+     * @param resources 资源名称
+     * @return ETag
+     */
+    public String etag(String... resources) {
+        StringBuilder tag = new StringBuilder("W/\"").append(instanceTag);
+        for (String resource : resources) {
+            tag.append('-').append(resource).append(version(resource).get());
+            if (TIME_SENSITIVE.contains(resource) && timeBucketSeconds > 0) {
+                tag.append('.').append(System.currentTimeMillis() / 1000 / timeBucketSeconds);
+            }
+        }
+        return tag.append('"').toString();
+    }
+
+    /**
+     * 比较请求的 If-None-Match，未变化时返回 true，调用方应直接返回 null（304）
+     * 版本号必须在查询数据之前读取，否则并发写入时可能把新版本号配上旧数据
+     * @param request 当前请求
+     * @param resources 响应所依赖的资源
+     * @return 是否未变化
+     */
+    public boolean checkNotModified(WebRequest request, String... resources) {
+        return request.checkNotModified(etag(resources));
+    }
+
+    /**
+     * 推进资源版本号
+     * @param resources 资源名称
+     */
+    public void bump(String... resources) {
+        for (String resource : resources) {
+            version(resource).incrementAndGet();
+        }
+    }
+
+    /**
+     * 写事务提交后再推进版本号，避免并发读取在提交前拿到新 ETag 却读到旧数据；
+     * 排在其他监听器之后，内存快照先完成替换再让旧 ETag 失效
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onResourceChanged(ResourceChangedEvent event) {
+        bump(event.getResources());
+    }
+
+    private AtomicLong version(String resource) {
+        return versions.computeIfAbsent(resource, key -> new AtomicLong());
+    }
+}
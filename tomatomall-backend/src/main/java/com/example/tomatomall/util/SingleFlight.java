@@ -0,0 +1,99 @@
+package com.example.tomatomall.util;
+
+import com.example.tomatomall.vo.SingleFlightStatsVO;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 相同请求合并（single-flight）
+ * 同一个键同时只执行一次加载，加载期间到达的相同请求等待并共享这次加载的结果（或异常），
+ * 缓存失效或热点商品瞬间涌入时数据库只收到一份查询。加载结束即移除，本身不缓存结果。
+ * 数据变化后调用 forget / forgetAll，之后到达的请求重新加载，不会拿到变化前开始的那次加载的结果。
+ * 加载函数应自己开启事务，等待中的请求不持有数据库连接；共享的结果会被多个请求同时使用，不能再修改。
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class SingleFlight<K, V> {
+
+    private final String name;
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+
+    private final LongAdder loads = new LongAdder();
+
+    private final LongAdder shared = new LongAdder();
+
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 加载 key 对应的值；已有相同的加载在执行时等待它完成并返回同一结果
+     * @param key 键
+     * @param loader 加载函数，只在当前线程成为执行者时调用
+     * @return 加载结果
+     */
+    public V load(K key, Supplier<V> loader) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> running = calls.putIfAbsent(key, call);
+        if (running != null) {
+            shared.increment();
+            return await(running);
+        }
+        loads.increment();
+        try {
+            V value = loader.get();
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, call);
+        }
+    }
+
+    /**
+     * 之后对 key 的请求不再加入当前正在执行的加载
+     */
+    public void forget(K key) {
+        calls.remove(key);
+    }
+
+    public void forgetAll() {
+        calls.clear();
+    }
+
+    public SingleFlightStatsVO stats() {
+        SingleFlightStatsVO vo = new SingleFlightStatsVO();
+        vo.setName(name);
+        vo.setInFlight(calls.size());
+        vo.setLoads(loads.sum());
+        vo.setShared(shared.sum());
+        return vo;
+    }
+
+    private V await(CompletableFuture<V> call) {
+        try {
+            return call.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待合并的加载时被中断", e);
+        } catch (ExecutionException e) {
+            // 与执行者抛出同一个异常，调用方按原类型处理（如 TomatoMallException）
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.tomatomall.util;
+
+import com.example.tomatomall.vo.SingleFlightStatsVO;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+/**
+ * 创建并登记各服务的 SingleFlight，供 MetricsController 输出合并统计
+ */
+@Component
+public class SingleFlights {
+
+    private final List<SingleFlight<?, ?>> registered = new CopyOnWriteArrayList<>();
+
+    public <K, V> SingleFlight<K, V> create(String name) {
+        SingleFlight<K, V> singleFlight = new SingleFlight<>(name);
+        registered.add(singleFlight);
+        return singleFlight;
+    }
+
+    public List<SingleFlightStatsVO> stats() {
+        return registered.stream().map(SingleFlight::stats).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.tomatomall.util;
+
+/**
+ * 当前线程（即当前请求）执行的 SQL 语句数与耗时
+ * 由 SqlCountingDataSource 在每次执行语句后累加，RequestMetricsFilter 在请求开始时清零、结束时读取。
+ */
+public final class SqlCounter {
+
+    private static final ThreadLocal<long[]> COUNTER = ThreadLocal.withInitial(() -> new long[2]);
+
+    private SqlCounter() {
+    }
+
+    public static void reset() {
+        long[] counter = COUNTER.get();
+        counter[0] = 0;
+        counter[1] = 0;
+    }
+
+    public static void record(long nanos) {
+        long[] counter = COUNTER.get();
+        counter[0]++;
+        counter[1] += nanos;
+    }
+
+    public static long getStatements() {
+        return COUNTER.get()[0];
+    }
+
+    public static long getNanos() {
+        return COUNTER.get()[1];
+    }
+}
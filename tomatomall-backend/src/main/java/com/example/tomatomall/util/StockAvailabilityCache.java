@@ -0,0 +1,105 @@
+package com.example.tomatomall.util;
+
+import com.example.tomatomall.event.StockChangedEvent;
+import com.example.tomatomall.po.Stockpile;
+import com.example.tomatomall.repository.StockpileRepository;
+import com.example.tomatomall.vo.CacheStatsVO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 商品库存的短时缓存，只用于展示和加购时的预检查
+ * 本实例修改库存（店家调整、支付扣减）的事务提交后直接写入新值；其他实例的修改最多在 ttl-ms 后可见。
+ * 真正的扣减仍由库存表上的条件更新保证不超卖，这里读到旧值只会让“有货”标记晚一会儿变化。
+ *
+ * @author TomatoMall Team
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class StockAvailabilityCache {
+
+    @Resource
+    private StockpileRepository stockpileRepository;
+
+    @Value("${stock.availability.ttl-ms:2000}")
+    private long ttlMillis;
+
+    @Value("${stock.availability.max-entries:100000}")
+    private int maxEntries;
+
+    private LruCache<Integer, Entry> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = new LruCache<>(maxEntries);
+    }
+
+    /**
+     * 获取一个商品的库存
+     * @param productId 商品ID
+     * @return 库存，商品没有库存记录时返回 null
+     */
+    public Integer getAmount(Integer productId) {
+        return getAmounts(Collections.singletonList(productId)).get(productId);
+    }
+
+    /**
+     * 批量获取商品库存，缓存中没有或已过期的商品合并为一次查询
+     * @param productIds 商品ID
+     * @return 商品ID -> 库存，没有库存记录的商品不在结果中
+     */
+    public Map<Integer, Integer> getAmounts(Collection<Integer> productIds) {
+        Map<Integer, Integer> amounts = new HashMap<>();
+        Set<Integer> missing = new HashSet<>();
+        long now = System.nanoTime();
+        for (Integer productId : productIds) {
+            Entry entry = cache.get(productId);
+            if (entry != null && now - entry.loadedAt < TimeUnit.MILLISECONDS.toNanos(ttlMillis)) {
+                amounts.put(productId, entry.amount);
+            } else {
+                missing.add(productId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Stockpile stockpile : stockpileRepository.findByProductIdIn(missing)) {
+                cache.put(stockpile.getProductId(), new Entry(stockpile.getAmount(), now));
+                amounts.put(stockpile.getProductId(), stockpile.getAmount());
+            }
+        }
+        return amounts;
+    }
+
+    /**
+     * 库存修改提交后写入新值；事务回滚时不会收到
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onStockChanged(StockChangedEvent event) {
+        cache.put(event.getProductId(), new Entry(event.getAmount(), System.nanoTime()));
+    }
+
+    public CacheStatsVO stats() {
+        return CacheStatsVO.of("stock.availability", cache);
+    }
+
+    private static final class Entry {
+
+        final int amount;
+
+        final long loadedAt;
+
+        Entry(int amount, long loadedAt) {
+            this.amount = amount;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
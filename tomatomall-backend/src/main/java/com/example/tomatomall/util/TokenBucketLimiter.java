@@ -0,0 +1,81 @@
+package com.example.tomatomall.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * 按键限流的令牌桶（线程安全，纯内存）
+ * 每个键一个桶，容量 capacity，每秒补充 refillPerSecond 个令牌；
+ * 键数量超过上限时清理已经补满的桶，补满的桶与新建的桶等价，清理不影响限流结果。
+ */
+public class TokenBucketLimiter {
+
+    private final double capacity;
+
+    private final double refillPerNano;
+
+    private final int maxKeys;
+
+    private final LongSupplier nanoClock;
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public TokenBucketLimiter(int capacity, double refillPerSecond, int maxKeys) {
+        this(capacity, refillPerSecond, maxKeys, System::nanoTime);
+    }
+
+    TokenBucketLimiter(int capacity, double refillPerSecond, int maxKeys, LongSupplier nanoClock) {
+        this.capacity = capacity;
+        this.refillPerNano = refillPerSecond / 1_000_000_000d;
+        this.maxKeys = maxKeys;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * 尝试取一个令牌
+     * @param key 限流键（用户名、IP等）
+     * @return 取到令牌返回 true，被限流返回 false
+     */
+    public boolean tryAcquire(String key) {
+        if (buckets.size() > maxKeys) {
+            sweep();
+        }
+        return buckets.computeIfAbsent(key, k -> new Bucket(capacity)).tryAcquire(nanoClock.getAsLong());
+    }
+
+    private void sweep() {
+        long now = nanoClock.getAsLong();
+        buckets.entrySet().removeIf(entry -> entry.getValue().isFull(now));
+    }
+
+    private final class Bucket {
+
+        private double tokens;
+
+        private long lastRefill = nanoClock.getAsLong();
+
+        private Bucket(double tokens) {
+            this.tokens = tokens;
+        }
+
+        private synchronized boolean tryAcquire(long now) {
+            refill(now);
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+
+        private synchronized boolean isFull(long now) {
+            refill(now);
+            return tokens >= capacity;
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerNano);
+            lastRefill = now;
+        }
+    }
+}
@@ -4,7 +4,6 @@ import com.auth0.jwt.JWT;
 import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.example.tomatomall.po.Account;
-import com.example.tomatomall.repository.AccountRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -23,7 +22,7 @@ public class TokenUtil {
     private static final long EXPIRE_TIME = 24 * 60 * 60 * 1000;
 
     @Autowired
-    AccountRepository accountRepository;
+    AccountCache accountCache;
 
     public String getToken(Account account) {
         Date date = new Date(System.currentTimeMillis() + EXPIRE_TIME);
@@ -36,7 +35,7 @@ public class TokenUtil {
     public boolean verifyToken(String token) {
         try {
             Integer accountId=Integer.parseInt(JWT.decode(token).getAudience().get(0));
-            Account account= accountRepository.findById(accountId).get();
+            Account account= accountCache.getById(accountId);
             JWTVerifier jwtVerifier = JWT.require(Algorithm.HMAC256(account.getPassword())).build();
             jwtVerifier.verify(token);
             return true;
@@ -47,6 +46,6 @@ public class TokenUtil {
 
     public Account getAccount(String token){
         Integer accountId=Integer.parseInt(JWT.decode(token).getAudience().get(0));
-        return accountRepository.findById(accountId).get();
+        return accountCache.getById(accountId);
     }
 }
@@ -0,0 +1,54 @@
+package com.example.tomatomall.util.cache;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * 跨实例的缓存失效消息：某个实例修改数据后，通知其他实例丢弃本地层中的对应条目
+ * resources 不为空时是资源变化消息（cacheName 为空），通知其他实例推进 ResourceVersions 中的版本号。
+ * 字段都是简单类型，可直接序列化为 JSON 经外部消息通道传递。
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class CacheInvalidation {
+
+    /**
+     * 发出消息的实例，实例收到自己发出的消息时忽略
+     */
+    private String origin;
+
+    private String cacheName;
+
+    /**
+     * 失效的键（字符串形式）；all 为 true 时忽略
+     */
+    private List<String> keys;
+
+    /**
+     * 是否丢弃该缓存的全部条目
+     */
+    private boolean all;
+
+    /**
+     * 变化的资源（ResourceVersions 中的资源名称）
+     */
+    private List<String> resources;
+
+    public CacheInvalidation(String origin, String cacheName, List<String> keys, boolean all) {
+        this.origin = origin;
+        this.cacheName = cacheName;
+        this.keys = keys;
+        this.all = all;
+    }
+
+    public static CacheInvalidation resourcesChanged(String origin, List<String> resources) {
+        CacheInvalidation message = new CacheInvalidation();
+        message.setOrigin(origin);
+        message.setResources(resources);
+        return message;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.tomatomall.util.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * 缓存失效消息通道，把一个实例发出的失效消息送到所有实例（包括自己）
+ * 通过 cache.invalidation.transport 选择实现：loopback（默认，只在进程内传递）；
+ * 多实例部署时把它设为其他值，并自行声明基于 Redis 发布订阅、MQ 等的 CacheInvalidationBus Bean。
+ * 消息可能丢失或延迟，本地层条目因此带有存活时间（cache.local.ttl-seconds）兜底。
+ */
+public interface CacheInvalidationBus {
+
+    void publish(CacheInvalidation message);
+
+    void subscribe(Consumer<CacheInvalidation> listener);
+}
@@ -0,0 +1,129 @@
+package com.example.tomatomall.util.cache;
+
+import com.example.tomatomall.util.SingleFlight;
+import com.example.tomatomall.util.SingleFlights;
+import com.example.tomatomall.vo.CacheStatsVO;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 两级缓存的创建与登记
+ * 各服务在初始化时按名称创建自己的 TwoTierCache；本组件订阅 CacheInvalidationBus，
+ * 把其他实例发来的失效消息转给同名缓存，并汇总各缓存的命中统计供 /api/metrics/caches 输出。
+ * 配置前缀 cache：node-id 为空时启动时随机生成；local.ttl-seconds 为本地层条目的存活时间，
+ * 用于兜底丢失的失效消息；remote.ttl-seconds 为远程层条目的存活时间。
+ *
+ * @author TomatoMall Team
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class Caches {
+
+    @Resource
+    private RemoteCacheTier remoteCacheTier;
+
+    @Resource
+    private CacheInvalidationBus invalidationBus;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    @Resource
+    private SingleFlights singleFlights;
+
+    @Value("${cache.node-id:}")
+    private String nodeId;
+
+    @Value("${cache.local.ttl-seconds:300}")
+    private long localTtlSeconds;
+
+    @Value("${cache.remote.ttl-seconds:600}")
+    private long remoteTtlSeconds;
+
+    private final Map<String, TwoTierCache<?, ?>> caches = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        if (nodeId == null || nodeId.isEmpty()) {
+            nodeId = UUID.randomUUID().toString();
+        }
+        invalidationBus.subscribe(this::onInvalidation);
+    }
+
+    /**
+     * 创建两级缓存，值按 JSON 序列化后放入远程层
+     * @param name 缓存名，在所有实例中唯一对应同一份数据
+     * @param maxEntries 本地层容量
+     * @param valueType 值类型
+     */
+    public <K, V> TwoTierCache<K, V> create(String name, int maxEntries, Class<V> valueType) {
+        return register(name, maxEntries, objectMapper.constructType(valueType));
+    }
+
+    /**
+     * 创建两级缓存，值为列表等泛型类型
+     */
+    public <K, V> TwoTierCache<K, V> create(String name, int maxEntries, TypeReference<V> valueType) {
+        return register(name, maxEntries, objectMapper.getTypeFactory().constructType(valueType));
+    }
+
+    /**
+     * 创建只有本地层的缓存，值不需要可序列化；仍然收发失效消息
+     */
+    public <K, V> TwoTierCache<K, V> createLocal(String name, int maxEntries) {
+        return register(name, maxEntries, null);
+    }
+
+    /**
+     * @return 本实例在失效消息中的标识
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public List<CacheStatsVO> stats() {
+        return caches.values().stream().map(TwoTierCache::stats).collect(Collectors.toList());
+    }
+
+    private <K, V> TwoTierCache<K, V> register(String name, int maxEntries, JavaType valueType) {
+        SingleFlight<String, V> loads = singleFlights.create("cache." + name);
+        TwoTierCache<K, V> cache = new TwoTierCache<>(name, maxEntries, localTtlSeconds * 1000,
+                remoteCacheTier, remoteTtlSeconds * 1000, objectMapper, valueType, invalidationBus, nodeId, loads);
+        if (caches.putIfAbsent(name, cache) != null) {
+            throw new IllegalStateException("缓存名重复: " + name);
+        }
+        return cache;
+    }
+
+    private void onInvalidation(CacheInvalidation message) {
+        if (nodeId.equals(message.getOrigin())) {
+            // 本实例发出的消息，本地层已在发出前失效
+            return;
+        }
+        if (message.getCacheName() == null) {
+            // 资源变化消息，由 ResourceChangeRelay 处理
+            return;
+        }
+        TwoTierCache<?, ?> cache = caches.get(message.getCacheName());
+        if (cache == null) {
+            return;
+        }
+        if (message.isAll()) {
+            cache.invalidateLocalAll();
+        } else if (message.getKeys() != null) {
+            cache.invalidateLocal(message.getKeys());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.tomatomall.util.cache;
+
+import com.example.tomatomall.util.LruCache;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内的远程层实现，单机部署或测试时代替外部存储
+ * 与外部存储一样只保存序列化后的字节，取出的值每次都是新对象；每个缓存名各自容量有限。
+ */
+public class InMemoryRemoteCacheTier implements RemoteCacheTier {
+
+    private final int maxEntriesPerCache;
+
+    private final ConcurrentHashMap<String, LruCache<String, Entry>> caches = new ConcurrentHashMap<>();
+
+    public InMemoryRemoteCacheTier(int maxEntriesPerCache) {
+        this.maxEntriesPerCache = maxEntriesPerCache;
+    }
+
+    @Override
+    public byte[] get(String cacheName, String key) {
+        LruCache<String, Entry> cache = caches.get(cacheName);
+        Entry entry = cache == null ? null : cache.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            cache.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    @Override
+    public void put(String cacheName, String key, byte[] value, long ttlMillis) {
+        caches.computeIfAbsent(cacheName, name -> new LruCache<>(maxEntriesPerCache))
+                .put(key, new Entry(value, System.currentTimeMillis() + ttlMillis));
+    }
+
+    @Override
+    public void remove(String cacheName, String key) {
+        LruCache<String, Entry> cache = caches.get(cacheName);
+        if (cache != null) {
+            cache.remove(key);
+        }
+    }
+
+    @Override
+    public void clear(String cacheName) {
+        LruCache<String, Entry> cache = caches.get(cacheName);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    private static final class Entry {
+
+        private final byte[] value;
+
+        private final long expiresAt;
+
+        private Entry(byte[] value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
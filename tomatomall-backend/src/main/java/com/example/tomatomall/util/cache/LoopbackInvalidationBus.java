@@ -0,0 +1,35 @@
+package com.example.tomatomall.util.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 进程内的失效消息通道：publish 时在当前线程依次通知所有订阅者
+ * 单实例部署时使用；测试中让多个 Caches 订阅同一个实例，即可模拟多个后端实例之间的失效。
+ */
+public class LoopbackInvalidationBus implements CacheInvalidationBus {
+
+    private static final Logger log = LoggerFactory.getLogger(LoopbackInvalidationBus.class);
+
+    private final List<Consumer<CacheInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(CacheInvalidation message) {
+        for (Consumer<CacheInvalidation> listener : listeners) {
+            try {
+                listener.accept(message);
+            } catch (RuntimeException e) {
+                log.warn("缓存失效消息处理失败 ({}): {}", message.getCacheName(), e.toString());
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidation> listener) {
+        listeners.add(listener);
+    }
+}
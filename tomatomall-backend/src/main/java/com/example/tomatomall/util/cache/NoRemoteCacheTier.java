@@ -0,0 +1,24 @@
+package com.example.tomatomall.util.cache;
+
+/**
+ * 不使用远程层：读取总是未命中，写入与删除直接忽略
+ */
+public class NoRemoteCacheTier implements RemoteCacheTier {
+
+    @Override
+    public byte[] get(String cacheName, String key) {
+        return null;
+    }
+
+    @Override
+    public void put(String cacheName, String key, byte[] value, long ttlMillis) {
+    }
+
+    @Override
+    public void remove(String cacheName, String key) {
+    }
+
+    @Override
+    public void clear(String cacheName) {
+    }
+}
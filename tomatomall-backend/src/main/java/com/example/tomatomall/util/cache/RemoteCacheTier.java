@@ -0,0 +1,25 @@
+package com.example.tomatomall.util.cache;
+
+/**
+ * 远程缓存层（多个后端实例共享），按缓存名和键保存序列化后的值
+ * 远程层只是本地层之后、数据库之前的一层加速，实现出错时抛出运行时异常即可，
+ * TwoTierCache 会记录日志并按未命中处理。
+ * 通过 cache.remote.type 选择实现：none（默认，不使用远程层）、memory（进程内，供单机与测试使用）；
+ * 接入 Redis 等外部存储时把 cache.remote.type 设为其他值，并自行声明一个 RemoteCacheTier Bean。
+ */
+public interface RemoteCacheTier {
+
+    /**
+     * @return 序列化后的值，不存在或已过期时返回 null
+     */
+    byte[] get(String cacheName, String key);
+
+    void put(String cacheName, String key, byte[] value, long ttlMillis);
+
+    void remove(String cacheName, String key);
+
+    /**
+     * 删除一个缓存的全部键；外部存储可用带版本号的命名空间实现，不必逐个删除
+     */
+    void clear(String cacheName);
+}
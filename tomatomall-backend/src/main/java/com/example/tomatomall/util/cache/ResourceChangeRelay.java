@@ -0,0 +1,64 @@
+package com.example.tomatomall.util.cache;
+
+import com.example.tomatomall.event.ResourceChangedEvent;
+import com.example.tomatomall.util.ReadYourWrites;
+import com.example.tomatomall.util.ResourceVersions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.Arrays;
+
+/**
+ * 把资源变化转发给其他实例
+ * ResourceVersions 的版本号和 ReadYourWrites 的全局主库窗口都只在本实例内生效；
+ * 本实例提交 ResourceChangedEvent 后经 CacheInvalidationBus 广播资源名，其他实例收到后先开启主库窗口再推进版本号，
+ * 与本地的监听顺序一致。广播排在最后，接收方先收到同一次修改的缓存失效消息，推进 ETag 时本地层已经丢弃旧数据。
+ *
+ * @author TomatoMall Team
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class ResourceChangeRelay {
+
+    @Resource
+    private CacheInvalidationBus invalidationBus;
+
+    @Resource
+    private Caches caches;
+
+    @Resource
+    private ResourceVersions resourceVersions;
+
+    /**
+     * 只在配置了从库时存在
+     */
+    @Autowired(required = false)
+    private ReadYourWrites readYourWrites;
+
+    @PostConstruct
+    public void init() {
+        invalidationBus.subscribe(this::onMessage);
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onResourceChanged(ResourceChangedEvent event) {
+        invalidationBus.publish(CacheInvalidation.resourcesChanged(caches.getNodeId(), Arrays.asList(event.getResources())));
+    }
+
+    private void onMessage(CacheInvalidation message) {
+        if (message.getResources() == null || caches.getNodeId().equals(message.getOrigin())) {
+            return;
+        }
+        if (readYourWrites != null) {
+            readYourWrites.markResourceChanged();
+        }
+        resourceVersions.bump(message.getResources().toArray(new String[0]));
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.tomatomall.util.cache;
+
+import com.example.tomatomall.util.LruCache;
+import com.example.tomatomall.util.SingleFlight;
+import com.example.tomatomall.vo.CacheStatsVO;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 两级缓存：本地容量有限的 LRU（条目带存活时间）+ 可插拔的远程层（多个实例共享）
+ *
+ * 读取：本地层命中直接返回；未命中时先查远程层，再调用加载函数查库，结果写回两层。
+ * 同一个键同时未命中的请求合并为一次加载（SingleFlight）。加载函数返回 null 时不缓存。
+ *
+ * 失效：evict / evictAll / clear 删除本地层与远程层的条目，并经 CacheInvalidationBus 通知其他实例丢弃本地层。
+ * 加载期间若发生过失效（本实例修改或收到其他实例的消息），加载结果可能已过时，不写回任何一层；
+ * 其他实例的过时写回只能靠远程层存活时间（cache.remote.ttl-seconds）兜底。
+ *
+ * 本地层保存并返回同一个对象，调用方不能修改取到的值。
+ * 通过 Caches 创建；valueType 为 null 时只有本地层（值无法序列化时使用），失效消息照常收发。
+ *
+ * @param <K> 键类型，按 String.valueOf 转为字符串作为两层共用的键
+ * @param <V> 值类型
+ */
+public class TwoTierCache<K, V> {
+
+    private static final Logger log = LoggerFactory.getLogger(TwoTierCache.class);
+
+    private final String name;
+
+    private final LruCache<String, Entry<V>> local;
+
+    private final long localTtlMillis;
+
+    private final RemoteCacheTier remote;
+
+    private final long remoteTtlMillis;
+
+    private final ObjectMapper objectMapper;
+
+    private final JavaType valueType;
+
+    private final CacheInvalidationBus invalidationBus;
+
+    private final String nodeId;
+
+    private final SingleFlight<String, V> loads;
+
+    /**
+     * 每次失效自增；加载期间若发生过失效，则加载结果可能已过时，不写回
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    TwoTierCache(String name, int maxEntries, long localTtlMillis, RemoteCacheTier remote, long remoteTtlMillis,
+                 ObjectMapper objectMapper, JavaType valueType, CacheInvalidationBus invalidationBus, String nodeId,
+                 SingleFlight<String, V> loads) {
+        this.name = name;
+        this.local = new LruCache<>(maxEntries);
+        this.localTtlMillis = localTtlMillis;
+        this.remote = remote;
+        this.remoteTtlMillis = remoteTtlMillis;
+        this.objectMapper = objectMapper;
+        this.valueType = valueType;
+        this.invalidationBus = invalidationBus;
+        this.nodeId = nodeId;
+        this.loads = loads;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 读取缓存，两层都未命中时调用 loader 加载
+     * @param key 键
+     * @param loader 加载函数，返回 null 表示不存在（不缓存）；抛出的异常原样传给所有等待的调用方
+     * @return 缓存或加载的值
+     */
+    public V get(K key, Function<K, V> loader) {
+        String id = String.valueOf(key);
+        Entry<V> entry = local.get(id);
+        if (entry != null) {
+            if (entry.expiresAt > System.currentTimeMillis()) {
+                return entry.value;
+            }
+            local.remove(id);
+        }
+        return loads.load(id, () -> load(key, id, loader));
+    }
+
+    /**
+     * 使一个键失效
+     */
+    public void evict(K key) {
+        evictAll(Collections.singletonList(key));
+    }
+
+    /**
+     * 使一批键失效，其他实例只收到一条消息
+     */
+    public void evictAll(Collection<? extends K> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<String> ids = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            ids.add(String.valueOf(key));
+        }
+        invalidateLocal(ids);
+        if (valueType != null) {
+            for (String id : ids) {
+                try {
+                    remote.remove(name, id);
+                } catch (RuntimeException e) {
+                    log.warn("远程缓存删除失败 ({}:{}): {}", name, id, e.toString());
+                }
+            }
+        }
+        invalidationBus.publish(new CacheInvalidation(nodeId, name, ids, false));
+    }
+
+    /**
+     * 使全部条目失效
+     */
+    public void clear() {
+        invalidateLocalAll();
+        if (valueType != null) {
+            try {
+                remote.clear(name);
+            } catch (RuntimeException e) {
+                log.warn("远程缓存清空失败 ({}): {}", name, e.toString());
+            }
+        }
+        invalidationBus.publish(new CacheInvalidation(nodeId, name, null, true));
+    }
+
+    public CacheStatsVO stats() {
+        return CacheStatsVO.of(name, local);
+    }
+
+    /**
+     * 丢弃本地层的条目，之后的请求不再加入失效前开始的加载
+     */
+    void invalidateLocal(List<String> ids) {
+        synchronized (this) {
+            generation.incrementAndGet();
+            ids.forEach(local::remove);
+        }
+        ids.forEach(loads::forget);
+    }
+
+    void invalidateLocalAll() {
+        synchronized (this) {
+            generation.incrementAndGet();
+            local.clear();
+        }
+        loads.forgetAll();
+    }
+
+    private V load(K key, String id, Function<K, V> loader) {
+        long startGeneration = generation.get();
+        V value = readRemote(id);
+        boolean fromRemote = value != null;
+        if (!fromRemote) {
+            value = loader.apply(key);
+            if (value == null) {
+                return null;
+            }
+        }
+        synchronized (this) {
+            if (generation.get() != startGeneration) {
+                return value;
+            }
+            local.put(id, new Entry<>(value, System.currentTimeMillis() + localTtlMillis));
+        }
+        if (!fromRemote) {
+            writeRemote(id, value);
+        }
+        return value;
+    }
+
+    private V readRemote(String id) {
+        if (valueType == null) {
+            return null;
+        }
+        try {
+            byte[] bytes = remote.get(name, id);
+            return bytes == null ? null : objectMapper.readValue(bytes, valueType);
+        } catch (IOException | RuntimeException e) {
+            // 远程层不可用或值的格式已变化（如升级后字段不同），按未命中处理，重新加载后覆盖
+            log.warn("远程缓存读取失败 ({}:{}): {}", name, id, e.toString());
+            return null;
+        }
+    }
+
+    private void writeRemote(String id, V value) {
+        if (valueType == null) {
+            return;
+        }
+        try {
+            remote.put(name, id, objectMapper.writeValueAsBytes(value), remoteTtlMillis);
+        } catch (IOException | RuntimeException e) {
+            log.warn("远程缓存写入失败 ({}:{}): {}", name, id, e.toString());
+        }
+    }
+
+    private static final class Entry<V> {
+
+        private final V value;
+
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
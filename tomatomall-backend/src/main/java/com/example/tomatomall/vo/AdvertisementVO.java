@@ -6,6 +6,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import javax.persistence.*;
+import java.time.LocalDateTime;
 
 @Getter
 @Setter
@@ -18,6 +19,18 @@ public class AdvertisementVO {
     private String content;
     private String imgUrl;
     private Integer productId;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private Double productPrice;    // 关联商品的价格，只读
+    private String productCover;    // 关联商品的封面，只读
+
+    /**
+     * 是否处于投放时段内
+     * @param now 当前时间
+     */
+    public boolean isActiveAt(LocalDateTime now) {
+        return (startTime == null || !now.isBefore(startTime)) && (endTime == null || now.isBefore(endTime));
+    }
 
     public Advertisement toPO() {
         Advertisement advertisement = new Advertisement();
@@ -26,6 +39,8 @@ public class AdvertisementVO {
         advertisement.setContent(this.content);
         advertisement.setImgUrl(this.imgUrl);
         advertisement.setProductId(this.productId);
+        advertisement.setStartTime(this.startTime);
+        advertisement.setEndTime(this.endTime);
         return advertisement;
     }
 }
@@ -0,0 +1,31 @@
+package com.example.tomatomall.vo;
+
+import com.example.tomatomall.util.LruCache;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 缓存命中统计
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class CacheStatsVO {
+    private String name;
+    private int size;
+    private long hits;
+    private long misses;
+    private double hitRate;     // 命中率，0-1
+
+    public static CacheStatsVO of(String name, LruCache<?, ?> cache) {
+        CacheStatsVO vo = new CacheStatsVO();
+        vo.setName(name);
+        vo.setSize(cache.size());
+        vo.setHits(cache.getHits());
+        vo.setMisses(cache.getMisses());
+        long total = vo.getHits() + vo.getMisses();
+        vo.setHitRate(total == 0 ? 0 : (double) vo.getHits() / total);
+        return vo;
+    }
+}
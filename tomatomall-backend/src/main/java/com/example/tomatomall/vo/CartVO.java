@@ -1,6 +1,5 @@
 package com.example.tomatomall.vo;
 
-import com.example.tomatomall.po.Cart;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -20,13 +19,4 @@ public class CartVO {
     private String cover;
     private String detail;
 
-    public Cart toPO(){
-        Cart cart = new Cart();
-        cart.setCartitemId(this.cartItemId);
-        cart.setAccountId(this.accountId);
-        cart.setProductId(this.productId);
-        cart.setQuantity(this.quantity);
-        return cart;
-    }
-
 }
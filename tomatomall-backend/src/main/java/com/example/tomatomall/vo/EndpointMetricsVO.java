@@ -0,0 +1,29 @@
+package com.example.tomatomall.vo;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 单个接口的请求指标
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class EndpointMetricsVO {
+    private String endpoint;                // HTTP 方法 + 路由模板
+    private long count;
+    private long serverErrors;              // 5xx 响应数
+    private long slowRequests;              // 超过 metrics.slow-request-ms 的请求数
+    private double meanMillis;
+    private double p50Millis;               // 分位数取直方图桶上界
+    private double p90Millis;
+    private double p99Millis;
+    private double maxMillis;
+    private long[] bucketBoundsMillis;      // 直方图桶上界
+    private long[] bucketCounts;            // 比 bucketBoundsMillis 多一个，最后一个为超过最大上界的请求数
+    private double sqlStatementsPerRequest;
+    private double sqlMillisPerRequest;
+    private long maxSqlStatements;          // 单个请求执行过的最多语句数
+    private long sqlHeavyRequests;          // 语句数超过 metrics.sql-warn-statements 的请求数（疑似 N+1）
+}
@@ -14,6 +14,7 @@ public class OrderItemVO {
     private Integer productId;
     private Integer quantity;
     private double price;
+    private Integer cartItemId;
     public OrderItem toPO(){
         OrderItem orderItem = new OrderItem();
         orderItem.setOrderItemId(this.orderItemId);
@@ -21,6 +22,7 @@ public class OrderItemVO {
         orderItem.setProductId(this.productId);
         orderItem.setQuantity(this.quantity);
         orderItem.setPrice(this.price);
+        orderItem.setCartItemId(this.cartItemId);
         return orderItem;
     }
 }
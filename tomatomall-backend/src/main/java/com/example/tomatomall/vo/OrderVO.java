@@ -2,6 +2,7 @@ package com.example.tomatomall.vo;
 
 import com.example.tomatomall.enums.PaymentStatusEnum;
 import com.example.tomatomall.po.Order;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -15,6 +16,7 @@ import java.util.Date;
 @Getter
 @Setter
 @NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class OrderVO {
     private Integer orderId;
     private Integer accountId;
@@ -0,0 +1,19 @@
+package com.example.tomatomall.vo;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 领域事件发件箱统计
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class OutboxStatsVO {
+    private long pending;       // 待投递的行（含等待重试）
+    private long processing;    // 已认领、正在投递的行
+    private long failed;        // 超过重试次数、需要人工处理的行
+    private long delivered;     // 本实例启动以来投递成功的行数
+    private long retried;       // 本实例启动以来投递失败后安排重试的次数
+}
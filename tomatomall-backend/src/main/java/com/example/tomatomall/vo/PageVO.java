@@ -0,0 +1,34 @@
+package com.example.tomatomall.vo;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 分页查询结果
+ *
+ * @param <T> 元素类型
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class PageVO<T> {
+    private List<T> content;
+    private int page;           // 页码，从0开始
+    private int size;           // 每页条数
+    private long total;         // 总条数
+
+    public static <E, T> PageVO<T> of(Page<E> page, Function<E, T> mapper) {
+        PageVO<T> vo = new PageVO<>();
+        vo.setContent(page.getContent().stream().map(mapper).collect(Collectors.toList()));
+        vo.setPage(page.getNumber());
+        vo.setSize(page.getSize());
+        vo.setTotal(page.getTotalElements());
+        return vo;
+    }
+}
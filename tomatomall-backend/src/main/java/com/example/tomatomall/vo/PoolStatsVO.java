@@ -0,0 +1,28 @@
+package com.example.tomatomall.vo;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 数据库连接池统计
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class PoolStatsVO {
+    private String name;                // 连接池名，读写分离时为 primary / replica
+    private int activeConnections;
+    private int idleConnections;
+    private int totalConnections;
+    private int threadsAwaitingConnection;
+    private int maximumPoolSize;
+    private Long routedConnections;     // 读写分离时路由到该池的取连接次数，未启用时为空
+    private long connectionAcquires;    // 取连接次数
+    private double acquireMeanMillis;   // 取连接平均等待时间
+    private double acquireP99Millis;
+    private double acquireMaxMillis;
+    private long connectionTimeouts;    // 等待超过 connection-timeout 而失败的次数
+    private double usageMeanMillis;     // 连接平均被占用时长（取出到归还）
+    private double usageP99Millis;
+}
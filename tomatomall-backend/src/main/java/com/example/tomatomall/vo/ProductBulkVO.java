@@ -0,0 +1,15 @@
+package com.example.tomatomall.vo;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 批量导入/导出的一行商品数据：商品信息 + 规格 + 库存
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class ProductBulkVO extends ProductVO {
+    private Integer amount;    // 初始库存
+}
@@ -0,0 +1,36 @@
+package com.example.tomatomall.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量导入结果，逐行报告失败原因
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class ProductImportResultVO {
+    private int total;
+    private int succeeded;
+    private int failed;
+    private List<RowError> errors = new ArrayList<>();
+
+    public void addError(int row, String message) {
+        failed++;
+        errors.add(new RowError(row, message));
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private int row;           // 行号（从1开始，不含CSV表头）
+        private String message;    // 失败原因
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.tomatomall.vo;
 
 import com.example.tomatomall.po.Product;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -10,6 +11,7 @@ import java.util.List;
 @Getter
 @Setter
 @NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class ProductVO {
     private Integer id;
     private String title;
@@ -19,6 +21,7 @@ public class ProductVO {
     private String cover;
     private String detail;
     private Integer shopId;
+    private Integer version;    // 乐观锁版本号，更新时必须回传读取到的版本
     private List<SpecificationVO> specifications;
 
     public Product toPO(){
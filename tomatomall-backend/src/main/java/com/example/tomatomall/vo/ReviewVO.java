@@ -1,6 +1,5 @@
 package com.example.tomatomall.vo;
 
-import com.example.tomatomall.po.Cart;
 import com.example.tomatomall.po.Review;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -0,0 +1,18 @@
+package com.example.tomatomall.vo;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 相同请求合并统计
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class SingleFlightStatsVO {
+    private String name;
+    private int inFlight;       // 当前正在执行的加载数
+    private long loads;         // 实际执行的加载次数
+    private long shared;        // 等待并共享他人加载结果的请求数
+}
@@ -0,0 +1,18 @@
+package com.example.tomatomall.vo;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * 批量员工操作请求
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class StaffBatchVO {
+    private List<Integer> ids;          // 要操作的账户ID
+    private Integer targetShopId;       // 调店时的目标店铺ID
+}
@@ -0,0 +1,36 @@
+package com.example.tomatomall.vo;
+
+import com.example.tomatomall.enums.RoleEnum;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 店铺员工列表的精简视图
+ * 只包含员工管理页面需要的字段，由 JPQL 构造表达式直接查询，不加载完整的账户实体（不含密码等）。
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class StaffVO {
+    private Integer id;
+    private String username;
+    private String name;
+    private String telephone;
+    private String email;
+    private String location;
+    private RoleEnum role;
+    private Integer isValidStaff;   // 1 已通过，0 待审核
+
+    public StaffVO(Integer id, String username, String name, String telephone, String email,
+                   String location, RoleEnum role, Integer isValidStaff) {
+        this.id = id;
+        this.username = username;
+        this.name = name;
+        this.telephone = telephone;
+        this.email = email;
+        this.location = location;
+        this.role = role;
+        this.isValidStaff = isValidStaff;
+    }
+}
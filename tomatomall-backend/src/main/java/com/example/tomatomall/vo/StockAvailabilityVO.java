@@ -0,0 +1,23 @@
+package com.example.tomatomall.vo;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 商品可售库存，供购物车、商品列表批量展示“有货/缺货”
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class StockAvailabilityVO {
+    private Integer productId;
+    private Integer amount;
+    private boolean inStock;
+
+    public StockAvailabilityVO(Integer productId, Integer amount) {
+        this.productId = productId;
+        this.amount = amount;
+        this.inStock = amount > 0;
+    }
+}
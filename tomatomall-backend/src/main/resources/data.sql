@@ -1,3 +1,6 @@
+-- 初始表结构（Flyway 基线版本 1）。之后的结构变更以版本化脚本放在 db/migration 下，不再修改本文件；
+-- 新库先导入本文件，应用启动时 Flyway 会记录基线并执行后续迁移。
+
 -- 1. 先创建 accounts 表（不带 shop_id 外键）
 
 DROP TABLE IF EXISTS accounts;
@@ -0,0 +1,15 @@
+-- 基线（data.sql）之后最早的几处结构变更，已有库记为基线 1 后从这里开始补齐
+
+-- 商品乐观锁：ProductServiceImpl 更新商品时比较并自增版本号
+ALTER TABLE products
+    ADD COLUMN version INT NOT NULL DEFAULT 0 COMMENT '乐观锁版本号，每次更新自增';
+
+-- 广告投放时段：AdvertisementService 只返回处于投放时段内的广告
+ALTER TABLE advertisements
+    ADD COLUMN start_time DATETIME NULL COMMENT '投放开始时间，为空表示立即开始',
+    ADD COLUMN end_time   DATETIME NULL COMMENT '投放结束时间，为空表示一直投放';
+
+-- 店铺目录分页：按有效状态过滤后按评分排序、按名称前缀搜索
+CREATE INDEX idx_shops_valid_rate ON shops (is_valid, rate, id);
+CREATE INDEX idx_shops_valid_name ON shops (is_valid, name);
+CREATE INDEX idx_shops_name ON shops (name);
@@ -0,0 +1,55 @@
+-- 为 repository 包中各查询方法补齐复合索引与覆盖索引
+-- V1 为 data.sql 建立的初始结构（已有库由 Flyway 自动记为基线 1）。
+-- 以外键列开头的新索引可以代替 InnoDB 为外键隐式创建的单列索引，MySQL 会自动删除后者；
+-- data.sql 中显式创建的单列索引在新索引建好后手动删除。
+
+-- AccountRepository.findByUsername / findByUsernameAndPassword：登录、token 校验的账户缓存未命中
+CREATE INDEX idx_accounts_username ON accounts (username);
+-- AccountRepository.findByRole：查找管理员
+CREATE INDEX idx_accounts_role ON accounts (role);
+-- AccountRepository.findByShopId / findStaffByShopId / findUsernamesInShop / 批量店员更新
+CREATE INDEX idx_accounts_shop_staff ON accounts (shop_id, is_valid_staff);
+
+-- StockpileRepository.findByProductId / deleteByProductId：沿用 data.sql 中的 product_id 索引。
+-- 不做覆盖索引：amount 在抢购时频繁更新，放进二级索引会让每次扣减多写一棵索引树。
+
+-- SpecificationRepository.findByProductId / findByProductIdIn：覆盖索引，读规格不回表
+CREATE INDEX idx_specifications_product ON specifications (product_id, item, value);
+DROP INDEX product_id ON specifications;
+
+-- CartRepository.findByAccountId / findByProductId
+CREATE INDEX idx_carts_account_product ON carts (account_id, product_id, quantity);
+DROP INDEX account_id ON carts;
+
+-- OrderRepository.findByAccountId：按下单时间展示
+CREATE INDEX idx_orders_account_time ON orders (account_id, create_time);
+DROP INDEX account_id ON orders;
+
+-- OrderItemRepository.findByOrderId：覆盖索引，支付回调按订单明细扣库存
+CREATE INDEX idx_order_items_order ON order_items (order_id, product_id, quantity, price);
+
+-- MessageRepository.findByToUserOrderByCreatedTimeDesc / countByToUserAndIsReadFalse
+CREATE INDEX idx_messages_to_time ON messages (to_user, created_time);
+CREATE INDEX idx_messages_to_read ON messages (to_user, is_read);
+-- MessageRepository.findByFromUserOrderByCreatedTimeDesc / findByFromUserAndContentAndIsReadFalse
+CREATE INDEX idx_messages_from_time ON messages (from_user, created_time);
+CREATE INDEX idx_messages_from_read ON messages (from_user, is_read);
+
+-- ReviewRepository.findByProductId / findByShopId / findByAccountId
+CREATE INDEX idx_reviews_product_time ON reviews (product_id, created_at);
+CREATE INDEX idx_reviews_shop_time ON reviews (shop_id, created_at);
+CREATE INDEX idx_reviews_account ON reviews (account_id);
+
+-- AccountCouponsRelationRepository.findByAccountId / findByAccountIdAndCouponId / deleteByCouponId
+CREATE INDEX idx_account_coupons_account_coupon ON account_coupons_relation (account_id, coupon_id, quantity);
+CREATE INDEX idx_account_coupons_coupon ON account_coupons_relation (coupon_id);
+
+-- ShopRepository.findByOwnerId
+CREATE INDEX idx_shops_owner ON shops (owner_id);
+
+-- ProductRepository.findByShopId
+CREATE INDEX idx_products_shop ON products (shop_id);
+
+-- CartOrderRelationRepository.findByOrderId
+CREATE INDEX idx_carts_orders_relation_order ON carts_orders_relation (order_id, cartitem_id);
+DROP INDEX order_id ON carts_orders_relation;
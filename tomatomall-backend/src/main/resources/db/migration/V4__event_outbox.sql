@@ -0,0 +1,24 @@
+-- 领域事件发件箱：业务事务内按订阅者各写一行，由 DomainEventBus 的后台线程分批取出投递，
+-- 投递成功的行与订阅者的写入在同一事务中删除；失败的行按退避时间重试，超过次数后标记为 FAILED 留待人工处理。
+CREATE TABLE event_outbox
+(
+    id                BIGINT AUTO_INCREMENT PRIMARY KEY,
+    event_type        VARCHAR(200) NOT NULL COMMENT '事件类名',
+    subscriber        VARCHAR(100) NOT NULL COMMENT '订阅者 Bean 名',
+    payload           TEXT         NOT NULL COMMENT '事件 JSON',
+    status            VARCHAR(20)  NOT NULL COMMENT 'PENDING / PROCESSING / FAILED',
+    attempts          INT          NOT NULL DEFAULT 0 COMMENT '已失败次数',
+    next_attempt_time DATETIME(3)  NOT NULL COMMENT '待投递：最早投递时间；投递中：租约到期时间',
+    claim_token       VARCHAR(36)  NULL COMMENT '当前持有该行的投递批次',
+    last_error        VARCHAR(500) NULL,
+    created_time      DATETIME(3)  NOT NULL
+);
+
+-- DomainEventBus 轮询到期的行
+CREATE INDEX idx_event_outbox_due ON event_outbox (status, next_attempt_time);
+-- 按批次取回已认领的行
+CREATE INDEX idx_event_outbox_claim ON event_outbox (claim_token);
+
+-- 商品、店铺评分改由 ReviewRatingSubscriber 在评价事务提交后异步重算，不再在插入、删除评价的事务里同步执行
+DROP TRIGGER IF EXISTS after_review_insert_product;
+DROP TRIGGER IF EXISTS after_review_delete;
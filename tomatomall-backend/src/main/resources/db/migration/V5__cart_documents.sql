@@ -0,0 +1,26 @@
+-- 购物车改为每个用户一行的文档，由 CartStore 在内存中维护活跃用户的购物车并异步写回。
+-- items 为紧凑编码的购物车：下一个行ID|行ID:商品ID:数量;行ID:商品ID:数量...，行ID只在该用户的购物车内唯一且不复用；
+-- version 用于多实例写回时的比较并交换。
+CREATE TABLE cart_documents
+(
+    account_id   INT         NOT NULL PRIMARY KEY COMMENT '用户id',
+    items        TEXT        NOT NULL COMMENT '下一个行ID|行ID:商品ID:数量;...',
+    version      BIGINT      NOT NULL COMMENT '每次写回加一',
+    updated_time DATETIME(3) NOT NULL,
+    FOREIGN KEY (account_id) REFERENCES accounts (id) ON DELETE CASCADE
+);
+
+-- 迁移现有购物车：同一商品的多行合并为一行，保留最小的购物车商品id作为行ID，已发给前端的 cartItemId 继续有效
+SET SESSION group_concat_max_len = 1048576;
+INSERT INTO cart_documents (account_id, items, version, updated_time)
+SELECT account_id,
+       CONCAT(MAX(line_id) + 1, '|',
+              GROUP_CONCAT(CONCAT(line_id, ':', product_id, ':', quantity) ORDER BY line_id SEPARATOR ';')),
+       1,
+       NOW(3)
+FROM (SELECT account_id, product_id, MIN(cartitem_id) AS line_id, SUM(quantity) AS quantity
+      FROM carts
+      GROUP BY account_id, product_id) merged
+GROUP BY account_id;
+
+-- carts 表不再写入，保留到确认无需回退后再删除
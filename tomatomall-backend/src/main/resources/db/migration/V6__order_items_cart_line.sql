@@ -0,0 +1,6 @@
+-- 订单明细记下来自哪一行购物车；支付后按订单明细扣库存、删购物车行，不再经过 carts_orders_relation。
+-- 该关联表从未被写入过，且外键指向已不再使用的 carts 表，直接删除。
+ALTER TABLE order_items
+    ADD COLUMN cart_item_id INT NULL COMMENT '结算时的购物车行ID，在该用户的购物车内唯一';
+
+DROP TABLE IF EXISTS carts_orders_relation;
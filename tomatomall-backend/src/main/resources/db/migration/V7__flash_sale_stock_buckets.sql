@@ -0,0 +1,13 @@
+-- 抢购分桶库存：开启后商品库存平分到 flash_buckets 个桶，买家按账户散列到一个桶扣减，桶空时换桶，
+-- 各桶行锁互不影响；stockpiles.amount 由 FlashSaleService 定期按各桶合计回写，关闭时合并回 stockpiles。
+ALTER TABLE stockpiles
+    ADD COLUMN flash_buckets INT NOT NULL DEFAULT 0 COMMENT '抢购分桶数，0 表示未开启';
+
+CREATE TABLE stock_buckets
+(
+    product_id INT NOT NULL COMMENT '商品id',
+    bucket     INT NOT NULL COMMENT '桶号，0 到 flash_buckets - 1',
+    amount     INT NOT NULL COMMENT '桶内剩余库存',
+    PRIMARY KEY (product_id, bucket),
+    FOREIGN KEY (product_id) REFERENCES products (id) ON DELETE CASCADE
+);
@@ -0,0 +1,204 @@
+package com.example.tomatomall.service.serviceImpl;
+
+import com.example.tomatomall.po.StockBucket;
+import com.example.tomatomall.repository.StockBucketRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 抢购分桶扣减：按买家轮转挑桶、落空后只试更大的桶、跨桶凑齐与售罄
+ */
+class FlashSaleServiceImplTest {
+
+    private static final int PRODUCT_ID = 1;
+
+    private static final int BUCKETS = 4;
+
+    /**
+     * 模拟 stock_buckets 表：桶号 -> 库存
+     */
+    private final Map<Integer, Integer> table = new TreeMap<>();
+
+    /**
+     * 不为 null 时 findBucketsWithAtLeast 按这份过时的快照挑桶，模拟读取之后被其他事务扣空
+     */
+    private Map<Integer, Integer> snapshot;
+
+    /**
+     * 依次做过条件更新的桶号
+     */
+    private final List<Integer> updated = new ArrayList<>();
+
+    private boolean lockedAll;
+
+    private FlashSaleServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        StockBucketRepository repository = mock(StockBucketRepository.class, invocation -> {
+            switch (invocation.getMethod().getName()) {
+                case "findBucketsWithAtLeast": {
+                    int quantity = invocation.getArgument(1);
+                    List<Integer> buckets = new ArrayList<>();
+                    (snapshot == null ? table : snapshot).forEach((bucket, amount) -> {
+                        if (amount >= quantity) {
+                            buckets.add(bucket);
+                        }
+                    });
+                    return buckets;
+                }
+                case "deduct": {
+                    int bucket = invocation.getArgument(1);
+                    int quantity = invocation.getArgument(2);
+                    updated.add(bucket);
+                    Integer amount = table.get(bucket);
+                    if (amount == null || amount < quantity) {
+                        return 0;
+                    }
+                    table.put(bucket, amount - quantity);
+                    return 1;
+                }
+                case "lockByProductId": {
+                    lockedAll = true;
+                    List<StockBucket> rows = new ArrayList<>();
+                    table.forEach((bucket, amount) -> rows.add(new StockBucket(PRODUCT_ID, bucket, amount)));
+                    return rows;
+                }
+                case "saveAll": {
+                    Iterable<StockBucket> rows = invocation.getArgument(0);
+                    rows.forEach(row -> table.put(row.getBucket(), row.getAmount()));
+                    return rows;
+                }
+                case "toString":
+                    return "stockBucketRepository";
+                default:
+                    throw new UnsupportedOperationException(invocation.getMethod().getName());
+            }
+        });
+        service = new FlashSaleServiceImpl();
+        ReflectionTestUtils.setField(service, "stockBucketRepository", repository);
+    }
+
+    private void stock(Integer... amounts) {
+        table.clear();
+        for (int bucket = 0; bucket < amounts.length; bucket++) {
+            table.put(bucket, amounts[bucket]);
+        }
+    }
+
+    private List<Integer> amounts() {
+        return new ArrayList<>(table.values());
+    }
+
+    @Test
+    void startsAtTheBucketTheBuyerHashesTo() {
+        stock(5, 5, 5, 5);
+
+        service.deduct(PRODUCT_ID, BUCKETS, 6, 2);
+
+        assertEquals(Collections.singletonList(2), updated);
+        assertEquals(Arrays.asList(5, 5, 3, 5), amounts());
+        assertFalse(lockedAll);
+    }
+
+    @Test
+    void skipsBucketsThatCannotCoverTheQuantity() {
+        stock(5, 1, 5, 5);
+
+        service.deduct(PRODUCT_ID, BUCKETS, 1, 2);
+
+        assertEquals(Collections.singletonList(2), updated);
+        assertEquals(Arrays.asList(5, 1, 3, 5), amounts());
+    }
+
+    @Test
+    void wrapsAroundToTheLowestSufficientBucket() {
+        stock(5, 5, 0, 0);
+
+        service.deduct(PRODUCT_ID, BUCKETS, 3, 1);
+
+        assertEquals(Collections.singletonList(0), updated);
+        assertEquals(Arrays.asList(4, 5, 0, 0), amounts());
+    }
+
+    @Test
+    void fallsThroughToHigherBucketsWhenTheChosenOneWasDrained() {
+        stock(5, 5, 0, 5);
+        snapshot = new TreeMap<>(table);
+        snapshot.put(2, 5);
+
+        service.deduct(PRODUCT_ID, BUCKETS, 2, 1);
+
+        assertEquals(Arrays.asList(2, 3), updated);
+        assertEquals(Arrays.asList(5, 5, 0, 4), amounts());
+        assertFalse(lockedAll);
+    }
+
+    @Test
+    void neverRetriesLowerBucketsAfterAMiss() {
+        stock(5, 5, 5, 0);
+        snapshot = new TreeMap<>(table);
+        snapshot.put(3, 5);
+
+        assertThrows(ConcurrencyFailureException.class, () -> service.deduct(PRODUCT_ID, BUCKETS, 3, 1));
+
+        assertEquals(Collections.singletonList(3), updated);
+        assertEquals(Arrays.asList(5, 5, 5, 0), amounts());
+        assertFalse(lockedAll);
+    }
+
+    @Test
+    void takesStockAcrossBucketsWhenNoneSufficesAlone() {
+        stock(2, 1, 0, 3);
+
+        service.deduct(PRODUCT_ID, BUCKETS, 1, 5);
+
+        assertTrue(lockedAll);
+        assertTrue(updated.isEmpty());
+        assertEquals(Arrays.asList(0, 0, 0, 1), amounts());
+    }
+
+    @Test
+    void failsWhenTheCombinedTotalIsShort() {
+        stock(1, 1, 1, 1);
+
+        assertThrows(RuntimeException.class, () -> service.deduct(PRODUCT_ID, BUCKETS, 1, 5));
+
+        assertEquals(Arrays.asList(1, 1, 1, 1), amounts());
+    }
+
+    @Test
+    void drainsToZeroWithoutOverselling() {
+        stock(25, 25, 25, 25);
+        Random random = new Random(42);
+        int sold = 0;
+        int maxQuantity = 3;
+        while (maxQuantity > 0) {
+            int quantity = 1 + random.nextInt(maxQuantity);
+            try {
+                service.deduct(PRODUCT_ID, BUCKETS, random.nextInt(1000), quantity);
+                sold += quantity;
+            } catch (RuntimeException e) {
+                maxQuantity = quantity - 1;
+            }
+        }
+        assertEquals(100, sold);
+        assertEquals(Arrays.asList(0, 0, 0, 0), amounts());
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.tomatomall.service.serviceImpl;
+
+import com.example.tomatomall.exception.TomatoMallException;
+import com.example.tomatomall.vo.SpecificationVO;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProductBulkServiceImplTest {
+
+    @Test
+    void specificationsWithDelimitersRoundTrip() {
+        List<SpecificationVO> specs = Arrays.asList(spec("颜色", "红;蓝"), spec("尺寸:码", "XL"), spec("路径", "C:\\tmp\\"));
+        String formatted = ProductBulkServiceImpl.formatSpecifications(specs);
+        List<SpecificationVO> parsed = ProductBulkServiceImpl.parseSpecifications(formatted);
+        assertEquals(3, parsed.size());
+        for (int i = 0; i < specs.size(); i++) {
+            assertEquals(specs.get(i).getItem(), parsed.get(i).getItem());
+            assertEquals(specs.get(i).getValue(), parsed.get(i).getValue());
+        }
+    }
+
+    @Test
+    void unescapedSpecificationsStillParse() {
+        List<SpecificationVO> parsed = ProductBulkServiceImpl.parseSpecifications("颜色:红; 尺寸 : XL ;");
+        assertEquals(2, parsed.size());
+        assertEquals("尺寸", parsed.get(1).getItem());
+        assertEquals("XL", parsed.get(1).getValue());
+    }
+
+    @Test
+    void specificationWithoutSeparatorIsRejected() {
+        assertThrows(TomatoMallException.class, () -> ProductBulkServiceImpl.parseSpecifications("颜色红"));
+    }
+
+    private static SpecificationVO spec(String item, String value) {
+        SpecificationVO spec = new SpecificationVO();
+        spec.setItem(item);
+        spec.setValue(value);
+        return spec;
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.tomatomall.util;
+
+import com.example.tomatomall.po.CartDocument;
+import com.example.tomatomall.repository.CartDocumentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 两个实例共用同一张 cart_documents 表，各自修改同一用户的购物车后写回，验证版本冲突时的三方合并
+ */
+class CartStoreTest {
+
+    private static final Integer ACCOUNT = 7;
+
+    /**
+     * 模拟 cart_documents 表：accountId -> (items, version)
+     */
+    private final Map<Integer, CartDocument> table = new ConcurrentHashMap<>();
+
+    /**
+     * 接下来这么多次 compareAndSet 模拟其他实例抢先写入而返回 0
+     */
+    private final AtomicInteger rejectedWrites = new AtomicInteger();
+
+    private CartStore nodeA;
+
+    private CartStore nodeB;
+
+    @BeforeEach
+    void setUp() {
+        CartDocumentRepository repository = mock(CartDocumentRepository.class, invocation -> {
+            String method = invocation.getMethod().getName();
+            if ("toString".equals(method)) {
+                return "cartDocumentRepository";
+            }
+            Integer accountId = invocation.getArgument(0);
+            switch (method) {
+                case "findSnapshot":
+                    CartDocument row = table.get(accountId);
+                    return row == null ? null : new CartDocument(accountId, row.getItems(), row.getVersion());
+                case "insert":
+                    if (table.putIfAbsent(accountId, new CartDocument(accountId, invocation.getArgument(1), 1L)) != null) {
+                        throw new DataIntegrityViolationException("duplicate account_id");
+                    }
+                    return 1;
+                case "compareAndSet":
+                    CartDocument current = table.get(accountId);
+                    Long version = invocation.getArgument(1);
+                    if (rejectedWrites.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                        return 0;
+                    }
+                    if (current == null || !current.getVersion().equals(version)) {
+                        return 0;
+                    }
+                    table.put(accountId, new CartDocument(accountId, invocation.getArgument(2), version + 1));
+                    return 1;
+                default:
+                    throw new UnsupportedOperationException(method);
+            }
+        });
+        nodeA = store(repository);
+        nodeB = store(repository);
+        // 两个实例都已读到 版本1：行1 商品10×1，行2 商品20×1
+        table.put(ACCOUNT, new CartDocument(ACCOUNT, "3|1:10:1;2:20:1", 1L));
+        nodeA.getLines(ACCOUNT);
+        nodeB.getLines(ACCOUNT);
+    }
+
+    private static CartStore store(CartDocumentRepository repository) {
+        CartStore store = new CartStore();
+        ReflectionTestUtils.setField(store, "cartDocumentRepository", repository);
+        ReflectionTestUtils.setField(store, "transactionManager", new NoOpTransactionManager());
+        ReflectionTestUtils.setField(store, "maxEntries", 100);
+        ReflectionTestUtils.setField(store, "revalidateSeconds", 3600L);
+        store.init();
+        return store;
+    }
+
+    /**
+     * 库中当前的购物车：行ID -> "商品ID×数量"
+     */
+    private Map<Integer, String> stored() {
+        Map<Integer, CartStore.Line> lines = new LinkedHashMap<>();
+        CartStore.decode(table.get(ACCOUNT).getItems(), lines);
+        Map<Integer, String> result = new LinkedHashMap<>();
+        lines.forEach((lineId, line) -> result.put(lineId, line.getProductId() + "x" + line.getQuantity()));
+        return result;
+    }
+
+    @Test
+    void editsToDifferentLinesAreBothKept() {
+        nodeA.setQuantity(ACCOUNT, 1, 3);
+        nodeB.setQuantity(ACCOUNT, 2, 5);
+
+        nodeA.flushAll();
+        nodeB.flushAll();
+
+        assertEquals("10x3", stored().get(1));
+        assertEquals("20x5", stored().get(2));
+        assertEquals(Long.valueOf(3), table.get(ACCOUNT).getVersion());
+    }
+
+    @Test
+    void laterWriterWinsOnTheSameLine() {
+        nodeA.setQuantity(ACCOUNT, 1, 3);
+        nodeB.setQuantity(ACCOUNT, 1, 7);
+
+        nodeA.flushAll();
+        nodeB.flushAll();
+
+        assertEquals("10x7", stored().get(1));
+        assertEquals("20x1", stored().get(2));
+    }
+
+    @Test
+    void removalOnOneNodeSurvivesEditOfAnotherLine() {
+        nodeA.remove(ACCOUNT, Collections.singletonList(2));
+        nodeB.setQuantity(ACCOUNT, 1, 4);
+
+        nodeA.flushAll();
+        nodeB.flushAll();
+
+        assertEquals("10x4", stored().get(1));
+        assertNull(stored().get(2));
+    }
+
+    @Test
+    void concurrentAddsGetDistinctLineIds() {
+        nodeA.add(ACCOUNT, 30, 1, 99);
+        nodeB.add(ACCOUNT, 40, 2, 99);
+
+        nodeA.flushAll();
+        nodeB.flushAll();
+
+        Map<Integer, String> lines = stored();
+        assertEquals(4, lines.size());
+        assertEquals("30x1", lines.get(3));
+        assertEquals("40x2", lines.get(4));
+        assertEquals(Arrays.asList(1, 2, 3, 4), Arrays.asList(lines.keySet().toArray()));
+    }
+
+    @Test
+    void sameProductAddedOnBothNodesStaysOneLine() {
+        nodeA.add(ACCOUNT, 30, 1, 99);
+        nodeB.add(ACCOUNT, 30, 2, 99);
+
+        nodeA.flushAll();
+        nodeB.flushAll();
+
+        Map<Integer, String> lines = stored();
+        assertEquals(3, lines.size());
+        assertEquals("30x2", lines.get(3));
+    }
+
+    @Test
+    void firstWriteRacesOnInsert() {
+        table.clear();
+        nodeA.add(8, 10, 1, 99);
+        nodeB.add(8, 20, 1, 99);
+
+        nodeB.flushAll();
+        nodeA.flushAll();
+
+        Map<Integer, CartStore.Line> lines = new LinkedHashMap<>();
+        CartStore.decode(table.get(8).getItems(), lines);
+        assertEquals(2, lines.size());
+        assertEquals(Integer.valueOf(20), lines.get(1).getProductId());
+        assertEquals(Integer.valueOf(10), lines.get(2).getProductId());
+        assertEquals(Long.valueOf(2), table.get(8).getVersion());
+    }
+
+    @Test
+    void persistentConflictKeepsEditsPendingForTheNextFlush() {
+        nodeA.setQuantity(ACCOUNT, 1, 3);
+        rejectedWrites.set(3);
+
+        nodeA.flushAll();
+        assertEquals("10x1", stored().get(1));
+
+        nodeA.flushAll();
+        assertEquals("10x3", stored().get(1));
+    }
+
+    @Test
+    void removeAndFlushFailsUntilTheRemovalIsStored() {
+        rejectedWrites.set(3);
+
+        assertThrows(ConcurrencyFailureException.class,
+                () -> nodeA.removeAndFlush(ACCOUNT, Collections.singletonList(2)));
+        assertEquals("20x1", stored().get(2));
+
+        // 支付事件投递回滚后重试：行已在内存中删除，这次只需写回
+        assertEquals(0, nodeA.removeAndFlush(ACCOUNT, Collections.singletonList(2)));
+        assertNull(stored().get(2));
+        assertEquals("10x1", stored().get(1));
+    }
+
+    /**
+     * 写回只需要事务模板能执行回调
+     */
+    private static final class NoOpTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.tomatomall.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ClientIpResolverTest {
+
+    private static ClientIpResolver resolver(String... trustedProxies) {
+        ClientIpResolver resolver = new ClientIpResolver();
+        ReflectionTestUtils.setField(resolver, "trustedProxies", trustedProxies);
+        resolver.init();
+        return resolver;
+    }
+
+    private static MockHttpServletRequest request(String remote, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remote);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        return request;
+    }
+
+    @Test
+    void ignoresForwardedForWithoutTrustedProxies() {
+        assertEquals("203.0.113.9", resolver().resolve(request("203.0.113.9", "198.51.100.1")));
+    }
+
+    @Test
+    void ignoresForwardedForFromUntrustedSource() {
+        assertEquals("203.0.113.9", resolver("10.0.0.1").resolve(request("203.0.113.9", "198.51.100.1")));
+    }
+
+    @Test
+    void takesClientBehindTrustedProxy() {
+        assertEquals("198.51.100.1", resolver("10.0.0.1").resolve(request("10.0.0.1", "198.51.100.1")));
+    }
+
+    @Test
+    void skipsTrustedHopsAndSpoofedLeftEntries() {
+        ClientIpResolver resolver = resolver("10.0.0.1", "10.0.0.2");
+        assertEquals("198.51.100.1",
+                resolver.resolve(request("10.0.0.1", "1.2.3.4, 198.51.100.1, 10.0.0.2")));
+    }
+
+    @Test
+    void fallsBackToProxyWhenHeaderMissing() {
+        assertEquals("10.0.0.1", resolver("10.0.0.1").resolve(request("10.0.0.1", null)));
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.tomatomall.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CsvUtilTest {
+
+    @Test
+    void plainFieldsAreNotQuoted() {
+        assertEquals("1,abc,2.5\n", CsvUtil.toLine(1, "abc", 2.5));
+    }
+
+    @Test
+    void nullIsWrittenAsEmptyField() {
+        assertEquals("a,,b\n", CsvUtil.toLine("a", null, "b"));
+    }
+
+    @Test
+    void specialCharactersRoundTrip() throws IOException {
+        String[] fields = {"逗号,在中间", "引号\"在中间\"", "换行\n在中间", "回车\r\n结尾", "", "普通"};
+        String line = CsvUtil.toLine((Object[]) fields);
+        BufferedReader reader = new BufferedReader(new StringReader(line));
+        assertEquals(Arrays.asList(fields), CsvUtil.readRecord(reader));
+        assertNull(CsvUtil.readRecord(reader));
+    }
+
+    @Test
+    void readsConsecutiveRecordsWithCrLf() throws IOException {
+        BufferedReader reader = new BufferedReader(new StringReader("a,\"b,c\"\r\n\"d\"\"e\",f\r\n"));
+        assertEquals(Arrays.asList("a", "b,c"), CsvUtil.readRecord(reader));
+        assertEquals(Arrays.asList("d\"e", "f"), CsvUtil.readRecord(reader));
+        assertNull(CsvUtil.readRecord(reader));
+    }
+
+    @Test
+    void lastRecordWithoutNewline() throws IOException {
+        BufferedReader reader = new BufferedReader(new StringReader("x,\"y\""));
+        List<String> record = CsvUtil.readRecord(reader);
+        assertEquals(Arrays.asList("x", "y"), record);
+        assertNull(CsvUtil.readRecord(reader));
+    }
+}
@@ -0,0 +1,342 @@
+package com.example.tomatomall.util;
+
+import com.example.tomatomall.enums.OutboxStatusEnum;
+import com.example.tomatomall.event.DomainEventSubscriber;
+import com.example.tomatomall.event.OrderPaidEvent;
+import com.example.tomatomall.po.OutboxEvent;
+import com.example.tomatomall.repository.OutboxEventRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 发件箱投递：认领与租约过期、失败后退避重试、超过次数标记为 FAILED、租约被抢走时回滚
+ */
+class DomainEventBusTest {
+
+    private static final String SUBSCRIBER = "orderPaidSubscriber";
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final long BACKOFF_MILLIS = 1000;
+
+    /**
+     * 模拟 event_outbox 表：id -> 行
+     */
+    private final Map<Long, OutboxEvent> table = new ConcurrentSkipListMap<>();
+
+    private final AtomicLong ids = new AtomicLong();
+
+    /**
+     * 订阅者收到的订单号
+     */
+    private final List<Integer> handled = new CopyOnWriteArrayList<>();
+
+    /**
+     * 订阅者的行为，默认什么也不做
+     */
+    private volatile Consumer<OrderPaidEvent> behaviour = event -> {
+    };
+
+    private final RecordingTransactionManager transactionManager = new RecordingTransactionManager();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ThreadPoolExecutor workers;
+
+    private DomainEventBus bus;
+
+    @BeforeEach
+    void setUp() {
+        OutboxEventRepository repository = mock(OutboxEventRepository.class, invocation -> {
+            switch (invocation.getMethod().getName()) {
+                case "findDueIds": {
+                    Collection<OutboxStatusEnum> statuses = invocation.getArgument(0);
+                    LocalDateTime now = invocation.getArgument(1);
+                    Pageable pageable = invocation.getArgument(2);
+                    return table.values().stream()
+                            .filter(row -> statuses.contains(row.getStatus()) && !row.getNextAttemptTime().isAfter(now))
+                            .map(OutboxEvent::getId)
+                            .limit(pageable.getPageSize())
+                            .collect(Collectors.toList());
+                }
+                case "claim": {
+                    Collection<Long> claimed = invocation.getArgument(0);
+                    Collection<OutboxStatusEnum> statuses = invocation.getArgument(1);
+                    LocalDateTime now = invocation.getArgument(2);
+                    int count = 0;
+                    for (Long id : claimed) {
+                        OutboxEvent row = table.get(id);
+                        if (row != null && statuses.contains(row.getStatus()) && !row.getNextAttemptTime().isAfter(now)) {
+                            row.setStatus(OutboxStatusEnum.PROCESSING);
+                            row.setClaimToken(invocation.getArgument(3));
+                            row.setNextAttemptTime(invocation.getArgument(4));
+                            count++;
+                        }
+                    }
+                    return count;
+                }
+                case "findByClaimTokenOrderById": {
+                    String token = invocation.getArgument(0);
+                    return table.values().stream()
+                            .filter(row -> token.equals(row.getClaimToken()))
+                            .map(DomainEventBusTest::copy)
+                            .collect(Collectors.toList());
+                }
+                case "deleteClaimed": {
+                    Long id = invocation.getArgument(0);
+                    String token = invocation.getArgument(1);
+                    OutboxEvent row = table.get(id);
+                    return row != null && token.equals(row.getClaimToken()) && table.remove(id, row) ? 1 : 0;
+                }
+                case "release": {
+                    OutboxEvent row = table.get(invocation.<Long>getArgument(0));
+                    String token = invocation.getArgument(1);
+                    if (row == null || !token.equals(row.getClaimToken())) {
+                        return 0;
+                    }
+                    row.setStatus(invocation.getArgument(2));
+                    row.setAttempts(invocation.<Integer>getArgument(3));
+                    row.setNextAttemptTime(invocation.getArgument(4));
+                    row.setClaimToken(null);
+                    row.setLastError(invocation.getArgument(5));
+                    return 1;
+                }
+                case "countByStatus": {
+                    OutboxStatusEnum status = invocation.getArgument(0);
+                    return table.values().stream().filter(row -> row.getStatus() == status).count();
+                }
+                case "toString":
+                    return "outboxEventRepository";
+                default:
+                    throw new UnsupportedOperationException(invocation.getMethod().getName());
+            }
+        });
+        DomainEventSubscriber<OrderPaidEvent> subscriber = new DomainEventSubscriber<OrderPaidEvent>() {
+            @Override
+            public Class<OrderPaidEvent> eventType() {
+                return OrderPaidEvent.class;
+            }
+
+            @Override
+            public void handle(OrderPaidEvent event) {
+                handled.add(event.getOrderId());
+                behaviour.accept(event);
+            }
+        };
+        workers = new ThreadPoolExecutor(2, 2, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        bus = new DomainEventBus();
+        ReflectionTestUtils.setField(bus, "outboxEventRepository", repository);
+        ReflectionTestUtils.setField(bus, "transactionTemplate", new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(bus, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(bus, "subscribers", Collections.singletonMap(SUBSCRIBER, subscriber));
+        ReflectionTestUtils.setField(bus, "workers", workers);
+        ReflectionTestUtils.setField(bus, "batchSize", 100);
+        ReflectionTestUtils.setField(bus, "leaseSeconds", 60L);
+        ReflectionTestUtils.setField(bus, "maxAttempts", MAX_ATTEMPTS);
+        ReflectionTestUtils.setField(bus, "backoffMillis", BACKOFF_MILLIS);
+        ReflectionTestUtils.setField(bus, "maxBackoffMillis", 300000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * 插入一行待投递的支付事件
+     */
+    private OutboxEvent enqueue(int orderId) throws Exception {
+        OutboxEvent row = new OutboxEvent();
+        row.setId(ids.incrementAndGet());
+        row.setEventType(OrderPaidEvent.class.getName());
+        row.setSubscriber(SUBSCRIBER);
+        row.setPayload(objectMapper.writeValueAsString(new OrderPaidEvent(orderId, 7)));
+        row.setStatus(OutboxStatusEnum.PENDING);
+        row.setNextAttemptTime(LocalDateTime.now().minusSeconds(1));
+        row.setCreatedTime(LocalDateTime.now());
+        table.put(row.getId(), row);
+        return row;
+    }
+
+    private static OutboxEvent copy(OutboxEvent row) {
+        OutboxEvent copy = new OutboxEvent();
+        copy.setId(row.getId());
+        copy.setEventType(row.getEventType());
+        copy.setSubscriber(row.getSubscriber());
+        copy.setPayload(row.getPayload());
+        copy.setStatus(row.getStatus());
+        copy.setAttempts(row.getAttempts());
+        copy.setNextAttemptTime(row.getNextAttemptTime());
+        copy.setClaimToken(row.getClaimToken());
+        copy.setLastError(row.getLastError());
+        copy.setCreatedTime(row.getCreatedTime());
+        return copy;
+    }
+
+    @Test
+    void deliveredRowsAreDeletedAndCounted() throws Exception {
+        enqueue(1);
+        enqueue(2);
+
+        assertEquals(2, bus.drainBatch());
+
+        assertTrue(table.isEmpty());
+        assertEquals(2, handled.size());
+        assertTrue(handled.containsAll(Arrays.asList(1, 2)));
+        assertEquals(2, bus.stats().getDelivered());
+        assertEquals(0, transactionManager.rollbacks.get());
+    }
+
+    @Test
+    void rowWithExpiredLeaseIsReclaimed() throws Exception {
+        // 持有它的实例已宕机：仍是 PROCESSING，但租约已到期
+        OutboxEvent row = enqueue(1);
+        row.setStatus(OutboxStatusEnum.PROCESSING);
+        row.setClaimToken("dead-instance");
+        row.setNextAttemptTime(LocalDateTime.now().minusSeconds(1));
+
+        assertEquals(1, bus.drainBatch());
+
+        assertTrue(table.isEmpty());
+        assertEquals(Collections.singletonList(1), handled);
+        assertEquals(1, bus.stats().getDelivered());
+    }
+
+    @Test
+    void rowWithActiveLeaseIsLeftAlone() throws Exception {
+        OutboxEvent row = enqueue(1);
+        row.setStatus(OutboxStatusEnum.PROCESSING);
+        row.setClaimToken("other-instance");
+        row.setNextAttemptTime(LocalDateTime.now().plusSeconds(60));
+
+        assertEquals(0, bus.drainBatch());
+
+        assertTrue(handled.isEmpty());
+        assertEquals("other-instance", table.get(row.getId()).getClaimToken());
+    }
+
+    @Test
+    void failedDeliveryIsReleasedWithBackoff() throws Exception {
+        OutboxEvent row = enqueue(1);
+        row.setAttempts(1);
+        behaviour = event -> {
+            throw new IllegalStateException("库存服务不可用");
+        };
+
+        LocalDateTime before = LocalDateTime.now();
+        assertEquals(1, bus.drainBatch());
+        LocalDateTime after = LocalDateTime.now();
+
+        // 第 2 次失败，退避 backoff-ms << 1
+        OutboxEvent released = table.get(row.getId());
+        assertEquals(OutboxStatusEnum.PENDING, released.getStatus());
+        assertEquals(2, released.getAttempts());
+        assertNull(released.getClaimToken());
+        assertTrue(released.getLastError().contains("库存服务不可用"));
+        assertFalse(released.getNextAttemptTime().isBefore(before.plusNanos(2 * BACKOFF_MILLIS * 1_000_000)));
+        assertFalse(released.getNextAttemptTime().isAfter(after.plusNanos(2 * BACKOFF_MILLIS * 1_000_000)));
+        assertEquals(1, transactionManager.rollbacks.get());
+        assertEquals(1, bus.stats().getRetried());
+        assertEquals(0, bus.stats().getDelivered());
+
+        // 退避期间不会被再次认领
+        assertEquals(0, bus.drainBatch());
+        assertEquals(1, handled.size());
+    }
+
+    @Test
+    void rowIsMarkedFailedAfterMaxAttempts() throws Exception {
+        OutboxEvent row = enqueue(1);
+        row.setAttempts(MAX_ATTEMPTS - 1);
+        behaviour = event -> {
+            throw new IllegalStateException("库存服务不可用");
+        };
+
+        assertEquals(1, bus.drainBatch());
+
+        OutboxEvent failed = table.get(row.getId());
+        assertEquals(OutboxStatusEnum.FAILED, failed.getStatus());
+        assertEquals(MAX_ATTEMPTS, failed.getAttempts());
+        assertNull(failed.getClaimToken());
+        assertEquals(0, bus.stats().getRetried());
+        assertEquals(1, bus.stats().getFailed());
+
+        // FAILED 的行不再自动重试
+        failed.setNextAttemptTime(LocalDateTime.now().minusSeconds(1));
+        assertEquals(0, bus.drainBatch());
+        assertEquals(1, handled.size());
+    }
+
+    @Test
+    void deliveryIsRolledBackWhenTheLeaseWasTakenOver() throws Exception {
+        OutboxEvent row = enqueue(1);
+        // 订阅者处理期间租约过期，另一个批次重新认领了这一行
+        behaviour = event -> table.get(row.getId()).setClaimToken("other-batch");
+
+        assertEquals(1, bus.drainBatch());
+
+        OutboxEvent current = table.get(row.getId());
+        assertEquals(OutboxStatusEnum.PROCESSING, current.getStatus());
+        assertEquals("other-batch", current.getClaimToken());
+        assertEquals(0, current.getAttempts());
+        assertEquals(1, transactionManager.rollbacks.get());
+        assertEquals(0, bus.stats().getDelivered());
+        assertEquals(0, bus.stats().getRetried());
+    }
+
+    /**
+     * 记录回滚；标记为 rollback-only 的事务在提交时同样按回滚计
+     */
+    private static final class RecordingTransactionManager implements PlatformTransactionManager {
+
+        private final AtomicInteger rollbacks = new AtomicInteger();
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            if (status.isRollbackOnly()) {
+                rollbacks.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            rollbacks.incrementAndGet();
+        }
+    }
+}
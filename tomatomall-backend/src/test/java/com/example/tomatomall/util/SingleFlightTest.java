@@ -0,0 +1,148 @@
+package com.example.tomatomall.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTest {
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+
+    private final SingleFlight<String, String> flight = new SingleFlight<>("test");
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /** 在另一个线程上开始一次加载，loader 阻塞到 release 放行 */
+    private Future<String> startBlockedLoad(CountDownLatch started, CountDownLatch release, String value) {
+        return pool.submit(() -> flight.load("k", () -> {
+            started.countDown();
+            await(release);
+            return value;
+        }));
+    }
+
+    /** 等到有 expected 个请求加入了正在执行的加载 */
+    private void awaitShared(long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (flight.stats().getShared() < expected) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("follower did not join the running load");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger followerLoads = new AtomicInteger();
+        Future<String> leader = startBlockedLoad(started, release, "v1");
+        await(started);
+        Future<String> follower = pool.submit(() -> flight.load("k", () -> {
+            followerLoads.incrementAndGet();
+            return "other";
+        }));
+        awaitShared(1);
+        release.countDown();
+
+        assertEquals("v1", leader.get(5, TimeUnit.SECONDS));
+        assertEquals("v1", follower.get(5, TimeUnit.SECONDS));
+        assertEquals(0, followerLoads.get());
+        assertEquals(1, flight.stats().getLoads());
+        assertEquals(0, flight.stats().getInFlight());
+    }
+
+    @Test
+    void followersReceiveTheLeadersException() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("boom");
+        Future<String> leader = pool.submit(() -> flight.load("k", () -> {
+            started.countDown();
+            await(release);
+            throw failure;
+        }));
+        await(started);
+        Future<String> follower = pool.submit(() -> flight.load("k", () -> "other"));
+        awaitShared(1);
+        release.countDown();
+
+        ExecutionException leaderError = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        ExecutionException followerError = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertSame(failure, leaderError.getCause());
+        assertSame(failure, followerError.getCause());
+    }
+
+    @Test
+    void failedLoadIsNotRemembered() {
+        assertThrows(IllegalStateException.class, () -> flight.load("k", () -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertEquals("v2", flight.load("k", () -> "v2"));
+        assertEquals(2, flight.stats().getLoads());
+    }
+
+    @Test
+    void forgetStartsANewLoadForLaterCallers() throws Exception {
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch firstRelease = new CountDownLatch(1);
+        Future<String> stale = startBlockedLoad(firstStarted, firstRelease, "stale");
+        await(firstStarted);
+
+        flight.forget("k");
+        CountDownLatch secondStarted = new CountDownLatch(1);
+        CountDownLatch secondRelease = new CountDownLatch(1);
+        Future<String> fresh = startBlockedLoad(secondStarted, secondRelease, "fresh");
+        await(secondStarted);
+
+        // 旧加载结束时只能移除它自己的条目，后来的请求仍加入新加载
+        firstRelease.countDown();
+        assertEquals("stale", stale.get(5, TimeUnit.SECONDS));
+        Future<String> joiner = pool.submit(() -> flight.load("k", () -> "unexpected"));
+        awaitShared(1);
+        secondRelease.countDown();
+
+        assertEquals("fresh", fresh.get(5, TimeUnit.SECONDS));
+        assertEquals("fresh", joiner.get(5, TimeUnit.SECONDS));
+        assertEquals(2, flight.stats().getLoads());
+    }
+
+    @Test
+    void forgetAllDetachesEveryRunningLoad() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> stale = startBlockedLoad(started, release, "stale");
+        await(started);
+
+        flight.forgetAll();
+        assertEquals(0, flight.stats().getInFlight());
+        assertEquals("fresh", flight.load("k", () -> "fresh"));
+
+        release.countDown();
+        assertEquals("stale", stale.get(5, TimeUnit.SECONDS));
+        assertEquals(0, flight.stats().getShared());
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.tomatomall.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private void advanceMillis(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @Test
+    void allowsBurstUpToCapacityThenRejects() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(5, 1, 100, now::get);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire("alice"));
+        }
+        assertFalse(limiter.tryAcquire("alice"));
+    }
+
+    @Test
+    void refillsAtConfiguredRate() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(2, 2, 100, now::get);
+        assertTrue(limiter.tryAcquire("alice"));
+        assertTrue(limiter.tryAcquire("alice"));
+        assertFalse(limiter.tryAcquire("alice"));
+
+        advanceMillis(400);
+        assertFalse(limiter.tryAcquire("alice"));
+        advanceMillis(100);
+        assertTrue(limiter.tryAcquire("alice"));
+        assertFalse(limiter.tryAcquire("alice"));
+    }
+
+    @Test
+    void refillNeverExceedsCapacity() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(3, 1, 100, now::get);
+        assertTrue(limiter.tryAcquire("alice"));
+        advanceMillis(TimeUnit.HOURS.toMillis(1));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire("alice"));
+        }
+        assertFalse(limiter.tryAcquire("alice"));
+    }
+
+    @Test
+    void keysHaveIndependentBuckets() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, 1, 100, now::get);
+        assertTrue(limiter.tryAcquire("alice"));
+        assertFalse(limiter.tryAcquire("alice"));
+        assertTrue(limiter.tryAcquire("bob"));
+    }
+
+    @Test
+    void sweepingFullBucketsKeepsLimitsForDrainedKeys() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, 1, 2, now::get);
+        assertTrue(limiter.tryAcquire("alice"));
+        assertTrue(limiter.tryAcquire("bob"));
+        assertTrue(limiter.tryAcquire("carol"));
+        assertFalse(limiter.tryAcquire("alice"));
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.tomatomall.util.cache;
+
+import com.example.tomatomall.event.ResourceChangedEvent;
+import com.example.tomatomall.util.ResourceVersions;
+import com.example.tomatomall.util.SingleFlights;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * 两个 Caches 订阅同一个 LoopbackInvalidationBus，模拟两个后端实例之间的失效
+ */
+class CachesTest {
+
+    private final LoopbackInvalidationBus bus = new LoopbackInvalidationBus();
+
+    /**
+     * 模拟数据库
+     */
+    private final Map<Integer, String> table = new ConcurrentHashMap<>();
+
+    private final AtomicInteger loadsA = new AtomicInteger();
+
+    private final AtomicInteger loadsB = new AtomicInteger();
+
+    private Caches nodeA;
+
+    private Caches nodeB;
+
+    private TwoTierCache<Integer, String> cacheA;
+
+    private TwoTierCache<Integer, String> cacheB;
+
+    @BeforeEach
+    void setUp() {
+        nodeA = node("a", new NoRemoteCacheTier());
+        nodeB = node("b", new NoRemoteCacheTier());
+        cacheA = nodeA.create("product", 10, String.class);
+        cacheB = nodeB.create("product", 10, String.class);
+        table.put(1, "v1");
+        table.put(2, "w1");
+    }
+
+    private Caches node(String nodeId, RemoteCacheTier remote) {
+        Caches caches = new Caches();
+        ReflectionTestUtils.setField(caches, "remoteCacheTier", remote);
+        ReflectionTestUtils.setField(caches, "invalidationBus", bus);
+        ReflectionTestUtils.setField(caches, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(caches, "singleFlights", new SingleFlights());
+        ReflectionTestUtils.setField(caches, "nodeId", nodeId);
+        ReflectionTestUtils.setField(caches, "localTtlSeconds", 300L);
+        ReflectionTestUtils.setField(caches, "remoteTtlSeconds", 600L);
+        caches.init();
+        return caches;
+    }
+
+    private Function<Integer, String> loader(AtomicInteger loads) {
+        return id -> {
+            loads.incrementAndGet();
+            return table.get(id);
+        };
+    }
+
+    @Test
+    void evictOnOneNodeDropsTheKeyOnTheOther() {
+        cacheA.get(1, loader(loadsA));
+        cacheB.get(1, loader(loadsB));
+        cacheB.get(2, loader(loadsB));
+
+        table.put(1, "v2");
+        cacheA.evict(1);
+
+        assertEquals("v2", cacheB.get(1, loader(loadsB)));
+        assertEquals("w1", cacheB.get(2, loader(loadsB)));
+        assertEquals(3, loadsB.get());
+    }
+
+    @Test
+    void reloadAfterEvictReplacesTheOtherNodesValue() {
+        cacheB.get(1, loader(loadsB));
+
+        table.put(1, "v2");
+        cacheA.evict(1);
+        assertEquals("v2", cacheA.get(1, loader(loadsA)));
+
+        table.put(1, "v3");
+        cacheA.evict(1);
+        assertEquals("v3", cacheB.get(1, loader(loadsB)));
+        assertEquals(2, loadsB.get());
+    }
+
+    @Test
+    void clearOnOneNodeDropsEveryKeyOnTheOther() {
+        cacheB.get(1, loader(loadsB));
+        cacheB.get(2, loader(loadsB));
+
+        cacheA.clear();
+
+        cacheB.get(1, loader(loadsB));
+        cacheB.get(2, loader(loadsB));
+        assertEquals(4, loadsB.get());
+    }
+
+    @Test
+    void sharedRemoteTierIsClearedOnEvict() {
+        InMemoryRemoteCacheTier remote = new InMemoryRemoteCacheTier(100);
+        TwoTierCache<Integer, String> sharedA = node("c", remote).create("shop", 10, String.class);
+        TwoTierCache<Integer, String> sharedB = node("d", remote).create("shop", 10, String.class);
+        sharedA.get(1, loader(loadsA));
+        assertEquals("v1", sharedB.get(1, loader(loadsB)));
+        assertEquals(0, loadsB.get());
+
+        table.put(1, "v2");
+        sharedA.evict(1);
+
+        assertEquals("v2", sharedB.get(1, loader(loadsB)));
+        assertEquals(1, loadsB.get());
+    }
+
+    @Test
+    void nodeIgnoresItsOwnInvalidations() {
+        cacheA.get(1, loader(loadsA));
+        cacheB.get(1, loader(loadsB));
+
+        bus.publish(new CacheInvalidation("a", "product", Collections.singletonList("1"), false));
+
+        cacheA.get(1, loader(loadsA));
+        cacheB.get(1, loader(loadsB));
+        assertEquals(1, loadsA.get());
+        assertEquals(2, loadsB.get());
+    }
+
+    @Test
+    void messageForUnknownCacheIsIgnored() {
+        cacheB.get(1, loader(loadsB));
+
+        bus.publish(new CacheInvalidation("a", "unknown", null, true));
+        bus.publish(CacheInvalidation.resourcesChanged("a", Collections.singletonList(ResourceVersions.PRODUCT)));
+
+        cacheB.get(1, loader(loadsB));
+        assertEquals(1, loadsB.get());
+    }
+
+    @Test
+    void loadRacingWithRemoteInvalidationIsNotCached() {
+        // 节点 B 读到旧值后、写入本地层前，节点 A 提交了修改并发出失效消息
+        String stale = cacheB.get(1, id -> {
+            loadsB.incrementAndGet();
+            String value = table.get(id);
+            table.put(id, "v2");
+            cacheA.evict(id);
+            return value;
+        });
+        assertEquals("v1", stale);
+
+        assertEquals("v2", cacheB.get(1, loader(loadsB)));
+        assertEquals(2, loadsB.get());
+    }
+
+    @Test
+    void loadRacingWithLocalInvalidationIsNotCached() {
+        String stale = cacheA.get(1, id -> {
+            String value = table.get(id);
+            table.put(id, "v2");
+            cacheA.evict(id);
+            return value;
+        });
+        assertEquals("v1", stale);
+
+        assertEquals("v2", cacheA.get(1, loader(loadsA)));
+        assertEquals(1, loadsA.get());
+    }
+
+    @Test
+    void resourceChangeBumpsTheOtherNodesEtag() {
+        ResourceVersions versionsA = new ResourceVersions();
+        ResourceVersions versionsB = new ResourceVersions();
+        ResourceChangeRelay relayA = relay(nodeA, versionsA);
+        relay(nodeB, versionsB);
+        String etagA = versionsA.etag(ResourceVersions.PRODUCT);
+        String etagB = versionsB.etag(ResourceVersions.PRODUCT);
+        String etagShopB = versionsB.etag(ResourceVersions.SHOP);
+
+        // 本节点的版本号由 ResourceVersions 自己的监听器推进，转发只影响其他节点
+        relayA.onResourceChanged(new ResourceChangedEvent(ResourceVersions.PRODUCT));
+
+        assertEquals(etagA, versionsA.etag(ResourceVersions.PRODUCT));
+        assertNotEquals(etagB, versionsB.etag(ResourceVersions.PRODUCT));
+        assertEquals(etagShopB, versionsB.etag(ResourceVersions.SHOP));
+    }
+
+    private ResourceChangeRelay relay(Caches caches, ResourceVersions versions) {
+        ResourceChangeRelay relay = new ResourceChangeRelay();
+        ReflectionTestUtils.setField(relay, "invalidationBus", bus);
+        ReflectionTestUtils.setField(relay, "caches", caches);
+        ReflectionTestUtils.setField(relay, "resourceVersions", versions);
+        relay.init();
+        return relay;
+    }
+}
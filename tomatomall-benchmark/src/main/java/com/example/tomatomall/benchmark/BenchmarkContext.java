@@ -0,0 +1,72 @@
+package com.example.tomatomall.benchmark;
+
+import com.example.tomatomall.TomatoMallApplication;
+import com.example.tomatomall.po.Account;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * 每个 JMH 进程只启动一次完整的 Spring 上下文（benchmark 配置），并在首次启动时造数。
+ * 服务层依赖 session 中的当前用户，bindRequest 为当前线程绑定一个模拟请求。
+ */
+public final class BenchmarkContext {
+
+    private static ConfigurableApplicationContext context;
+
+    private static String[] extraProfiles = new String[0];
+
+    private BenchmarkContext() {
+    }
+
+    public static synchronized ConfigurableApplicationContext get() {
+        if (context == null) {
+            SpringApplication application = new SpringApplication(TomatoMallApplication.class);
+            String[] profiles = new String[extraProfiles.length + 1];
+            profiles[0] = "benchmark";
+            System.arraycopy(extraProfiles, 0, profiles, 1, extraProfiles.length);
+            application.setAdditionalProfiles(profiles);
+            application.setBannerMode(Banner.Mode.OFF);
+            context = application.run();
+            new BenchmarkData(context.getBean(JdbcTemplate.class), context.getBean(PasswordEncoder.class)).seedIfEmpty();
+        }
+        return context;
+    }
+
+    /**
+     * 在 benchmark 之外追加激活的配置环境，必须在上下文启动之前调用。
+     * JMH 对每组 @Param 取值单独 fork 进程，因此可以用参数比较不同配置。
+     * @param profiles 环境名，后者覆盖前者
+     */
+    public static synchronized void activateProfiles(String... profiles) {
+        if (context != null) {
+            throw new IllegalStateException("Spring 上下文已启动，无法再切换配置环境");
+        }
+        extraProfiles = profiles.clone();
+    }
+
+    public static <T> T bean(Class<T> type) {
+        return get().getBean(type);
+    }
+
+    /**
+     * 为当前线程绑定一个已登录的模拟请求
+     * @param account 当前用户
+     */
+    public static void bindRequest(Account account) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("127.0.0.1");
+        request.getSession().setAttribute("currentAccount", account);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, new MockHttpServletResponse()));
+    }
+
+    public static void unbindRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+}
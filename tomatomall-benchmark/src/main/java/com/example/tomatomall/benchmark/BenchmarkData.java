@@ -0,0 +1,150 @@
+package com.example.tomatomall.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 基准测试数据
+ * 按线上量级批量写入店铺、商品、规格、库存、账户、购物车和优惠券，规模可用系统属性调整：
+ * bench.shops、bench.productsPerShop、bench.specsPerProduct、bench.accounts、bench.cartItemsPerAccount、bench.coupons。
+ * 默认 100 个店铺 × 50 个商品，即 5000 个商品。
+ */
+public class BenchmarkData {
+
+    public static final String PASSWORD = "benchmark";
+
+    static final int SHOPS = Integer.getInteger("bench.shops", 100);
+    static final int PRODUCTS_PER_SHOP = Integer.getInteger("bench.productsPerShop", 50);
+    static final int SPECS_PER_PRODUCT = Integer.getInteger("bench.specsPerProduct", 3);
+    static final int ACCOUNTS = Integer.getInteger("bench.accounts", 1000);
+    static final int CART_ITEMS_PER_ACCOUNT = Integer.getInteger("bench.cartItemsPerAccount", 20);
+    static final int COUPONS = Integer.getInteger("bench.coupons", 200);
+
+    private static final int BATCH = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final PasswordEncoder passwordEncoder;
+
+    private final Random random = new Random(42);
+
+    public BenchmarkData(JdbcTemplate jdbcTemplate, PasswordEncoder passwordEncoder) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.passwordEncoder = passwordEncoder;
+    }
+
+    /**
+     * 库中没有商品时造数；对已经导入数据的 MySQL 不做任何修改
+     */
+    public void seedIfEmpty() {
+        Integer products = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM products", Integer.class);
+        if (products != null && products > 0) {
+            return;
+        }
+        seedAccounts();
+        seedShops();
+        seedProducts();
+        seedCarts();
+        seedCoupons();
+    }
+
+    private void seedAccounts() {
+        // 所有账户共用一个哈希，造数时只做一次 bcrypt
+        String hash = passwordEncoder.encode(PASSWORD);
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{"admin", hash, "管理员", "admin"});
+        for (int i = 1; i < ACCOUNTS; i++) {
+            rows.add(new Object[]{"user" + i, hash, "用户" + i, i <= SHOPS ? "SHOPKEEPER" : "CUSTOMER"});
+        }
+        batch("INSERT INTO accounts (username, password, name, role, telephone, email, location, avatar) " +
+                "VALUES (?, ?, ?, ?, '13800000000', 'user@example.com', '南京', '')", rows);
+    }
+
+    private void seedShops() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= SHOPS; i++) {
+            rows.add(new Object[]{"店铺" + i, i + 1, "店铺描述" + i, round2(random.nextDouble() * 10)});
+        }
+        batch("INSERT INTO shops (name, owner_id, icon_url, description, rate, is_valid) VALUES (?, ?, '', ?, ?, 1)", rows);
+    }
+
+    private void seedProducts() {
+        List<Object[]> products = new ArrayList<>();
+        for (int shop = 1; shop <= SHOPS; shop++) {
+            for (int i = 0; i < PRODUCTS_PER_SHOP; i++) {
+                products.add(new Object[]{"商品" + shop + "-" + i, round2(1 + random.nextDouble() * 200),
+                        round2(random.nextDouble() * 10), "一段典型长度的商品描述，用于模拟线上商品列表的响应体大小。",
+                        "http://121.41.41.33/" + Integer.toHexString(random.nextInt()) + ".jpg",
+                        "商品详情", shop});
+            }
+        }
+        batch("INSERT INTO products (title, price, rate, description, cover, detail, shop_id, version) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, 0)", products);
+
+        int productCount = SHOPS * PRODUCTS_PER_SHOP;
+        List<Object[]> specs = new ArrayList<>();
+        List<Object[]> stockpiles = new ArrayList<>();
+        for (int productId = 1; productId <= productCount; productId++) {
+            for (int s = 0; s < SPECS_PER_PRODUCT; s++) {
+                specs.add(new Object[]{"规格" + s, "值" + random.nextInt(100), productId});
+            }
+            stockpiles.add(new Object[]{productId, 100 + random.nextInt(1000)});
+        }
+        batch("INSERT INTO specifications (item, value, product_id) VALUES (?, ?, ?)", specs);
+        batch("INSERT INTO stockpiles (product_id, amount, frozen) VALUES (?, ?, 0)", stockpiles);
+    }
+
+    /**
+     * 每个账户一份购物车文档，编码与 CartStore 一致：下一个行ID|行ID:商品ID:数量;...，同一商品合并为一行
+     */
+    private void seedCarts() {
+        int productCount = SHOPS * PRODUCTS_PER_SHOP;
+        List<Object[]> rows = new ArrayList<>();
+        for (int accountId = 1; accountId <= ACCOUNTS; accountId++) {
+            Map<Integer, Integer> quantities = new LinkedHashMap<>();
+            for (int i = 0; i < CART_ITEMS_PER_ACCOUNT; i++) {
+                quantities.merge(1 + random.nextInt(productCount), 1 + random.nextInt(3), Integer::sum);
+            }
+            StringBuilder items = new StringBuilder().append(quantities.size() + 1).append('|');
+            int lineId = 1;
+            for (Map.Entry<Integer, Integer> line : quantities.entrySet()) {
+                if (lineId > 1) {
+                    items.append(';');
+                }
+                items.append(lineId++).append(':').append(line.getKey()).append(':').append(line.getValue());
+            }
+            rows.add(new Object[]{accountId, items.toString()});
+        }
+        batch("INSERT INTO cart_documents (account_id, items, version, updated_time) VALUES (?, ?, 1, CURRENT_TIMESTAMP)", rows);
+    }
+
+    private void seedCoupons() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < COUPONS; i++) {
+            boolean percent = i % 2 == 0;
+            rows.add(new Object[]{"优惠券" + i, percent ? 1 : 2, percent ? 0.9 : 10.0,
+                    Timestamp.valueOf(now.minusDays(1)), Timestamp.valueOf(now.plusDays(30 + i))});
+        }
+        batch("INSERT INTO coupon (name, description, discount_type, discount_value, start_time, end_time, quantity, used_quantity, is_valid) " +
+                "VALUES (?, '', ?, ?, ?, ?, 100000, 0, 1)", rows);
+    }
+
+    private void batch(String sql, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += BATCH) {
+            jdbcTemplate.batchUpdate(sql, rows.subList(from, Math.min(rows.size(), from + BATCH)));
+        }
+    }
+
+    private static double round2(double value) {
+        return Math.round(value * 100) / 100d;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.tomatomall.benchmark;
+
+import com.example.tomatomall.po.Account;
+import com.example.tomatomall.service.CartService;
+import com.example.tomatomall.util.AccountCache;
+import com.example.tomatomall.vo.CartListVO;
+import com.example.tomatomall.vo.CartVO;
+import com.example.tomatomall.vo.CheckRequestVO;
+import com.example.tomatomall.vo.OrderVO;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 购物车读取与结算：CartServiceImpl.getCart / check
+ * 结算每次都会新建订单和订单项，测量的是包含写入在内的完整路径。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CartBenchmark {
+
+    private CartService cartService;
+
+    private CheckRequestVO checkRequest;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        cartService = BenchmarkContext.bean(CartService.class);
+        Account account = BenchmarkContext.bean(AccountCache.class).getByUsername("user1");
+        BenchmarkContext.bindRequest(account);
+        checkRequest = new CheckRequestVO();
+        List<Integer> cartItemIds = new ArrayList<>();
+        for (CartVO item : cartService.getCart().getCartItems()) {
+            cartItemIds.add(item.getCartItemId());
+        }
+        checkRequest.setCartItemIds(cartItemIds);
+        checkRequest.setPaymentMethod("ALIPAY");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkContext.unbindRequest();
+    }
+
+    @Benchmark
+    public CartListVO getCart() {
+        return cartService.getCart();
+    }
+
+    @Benchmark
+    public OrderVO check() {
+        return cartService.check(checkRequest, 0, 0);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.tomatomall.benchmark;
+
+import com.example.tomatomall.service.CouponService;
+import com.example.tomatomall.vo.CouponVO;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 优惠券列表：CouponServiceImpl.getAllCoupons
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CouponBenchmark {
+
+    private CouponService couponService;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        couponService = BenchmarkContext.bean(CouponService.class);
+    }
+
+    @Benchmark
+    public List<CouponVO> allCoupons() {
+        return couponService.getAllCoupons();
+    }
+}
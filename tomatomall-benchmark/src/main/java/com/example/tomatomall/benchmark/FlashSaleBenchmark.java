@@ -0,0 +1,83 @@
+package com.example.tomatomall.benchmark;
+
+import com.example.tomatomall.service.FlashSaleService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 抢购扣库存的行锁争用：16 个线程同时扣同一商品，每次扣 1 件、单独一个事务
+ * single：与 reduceStockpileByOrder 的普通路径相同，对 stockpiles 的同一行做条件更新，所有线程排队等这一行的锁；
+ * sharded：开启抢购分桶后经 FlashSaleService.deduct 扣减，线程按账户散列到不同的桶。
+ * H2 的行锁实现与 InnoDB 不同，差距以连 MySQL 运行的结果为准。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlashSaleBenchmark {
+
+    private static final int PRODUCT_ID = 1;
+
+    @Param({"single", "sharded"})
+    public String stock;
+
+    @Param({"16"})
+    public int buckets;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+
+    private FlashSaleService flashSaleService;
+
+    private final AtomicInteger buyers = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class Buyer {
+
+        int accountId;
+
+        @Setup(Level.Trial)
+        public void setup(FlashSaleBenchmark benchmark) {
+            accountId = benchmark.buyers.incrementAndGet();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        jdbcTemplate = BenchmarkContext.bean(JdbcTemplate.class);
+        transactionTemplate = BenchmarkContext.bean(TransactionTemplate.class);
+        flashSaleService = BenchmarkContext.bean(FlashSaleService.class);
+        // 足够整个测量期间扣减，不会售罄
+        jdbcTemplate.update("UPDATE stockpiles SET amount = ? WHERE product_id = ?", 1_000_000_000, PRODUCT_ID);
+        if ("sharded".equals(stock)) {
+            flashSaleService.enableFlashSale(PRODUCT_ID, buckets);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if ("sharded".equals(stock)) {
+            flashSaleService.disableFlashSale(PRODUCT_ID);
+        }
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void deduct(Buyer buyer) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if ("sharded".equals(stock)) {
+                flashSaleService.deduct(PRODUCT_ID, buckets, buyer.accountId, 1);
+            } else if (jdbcTemplate.update("UPDATE stockpiles SET amount = amount - 1 WHERE product_id = ? AND amount >= 1",
+                    PRODUCT_ID) != 1) {
+                throw new IllegalStateException("库存不足");
+            }
+        });
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.tomatomall.benchmark;
+
+import com.example.tomatomall.service.FlashSaleService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 抢购售罄：16 个线程同时把分桶库存扣到 0，每次扣 1～3 件、单独一个事务，测量扣空全部库存的耗时
+ * 接近售罄时各桶余量不均，扣减频繁落空并走跨桶路径，用来发现死锁与超卖：
+ * 每轮结束时校验扣出的件数等于初始库存、各桶合计为 0、没有出现死锁或锁等待超时。
+ * 挑中的桶被并发扣空时 deduct 抛出 ConcurrencyFailureException，这里与支付事件投递一样直接重试。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, batchSize = 1)
+@Measurement(iterations = 5, batchSize = 1)
+@Fork(1)
+public class FlashSaleDrainBenchmark {
+
+    private static final int PRODUCT_ID = 1;
+
+    @Param({"16"})
+    public int buckets;
+
+    @Param({"5000"})
+    public int stock;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+
+    private FlashSaleService flashSaleService;
+
+    private final AtomicInteger buyers = new AtomicInteger();
+
+    private final AtomicInteger sold = new AtomicInteger();
+
+    private final AtomicInteger retries = new AtomicInteger();
+
+    private final AtomicInteger lockFailures = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class Buyer {
+
+        int accountId;
+
+        Random random;
+
+        @Setup(Level.Trial)
+        public void setup(FlashSaleDrainBenchmark benchmark) {
+            accountId = benchmark.buyers.incrementAndGet();
+            random = new Random(accountId);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        jdbcTemplate = BenchmarkContext.bean(JdbcTemplate.class);
+        transactionTemplate = BenchmarkContext.bean(TransactionTemplate.class);
+        flashSaleService = BenchmarkContext.bean(FlashSaleService.class);
+        jdbcTemplate.update("UPDATE stockpiles SET amount = ? WHERE product_id = ?", stock, PRODUCT_ID);
+        flashSaleService.enableFlashSale(PRODUCT_ID, buckets);
+    }
+
+    @Setup(Level.Iteration)
+    public void refill() {
+        transactionTemplate.executeWithoutResult(status -> flashSaleService.setAmount(PRODUCT_ID, stock));
+        sold.set(0);
+        retries.set(0);
+        lockFailures.set(0);
+    }
+
+    @TearDown(Level.Iteration)
+    public void verify() {
+        int left = flashSaleService.currentTotal(PRODUCT_ID);
+        System.out.printf("%n售出 %d / %d，剩余 %d，落空重试 %d 次，死锁或锁超时 %d 次%n",
+                sold.get(), stock, left, retries.get(), lockFailures.get());
+        if (sold.get() != stock || left != 0 || lockFailures.get() > 0) {
+            throw new IllegalStateException("抢购库存扣减结果不一致");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        flashSaleService.disableFlashSale(PRODUCT_ID);
+    }
+
+    /**
+     * 一直买到扣 1 件也失败（售罄）为止；扣 n 件因库存不足失败后只再尝试更少的件数
+     */
+    @Benchmark
+    @Threads(16)
+    public int drain(Buyer buyer) {
+        int bought = 0;
+        int maxQuantity = 3;
+        while (maxQuantity > 0) {
+            int quantity = 1 + buyer.random.nextInt(maxQuantity);
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        flashSaleService.deduct(PRODUCT_ID, buckets, buyer.accountId, quantity));
+                bought += quantity;
+                sold.addAndGet(quantity);
+            } catch (PessimisticLockingFailureException e) {
+                lockFailures.incrementAndGet();
+            } catch (ConcurrencyFailureException e) {
+                retries.incrementAndGet();
+            } catch (RuntimeException e) {
+                // 库存不足
+                maxQuantity = quantity - 1;
+            }
+        }
+        return bought;
+    }
+}
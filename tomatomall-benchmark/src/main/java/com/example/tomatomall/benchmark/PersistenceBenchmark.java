@@ -0,0 +1,102 @@
+package com.example.tomatomall.benchmark;
+
+import com.example.tomatomall.po.Account;
+import com.example.tomatomall.service.CartService;
+import com.example.tomatomall.service.ProductBulkService;
+import com.example.tomatomall.util.AccountCache;
+import com.example.tomatomall.vo.CartVO;
+import com.example.tomatomall.vo.CheckRequestVO;
+import com.example.tomatomall.vo.OrderVO;
+import com.example.tomatomall.vo.ProductImportResultVO;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 持久层配置前后对比：默认配置与 flashsale 环境（连接池、预编译语句缓存、批量参数）下的结算与商品导入吞吐量
+ * JMH 对 persistence 的每个取值单独 fork 进程，两组结果直接对比即可。
+ * 驱动相关的参数只对 MySQL 生效，在默认的 H2 上只能看到 Hibernate 与连接池部分的差异，完整对比需连 MySQL 运行。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    @Param({"default", "flashsale"})
+    public String persistence;
+
+    /**
+     * 每次导入的商品行数
+     */
+    @Param({"500"})
+    public int importRows;
+
+    private CartService cartService;
+
+    private ProductBulkService productBulkService;
+
+    private CheckRequestVO checkRequest;
+
+    private byte[] importCsv;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        if ("flashsale".equals(persistence)) {
+            BenchmarkContext.activateProfiles("flashsale");
+        }
+        cartService = BenchmarkContext.bean(CartService.class);
+        productBulkService = BenchmarkContext.bean(ProductBulkService.class);
+
+        // 各线程用不同账户结算，模拟并发下单
+        Account account = BenchmarkContext.bean(AccountCache.class)
+                .getByUsername("user" + (1 + Math.floorMod(Thread.currentThread().getId(), BenchmarkData.ACCOUNTS - 1)));
+        BenchmarkContext.bindRequest(account);
+        checkRequest = new CheckRequestVO();
+        List<Integer> cartItemIds = new ArrayList<>();
+        for (CartVO item : cartService.getCart().getCartItems()) {
+            cartItemIds.add(item.getCartItemId());
+        }
+        checkRequest.setCartItemIds(cartItemIds);
+        checkRequest.setPaymentMethod("ALIPAY");
+
+        StringBuilder csv = new StringBuilder("title,price,description,cover,detail,shopId,amount,specifications\n");
+        for (int i = 0; i < importRows; i++) {
+            csv.append("导入商品").append(i).append(',')
+                    .append(1 + i % 200).append(".5,")
+                    .append("一段典型长度的商品描述，用于模拟批量导入的行大小。,")
+                    .append("http://121.41.41.33/cover").append(i).append(".jpg,")
+                    .append("商品详情,")
+                    .append(1 + i % BenchmarkData.SHOPS).append(',')
+                    .append(100 + i % 900).append(',')
+                    .append("颜色:红;尺寸:XL\n");
+        }
+        importCsv = csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkContext.unbindRequest();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public OrderVO checkout() {
+        return cartService.check(checkRequest, 0, 0);
+    }
+
+    /**
+     * 每次操作导入 importRows 个商品，吞吐量乘以 importRows 即每秒导入行数
+     */
+    @Benchmark
+    public ProductImportResultVO importProducts() throws IOException {
+        return productBulkService.importProducts(new ByteArrayInputStream(importCsv), ProductBulkService.CSV);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.tomatomall.benchmark;
+
+import com.example.tomatomall.service.ProductService;
+import com.example.tomatomall.vo.ProductVO;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 商品列表转换：ProductServiceImpl 的 convertToVO 批量路径
+ * 单个店铺（默认 50 个商品）和全量商品（默认 5000 个）两种规模。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductListBenchmark {
+
+    private ProductService productService;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        productService = BenchmarkContext.bean(ProductService.class);
+    }
+
+    @Benchmark
+    public List<ProductVO> productsOfShop() {
+        return productService.getProductsByShopId(1);
+    }
+
+    @Benchmark
+    public List<ProductVO> allProducts() {
+        return productService.getAllProducts();
+    }
+}
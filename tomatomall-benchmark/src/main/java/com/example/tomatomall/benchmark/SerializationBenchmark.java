@@ -0,0 +1,55 @@
+package com.example.tomatomall.benchmark;
+
+import com.example.tomatomall.service.ProductService;
+import com.example.tomatomall.vo.ProductVO;
+import com.example.tomatomall.vo.Response;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Response&lt;List&lt;ProductVO&gt;&gt; 的 JSON 序列化（默认 5000 个商品），以及加上 gzip 后的耗时。
+ * 启动时打印原始字节数和 gzip 后的字节数，即线上传输的字节数。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+
+    private Response<List<ProductVO>> response;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        objectMapper = BenchmarkContext.bean(ObjectMapper.class);
+        response = Response.buildSuccess(BenchmarkContext.bean(ProductService.class).getAllProducts());
+        int raw = serialize().length;
+        int gzip = serializeGzip().length;
+        System.out.printf("%n[wire size] %d products: json %d bytes, gzip %d bytes (%.1f%%)%n",
+                response.getData().size(), raw, gzip, gzip * 100.0 / raw);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] serializeGzip() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        try (OutputStream gzip = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(gzip, response);
+        }
+        return bytes.toByteArray();
+    }
+}
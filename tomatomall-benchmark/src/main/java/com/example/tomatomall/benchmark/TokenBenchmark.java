@@ -0,0 +1,36 @@
+package com.example.tomatomall.benchmark;
+
+import com.example.tomatomall.po.Account;
+import com.example.tomatomall.util.AccountCache;
+import com.example.tomatomall.util.TokenUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * token 校验：TokenUtil.verifyToken，登录拦截器每个请求都会执行
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenBenchmark {
+
+    private TokenUtil tokenUtil;
+
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        tokenUtil = BenchmarkContext.bean(TokenUtil.class);
+        Account account = BenchmarkContext.bean(AccountCache.class).getByUsername("user1");
+        token = tokenUtil.getToken(account);
+    }
+
+    @Benchmark
+    public boolean verifyToken() {
+        return tokenUtil.verifyToken(token);
+    }
+}
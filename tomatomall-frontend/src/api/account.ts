@@ -69,6 +69,24 @@ export const getUserListByShopId = async (shopId: number) => {
         { headers: { 'Content-Type': 'application/json' } });
 }
 
+// 批量通过员工申请
+export const approveStaff = async (shopId: number, ids: number[]) => {
+    return await axios.put(`${ACCOUNT_MODULE}/shop/${shopId}/staff/approve`, { ids },
+        { headers: { 'Content-Type': 'application/json' } });
+}
+
+// 批量拒绝员工申请或解雇员工
+export const releaseStaff = async (shopId: number, ids: number[]) => {
+    return await axios.put(`${ACCOUNT_MODULE}/shop/${shopId}/staff/release`, { ids },
+        { headers: { 'Content-Type': 'application/json' } });
+}
+
+// 批量调店
+export const reassignStaff = async (shopId: number, ids: number[], targetShopId: number) => {
+    return await axios.put(`${ACCOUNT_MODULE}/shop/${shopId}/staff/reassign`, { ids, targetShopId },
+        { headers: { 'Content-Type': 'application/json' } });
+}
+
 // 获取管理员
 export const getAdmin = async () => {
     return await axios.get(`${ACCOUNT_MODULE}/fetchAdmin`,
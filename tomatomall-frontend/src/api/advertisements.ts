@@ -7,14 +7,19 @@ export interface Advertisement {
     content: string
     imgUrl: string
     productId: number
+    startTime?: string      // 投放开始时间，为空表示立即开始
+    endTime?: string        // 投放结束时间，为空表示一直投放
+    productPrice?: number   // 关联商品价格，只读
+    productCover?: string   // 关联商品封面，只读
 }
 export interface AdvertisementUpdate extends Advertisement {
     id: number
 }
 
-export const getAdvertisements = async () => {
+// all 为 true 时包含不在投放时段内的广告（管理页使用）
+export const getAdvertisements = async (all: boolean = false) => {
     return await axios.get(`${AD_MODULE}`,
-        { headers: { "Content-Type": "application/json" } })
+        { params: { all }, headers: { "Content-Type": "application/json" } })
 }
 
 export const updateAdvertisement = async (ad: AdvertisementUpdate) => {
@@ -12,6 +12,7 @@ export interface Product {
     detail: string;
     specifications: Specification[];
     shopId: number; // 店铺ID
+    version?: number; // 乐观锁版本号，创建时不填，更新时必须原样回传
 }
 
 // 商品规格说明
@@ -15,6 +15,26 @@ export const getShopList = async () => {
     return await axios.get(`${SHOP_MODULE}/all`);
 };
 
+export interface ShopQuery {
+    isValid?: number;
+    name?: string;          // 店铺名前缀
+    sort?: "id" | "rate";   // rate 按评分降序
+    page?: number;          // 从0开始
+    size?: number;
+}
+
+export interface Page<T> {
+    content: T[];
+    page: number;
+    size: number;
+    total: number;
+}
+
+// 分页查询店铺目录
+export const searchShops = async (query: ShopQuery) => {
+    return await axios.get(`${SHOP_MODULE}/page`, { params: query });
+};
+
 export const createShop = async (shop: Shop) => {
     return await axios.post(`${SHOP_MODULE}/create`, shop, {
         headers: { "Content-Type": "application/json" },
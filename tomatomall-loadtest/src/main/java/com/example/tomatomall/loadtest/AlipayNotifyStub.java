@@ -0,0 +1,118 @@
+package com.example.tomatomall.loadtest;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * 本地模拟的支付宝异步通知
+ * 自己持有一对 RSA2048 密钥，按支付宝 RSA2 规则（除 sign、sign_type 外的参数按键排序，
+ * 以 k=v&k=v 拼接，SHA256withRSA 签名后 Base64）对回调参数签名。
+ * 后端以 alipay.alipayPublicKey=本类的公钥 启动后，AlipaySignature.rsaCheckV1 即可验签通过。
+ * 密钥对保存在文件中，重复运行时复用，后端不必每次重启。
+ */
+public class AlipayNotifyStub {
+
+    private static final String PRIVATE_KEY = "privateKey";
+
+    private static final String PUBLIC_KEY = "publicKey";
+
+    private final PrivateKey privateKey;
+
+    private final String publicKeyBase64;
+
+    public AlipayNotifyStub(String keyFile) throws IOException, GeneralSecurityException {
+        Properties keys = new Properties();
+        File file = new File(keyFile);
+        if (file.exists()) {
+            try (InputStream in = new FileInputStream(file)) {
+                keys.load(in);
+            }
+        } else {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            KeyPair pair = generator.generateKeyPair();
+            keys.setProperty(PRIVATE_KEY, Base64.getEncoder().encodeToString(pair.getPrivate().getEncoded()));
+            keys.setProperty(PUBLIC_KEY, Base64.getEncoder().encodeToString(pair.getPublic().getEncoded()));
+            File dir = file.getAbsoluteFile().getParentFile();
+            if (dir != null) {
+                dir.mkdirs();
+            }
+            try (OutputStream out = new FileOutputStream(file)) {
+                keys.store(out, "TomatoMall loadtest alipay stub keys");
+            }
+        }
+        byte[] encoded = Base64.getDecoder().decode(keys.getProperty(PRIVATE_KEY));
+        this.privateKey = KeyFactory.getInstance("RSA").generatePrivate(new PKCS8EncodedKeySpec(encoded));
+        this.publicKeyBase64 = keys.getProperty(PUBLIC_KEY);
+    }
+
+    /**
+     * @return 需要配置到后端 alipay.alipayPublicKey 的公钥
+     */
+    public String getPublicKey() {
+        return publicKeyBase64;
+    }
+
+    /**
+     * 构造一次 TRADE_SUCCESS 回调的全部表单参数（含签名）
+     * @param orderId 商户订单号
+     * @param totalAmount 支付金额，原样写入 total_amount
+     * @return 表单参数
+     */
+    public Map<String, String> tradeSuccess(int orderId, String totalAmount) {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("notify_type", "trade_status_sync");
+        params.put("notify_id", UUID.randomUUID().toString().replace("-", ""));
+        params.put("app_id", "loadtest");
+        params.put("charset", "UTF-8");
+        params.put("version", "1.0");
+        params.put("out_trade_no", String.valueOf(orderId));
+        params.put("trade_no", "LT" + orderId + "-" + System.nanoTime());
+        params.put("total_amount", totalAmount);
+        params.put("trade_status", "TRADE_SUCCESS");
+        params.put("sign_type", "RSA2");
+        params.put("sign", sign(params));
+        return params;
+    }
+
+    String sign(Map<String, String> params) {
+        StringBuilder content = new StringBuilder();
+        for (Map.Entry<String, String> entry : new TreeMap<>(params).entrySet()) {
+            String key = entry.getKey();
+            String value = entry.getValue();
+            if ("sign".equals(key) || "sign_type".equals(key) || value == null || value.isEmpty()) {
+                continue;
+            }
+            if (content.length() > 0) {
+                content.append('&');
+            }
+            content.append(key).append('=').append(value);
+        }
+        try {
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initSign(privateKey);
+            signature.update(content.toString().getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(signature.sign());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("签名失败", e);
+        }
+    }
+}
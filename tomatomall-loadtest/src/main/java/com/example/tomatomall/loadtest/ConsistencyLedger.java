@@ -0,0 +1,208 @@
+package com.example.tomatomall.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 压测期间的下单与支付台账，结束后对照后端数据检查超卖与一致性
+ * 检查项：
+ * 1. 抢购商品最终库存不能为负；
+ * 2. 本次已支付订单中该商品的总数量不能超过初始库存（超卖）；
+ * 3. 初始库存 - 最终库存 必须等于已支付数量（少扣或重复扣减）；
+ * 4. 回调返回 success 的订单，后端状态必须是 SUCCESS；
+ * 5. 支付成功后，对应的购物车项必须已被删除。
+ * 扣库存、删购物车由后端领域事件异步完成，检查前先等待发件箱投递完。
+ * 以上都假定压测期间没有其他流量修改这些商品的库存。
+ */
+public class ConsistencyLedger {
+
+    /**
+     * 一笔本次压测创建的订单
+     */
+    static class PlacedOrder {
+
+        final int orderId;
+
+        final String username;
+
+        final String token;
+
+        final int productId;
+
+        final int quantity;
+
+        final int cartItemId;
+
+        volatile boolean notified;
+
+        PlacedOrder(int orderId, String username, String token, int productId, int quantity, int cartItemId) {
+            this.orderId = orderId;
+            this.username = username;
+            this.token = token;
+            this.productId = productId;
+            this.quantity = quantity;
+            this.cartItemId = cartItemId;
+        }
+    }
+
+    private final Map<Integer, Integer> initialStock = new LinkedHashMap<>();
+
+    private final Map<Integer, PlacedOrder> orders = new ConcurrentHashMap<>();
+
+    public void setInitialStock(int productId, int amount) {
+        initialStock.put(productId, amount);
+    }
+
+    public PlacedOrder placed(int orderId, String username, String token, int productId, int quantity, int cartItemId) {
+        PlacedOrder order = new PlacedOrder(orderId, username, token, productId, quantity, cartItemId);
+        orders.put(orderId, order);
+        return order;
+    }
+
+    public long getOrderCount() {
+        return orders.size();
+    }
+
+    public long getNotifiedCount() {
+        long count = 0;
+        for (PlacedOrder order : orders.values()) {
+            if (order.notified) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 读取最终库存和订单状态，返回发现的所有违规
+     * @param api 不记录耗时的接口
+     * @param adminToken 读取库存使用的 token
+     * @param summary 输出：每个商品的初始库存、最终库存、已支付数量
+     */
+    public List<String> verify(HttpApi api, String adminToken, Map<Integer, Map<String, Long>> summary) {
+        List<String> violations = new ArrayList<>();
+
+        // 按用户取回订单状态（/api/orders/account/{accountId}），只看本次创建的订单
+        Map<Integer, String> statusById = new HashMap<>();
+        Map<String, String> tokenByUser = new HashMap<>();
+        for (PlacedOrder order : orders.values()) {
+            tokenByUser.put(order.username, order.token);
+        }
+        for (Map.Entry<String, String> user : tokenByUser.entrySet()) {
+            HttpApi.Result account = api.json(null, null, "GET", "/api/accounts/" + user.getKey(), user.getValue(), null, null);
+            if (!account.isOk()) {
+                violations.add("无法读取账户 " + user.getKey() + "：" + account.message());
+                continue;
+            }
+            int accountId = account.data().path("id").asInt();
+            HttpApi.Result list = api.json(null, null, "GET", "/api/orders/account/" + accountId, user.getValue(), null, null);
+            if (!list.isOk()) {
+                violations.add("无法读取账户 " + user.getKey() + " 的订单：" + list.message());
+                continue;
+            }
+            for (JsonNode node : list.data()) {
+                int orderId = node.path("orderId").asInt();
+                if (orders.containsKey(orderId)) {
+                    statusById.put(orderId, node.path("status").asText());
+                }
+            }
+        }
+
+        Map<Integer, Long> paidUnits = new HashMap<>();
+        for (PlacedOrder order : orders.values()) {
+            String status = statusById.get(order.orderId);
+            if ("SUCCESS".equals(status)) {
+                paidUnits.merge(order.productId, (long) order.quantity, Long::sum);
+            } else if (order.notified) {
+                violations.add("订单 " + order.orderId + " 回调已返回 success，但状态为 " + status);
+            }
+        }
+
+        for (Map.Entry<Integer, Integer> entry : initialStock.entrySet()) {
+            int productId = entry.getKey();
+            long initial = entry.getValue();
+            long paid = paidUnits.getOrDefault(productId, 0L);
+            HttpApi.Result stock = api.json(null, null, "GET", "/api/products/stockpile/" + productId, adminToken, null, null);
+            if (!stock.isOk()) {
+                violations.add("无法读取商品 " + productId + " 的库存：" + stock.message());
+                continue;
+            }
+            long remaining = stock.data().path("amount").asLong();
+            Map<String, Long> row = new LinkedHashMap<>();
+            row.put("initialStock", initial);
+            row.put("finalStock", remaining);
+            row.put("paidUnits", paid);
+            summary.put(productId, row);
+
+            if (remaining < 0) {
+                violations.add("商品 " + productId + " 库存为负：" + remaining + "（超卖）");
+            }
+            if (paid > initial) {
+                violations.add("商品 " + productId + " 已支付 " + paid + " 件，超过初始库存 " + initial + "（超卖）");
+            }
+            if (initial - remaining != paid) {
+                violations.add("商品 " + productId + " 库存减少 " + (initial - remaining) + " 件，但已支付 " + paid + " 件");
+            }
+        }
+
+        long cartLeftovers = countCartLeftovers(api, tokenByUser);
+        if (cartLeftovers > 0) {
+            violations.add(cartLeftovers + " 笔支付成功的订单，购物车项未被删除");
+        }
+        return violations;
+    }
+
+    /**
+     * 等待后端发件箱中待投递的事件清空
+     * @return 是否在超时前清空；读取不到发件箱状态（旧版本后端）时直接返回 true
+     */
+    public boolean awaitOutbox(HttpApi api, String token, int timeoutSeconds) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutSeconds * 1000L;
+        while (true) {
+            HttpApi.Result stats = api.json(null, null, "GET", "/api/metrics/outbox", token, null, null);
+            if (!stats.isOk()) {
+                return true;
+            }
+            long backlog = stats.data().path("pending").asLong() + stats.data().path("processing").asLong();
+            if (backlog == 0) {
+                return true;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(500);
+        }
+    }
+
+    private long countCartLeftovers(HttpApi api, Map<String, String> tokenByUser) {
+        Map<String, Set<Integer>> cartByUser = new HashMap<>();
+        long leftovers = 0;
+        for (PlacedOrder order : orders.values()) {
+            if (!order.notified) {
+                continue;
+            }
+            Set<Integer> cart = cartByUser.computeIfAbsent(order.username, username -> {
+                Set<Integer> ids = new HashSet<>();
+                HttpApi.Result result = api.json(null, null, "GET", "/api/cart", tokenByUser.get(username), null, null);
+                if (result.isOk()) {
+                    for (JsonNode item : result.data().path("cartItems")) {
+                        ids.add(item.path("cartItemId").asInt());
+                    }
+                }
+                return ids;
+            });
+            if (cart.contains(order.cartItemId)) {
+                leftovers++;
+            }
+        }
+        return leftovers;
+    }
+}
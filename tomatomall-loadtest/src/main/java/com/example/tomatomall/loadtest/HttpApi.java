@@ -0,0 +1,209 @@
+package com.example.tomatomall.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 对后端 REST 接口的薄封装
+ * 所有顾客共用一个连接池；传入 recorder 时按接口名记录耗时与结果，准备和校验阶段传 null 不计入报告。
+ */
+public class HttpApi implements Closeable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String baseUrl;
+
+    private final CloseableHttpClient client;
+
+    public HttpApi(String baseUrl, int maxConnections, int timeoutMillis) {
+        this.baseUrl = baseUrl;
+        PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager();
+        pool.setMaxTotal(maxConnections);
+        pool.setDefaultMaxPerRoute(maxConnections);
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(timeoutMillis)
+                .setConnectionRequestTimeout(timeoutMillis)
+                .setSocketTimeout(timeoutMillis)
+                .build();
+        this.client = HttpClients.custom()
+                .setConnectionManager(pool)
+                .setDefaultRequestConfig(requestConfig)
+                .disableCookieManagement()
+                .build();
+    }
+
+    /**
+     * 发送 JSON 请求
+     * @param recorder 记录器，为 null 时不记录
+     * @param endpoint 报告中的接口名，如 "POST /api/cart"
+     * @param method HTTP 方法
+     * @param path 以 / 开头的路径（含查询串）
+     * @param token 登录 token，可为 null
+     * @param body 请求体，会序列化为 JSON；为 null 时不带请求体
+     * @param etag 条件请求的 If-None-Match，可为 null
+     */
+    public Result json(LatencyRecorder recorder, String endpoint, String method, String path,
+                       String token, Object body, String etag) {
+        RequestBuilder builder = RequestBuilder.create(method).setUri(baseUrl + path);
+        if (token != null) {
+            builder.addHeader("token", token);
+        }
+        if (etag != null) {
+            builder.addHeader("If-None-Match", etag);
+        }
+        if (body != null) {
+            try {
+                builder.setEntity(new ByteArrayEntity(MAPPER.writeValueAsBytes(body), ContentType.APPLICATION_JSON));
+            } catch (IOException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+        return execute(recorder, endpoint, builder.build());
+    }
+
+    /**
+     * 发送 application/x-www-form-urlencoded 表单（支付宝回调）
+     */
+    public Result form(LatencyRecorder recorder, String endpoint, String path, Map<String, String> params) {
+        List<NameValuePair> pairs = new ArrayList<>();
+        for (Map.Entry<String, String> entry : params.entrySet()) {
+            pairs.add(new BasicNameValuePair(entry.getKey(), entry.getValue()));
+        }
+        HttpUriRequest request = RequestBuilder.post(baseUrl + path)
+                .setEntity(new UrlEncodedFormEntity(pairs, StandardCharsets.UTF_8))
+                .build();
+        return execute(recorder, endpoint, request);
+    }
+
+    private Result execute(LatencyRecorder recorder, String endpoint, HttpUriRequest request) {
+        long start = System.nanoTime();
+        Result result;
+        try (CloseableHttpResponse response = client.execute(request)) {
+            HttpEntity entity = response.getEntity();
+            String text = entity == null ? "" : EntityUtils.toString(entity, StandardCharsets.UTF_8);
+            Header etag = response.getFirstHeader("ETag");
+            result = new Result(response.getStatusLine().getStatusCode(), text, etag == null ? null : etag.getValue());
+        } catch (IOException e) {
+            result = new Result(-1, e.toString(), null);
+        }
+        if (recorder != null) {
+            recorder.record(endpoint, (System.nanoTime() - start) / 1000, result.outcome());
+        }
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        client.close();
+    }
+
+    /**
+     * 一次请求的结果
+     */
+    public static class Result {
+
+        private final int status;
+
+        private final String body;
+
+        private final String etag;
+
+        private JsonNode json;
+
+        Result(int status, String body, String etag) {
+            this.status = status;
+            this.body = body;
+            this.etag = etag;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public boolean isNotModified() {
+            return status == 304;
+        }
+
+        /**
+         * @return 后端 Response 的 JSON；响应不是 JSON 时为 null
+         */
+        public JsonNode json() {
+            if (json == null && body != null && body.startsWith("{")) {
+                try {
+                    json = MAPPER.readTree(body);
+                } catch (IOException e) {
+                    return null;
+                }
+            }
+            return json;
+        }
+
+        /**
+         * @return Response.code 为 200 或 304 未修改
+         */
+        public boolean isOk() {
+            if (isNotModified()) {
+                return true;
+            }
+            JsonNode node = json();
+            return status >= 200 && status < 300 && node != null && "200".equals(node.path("code").asText());
+        }
+
+        /**
+         * @return Response.data
+         */
+        public JsonNode data() {
+            JsonNode node = json();
+            return node == null ? null : node.get("data");
+        }
+
+        public String message() {
+            JsonNode node = json();
+            return node == null ? status + " " + abbreviate(body) : node.path("msg").asText();
+        }
+
+        LatencyRecorder.Outcome outcome() {
+            if (isOk() || (status == 200 && "success".equals(body))) {
+                return LatencyRecorder.Outcome.OK;
+            }
+            // 后端通过 GlobalExceptionHandler 返回了带 code 的 Response，属于业务拒绝；其余为错误
+            JsonNode node = json();
+            boolean handled = node != null && node.has("code");
+            return handled || "fail".equals(body) ? LatencyRecorder.Outcome.REJECTED : LatencyRecorder.Outcome.ERROR;
+        }
+
+        private static String abbreviate(String text) {
+            return text == null || text.length() <= 200 ? text : text.substring(0, 200) + "...";
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.tomatomall.loadtest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按接口记录每个请求的耗时与结果
+ * 保留全部样本（微秒），结束时排序求分位数；单次压测的请求量在千万以内，内存可以接受。
+ */
+public class LatencyRecorder {
+
+    /**
+     * 请求结果：成功、业务拒绝（返回了 Response 但 code 不是 200，如库存不足、限流）、错误（超时、连接失败、非 JSON 的 5xx）
+     */
+    public enum Outcome {
+        OK, REJECTED, ERROR
+    }
+
+    private final ConcurrentHashMap<String, EndpointStats> stats = new ConcurrentHashMap<>();
+
+    public void record(String endpoint, long micros, Outcome outcome) {
+        stats.computeIfAbsent(endpoint, EndpointStats::new).add(micros, outcome);
+    }
+
+    /**
+     * @return 按接口名排序的统计快照
+     */
+    public List<EndpointStats> snapshot() {
+        List<EndpointStats> list = new ArrayList<>(stats.values());
+        list.sort(Comparator.comparing(EndpointStats::getEndpoint));
+        return list;
+    }
+
+    public static class EndpointStats {
+
+        private final String endpoint;
+
+        private long[] samples = new long[1024];
+
+        private int size;
+
+        private long ok;
+
+        private long rejected;
+
+        private long errors;
+
+        EndpointStats(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        synchronized void add(long micros, Outcome outcome) {
+            if (size == samples.length) {
+                samples = Arrays.copyOf(samples, size * 2);
+            }
+            samples[size++] = micros;
+            switch (outcome) {
+                case OK:
+                    ok++;
+                    break;
+                case REJECTED:
+                    rejected++;
+                    break;
+                default:
+                    errors++;
+            }
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public synchronized long getCount() {
+            return size;
+        }
+
+        public synchronized long getOk() {
+            return ok;
+        }
+
+        public synchronized long getRejected() {
+            return rejected;
+        }
+
+        public synchronized long getErrors() {
+            return errors;
+        }
+
+        /**
+         * 取分位数（nearest-rank）
+         * @param percentile 0~100
+         * @return 耗时，单位微秒；没有样本时为0
+         */
+        public long percentile(double percentile) {
+            long[] sorted;
+            synchronized (this) {
+                sorted = Arrays.copyOf(samples, size);
+            }
+            if (sorted.length == 0) {
+                return 0;
+            }
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+            return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.tomatomall.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端压测入口
+ * 1. 准备：注册/登录压测账户，确定抢购商品并按 load.stock 重置库存，记录初始库存；
+ * 2. 压测：load.shoppers 个顾客在 load.rampUpSeconds 内逐个启动，持续 load.durationSeconds 秒；
+ * 3. 报告：按接口输出请求数、吞吐、p50/p99/max 延迟，再校验超卖与一致性，有违规时以退出码 2 结束。
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = new LoadTestConfig();
+        System.out.println("压测参数：" + config);
+
+        AlipayNotifyStub alipay = new AlipayNotifyStub(config.alipayKeyFile);
+        System.out.println("模拟支付宝公钥（后端需以 --alipay.alipayPublicKey=<公钥> 启动）：");
+        System.out.println(alipay.getPublicKey());
+
+        try (HttpApi api = new HttpApi(config.baseUrl, Math.max(config.shoppers * 2, 20), config.timeoutMillis)) {
+            String setupToken = prepareAccounts(config, api);
+            if (setupToken == null) {
+                System.err.println("压测账户登录失败，请确认后端已启动、登录限流已放宽");
+                System.exit(1);
+            }
+            ConsistencyLedger ledger = new ConsistencyLedger();
+            if (!prepareProducts(config, api, setupToken, ledger)) {
+                System.exit(1);
+            }
+
+            LatencyRecorder recorder = new LatencyRecorder();
+            long start = System.currentTimeMillis();
+            long deadline = start + TimeUnit.SECONDS.toMillis(config.durationSeconds);
+            ExecutorService pool = Executors.newFixedThreadPool(config.shoppers);
+            for (int i = 0; i < config.shoppers; i++) {
+                Shopper shopper = new Shopper(config, api, recorder, alipay, ledger, username(config, i), deadline);
+                long delay = config.shoppers <= 1 ? 0 : TimeUnit.SECONDS.toMillis(config.rampUpSeconds) * i / config.shoppers;
+                pool.submit(() -> {
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    shopper.run();
+                });
+            }
+            pool.shutdown();
+            if (!pool.awaitTermination(config.durationSeconds + config.timeoutMillis / 1000 + 30, TimeUnit.SECONDS)) {
+                pool.shutdownNow();
+            }
+            double seconds = (System.currentTimeMillis() - start) / 1000.0;
+
+            if (!ledger.awaitOutbox(api, setupToken, config.settleSeconds)) {
+                System.out.println("警告：" + config.settleSeconds + " 秒内后端发件箱未投递完，以下检查可能包含尚未生效的扣减");
+            }
+            Map<Integer, Map<String, Long>> stock = new LinkedHashMap<>();
+            List<String> violations = ledger.verify(api, setupToken, stock);
+            printReport(recorder, ledger, stock, violations, seconds);
+            writeReport(config, recorder, ledger, stock, violations, seconds);
+            System.exit(violations.isEmpty() ? 0 : 2);
+        }
+    }
+
+    static String username(LoadTestConfig config, int index) {
+        return config.userPrefix + index;
+    }
+
+    /**
+     * 注册全部压测账户（已存在则忽略），返回第一个账户的 token 供准备和校验阶段使用
+     */
+    private static String prepareAccounts(LoadTestConfig config, HttpApi api) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(config.shoppers, 16));
+        for (int i = 0; i < config.shoppers; i++) {
+            String username = username(config, i);
+            pool.submit(() -> {
+                Map<String, Object> account = new HashMap<>();
+                account.put("username", username);
+                account.put("password", config.password);
+                account.put("name", username);
+                account.put("telephone", "13800000000");
+                account.put("role", "CUSTOMER");
+                api.json(null, null, "POST", "/api/accounts", null, account, null);
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.MINUTES);
+
+        Map<String, String> login = new HashMap<>();
+        login.put("username", username(config, 0));
+        login.put("password", config.password);
+        HttpApi.Result result = api.json(null, null, "POST", "/api/accounts/login", null, login, null);
+        return result.isOk() ? result.data().asText() : null;
+    }
+
+    /**
+     * 确定抢购商品、按配置重置库存并记录初始库存
+     */
+    private static boolean prepareProducts(LoadTestConfig config, HttpApi api, String token, ConsistencyLedger ledger) {
+        if (config.productIds.isEmpty()) {
+            HttpApi.Result list = api.json(null, null, "GET", "/api/products", token, null, null);
+            if (!list.isOk() || list.data().size() == 0) {
+                System.err.println("没有可用于压测的商品：" + list.message());
+                return false;
+            }
+            config.productIds.add(list.data().get(0).path("id").asInt());
+        }
+        for (Integer productId : config.productIds) {
+            if (config.stock >= 0) {
+                Map<String, Integer> body = new HashMap<>();
+                body.put("amount", config.stock);
+                HttpApi.Result updated = api.json(null, null, "PATCH", "/api/products/stockpile/" + productId, token, body, null);
+                if (!updated.isOk()) {
+                    System.err.println("重置商品 " + productId + " 库存失败：" + updated.message());
+                    return false;
+                }
+            }
+            HttpApi.Result stock = api.json(null, null, "GET", "/api/products/stockpile/" + productId, token, null, null);
+            if (!stock.isOk()) {
+                System.err.println("读取商品 " + productId + " 库存失败：" + stock.message());
+                return false;
+            }
+            ledger.setInitialStock(productId, stock.data().path("amount").asInt());
+        }
+        System.out.println("抢购商品：" + config.productIds);
+        return true;
+    }
+
+    private static void printReport(LatencyRecorder recorder, ConsistencyLedger ledger, Map<Integer, Map<String, Long>> stock,
+                                    List<String> violations, double seconds) {
+        System.out.println();
+        System.out.printf("耗时 %.1f 秒，下单 %d 笔，回调成功 %d 笔%n", seconds, ledger.getOrderCount(), ledger.getNotifiedCount());
+        System.out.printf("%-42s %9s %9s %9s %9s %9s %9s %9s %9s%n",
+                "接口", "请求数", "吞吐/s", "成功", "拒绝", "错误", "p50(ms)", "p99(ms)", "max(ms)");
+        for (LatencyRecorder.EndpointStats stats : recorder.snapshot()) {
+            System.out.printf("%-42s %9d %9.1f %9d %9d %9d %9.1f %9.1f %9.1f%n",
+                    stats.getEndpoint(), stats.getCount(), stats.getCount() / seconds,
+                    stats.getOk(), stats.getRejected(), stats.getErrors(),
+                    stats.percentile(50) / 1000.0, stats.percentile(99) / 1000.0, stats.percentile(100) / 1000.0);
+        }
+        System.out.println();
+        for (Map.Entry<Integer, Map<String, Long>> entry : stock.entrySet()) {
+            System.out.println("商品 " + entry.getKey() + "：" + entry.getValue());
+        }
+        if (violations.isEmpty()) {
+            System.out.println("一致性检查通过，未发现超卖");
+        } else {
+            System.out.println("发现 " + violations.size() + " 项一致性违规：");
+            for (String violation : violations) {
+                System.out.println("  - " + violation);
+            }
+        }
+    }
+
+    private static void writeReport(LoadTestConfig config, LatencyRecorder recorder, ConsistencyLedger ledger,
+                                    Map<Integer, Map<String, Long>> stock, List<String> violations, double seconds) throws Exception {
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("config", config.toString());
+        report.put("seconds", seconds);
+        report.put("orders", ledger.getOrderCount());
+        report.put("notified", ledger.getNotifiedCount());
+        List<Map<String, Object>> endpoints = new ArrayList<>();
+        for (LatencyRecorder.EndpointStats stats : recorder.snapshot()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("endpoint", stats.getEndpoint());
+            row.put("count", stats.getCount());
+            row.put("throughput", stats.getCount() / seconds);
+            row.put("ok", stats.getOk());
+            row.put("rejected", stats.getRejected());
+            row.put("errors", stats.getErrors());
+            row.put("p50Micros", stats.percentile(50));
+            row.put("p99Micros", stats.percentile(99));
+            row.put("maxMicros", stats.percentile(100));
+            endpoints.add(row);
+        }
+        report.put("endpoints", endpoints);
+        report.put("stock", stock);
+        report.put("violations", violations);
+
+        File file = new File(config.reportFile);
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null) {
+            dir.mkdirs();
+        }
+        mapper.writeValue(file, report);
+        System.out.println("报告已写入 " + file.getPath());
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.tomatomall.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 压测参数，全部通过系统属性传入（-Dload.xxx=...），未设置时使用默认值
+ */
+public class LoadTestConfig {
+
+    /**
+     * 后端地址，不带末尾斜杠
+     */
+    final String baseUrl = stripSlash(System.getProperty("load.baseUrl", "http://localhost:8080"));
+
+    /**
+     * 并发顾客数，每个顾客一个线程、一个账户
+     */
+    final int shoppers = Integer.getInteger("load.shoppers", 50);
+
+    final int durationSeconds = Integer.getInteger("load.durationSeconds", 60);
+
+    /**
+     * 所有顾客在该时间内逐个启动，避免瞬间同时登录
+     */
+    final int rampUpSeconds = Integer.getInteger("load.rampUpSeconds", 5);
+
+    /**
+     * 抢购商品ID，逗号分隔；为空时取商品列表中的第一个
+     */
+    final List<Integer> productIds = parseIds(System.getProperty("load.productIds", ""));
+
+    /**
+     * 大于等于0时，压测开始前把每个抢购商品的库存设为该值；小于0时沿用库中现有库存
+     */
+    final int stock = Integer.getInteger("load.stock", 100);
+
+    /**
+     * 每次加购的数量
+     */
+    final int quantity = Integer.getInteger("load.quantity", 1);
+
+    /**
+     * 每登录一次完成多少轮购买流程后重新登录
+     */
+    final int flowsPerLogin = Integer.getInteger("load.flowsPerLogin", 10);
+
+    /**
+     * 每轮流程结束后的思考时间
+     */
+    final int thinkMillis = Integer.getInteger("load.thinkMillis", 0);
+
+    /**
+     * 支付宝重复发送回调的比例（0~1），用于检查回调幂等
+     */
+    final double duplicateNotifyRatio = Double.parseDouble(System.getProperty("load.duplicateNotifyRatio", "0"));
+
+    final String userPrefix = System.getProperty("load.userPrefix", "loadtest-");
+
+    final String password = System.getProperty("load.password", "loadtest123");
+
+    /**
+     * 模拟支付宝的密钥对保存位置，首次运行时生成
+     */
+    final String alipayKeyFile = System.getProperty("load.alipayKeyFile", "target/alipay-stub.properties");
+
+    /**
+     * 结果报告（JSON）输出位置
+     */
+    final String reportFile = System.getProperty("load.reportFile", "target/loadtest-report.json");
+
+    final int timeoutMillis = Integer.getInteger("load.timeoutMillis", 10000);
+
+    /**
+     * 压测结束后等待后端领域事件发件箱投递完（扣库存、删购物车）的最长时间
+     */
+    final int settleSeconds = Integer.getInteger("load.settleSeconds", 60);
+
+    private static String stripSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    private static List<Integer> parseIds(String value) {
+        List<Integer> ids = new ArrayList<>();
+        for (String part : value.split(",")) {
+            if (!part.trim().isEmpty()) {
+                ids.add(Integer.valueOf(part.trim()));
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public String toString() {
+        return "baseUrl=" + baseUrl + ", shoppers=" + shoppers + ", durationSeconds=" + durationSeconds
+                + ", rampUpSeconds=" + rampUpSeconds + ", productIds=" + productIds + ", stock=" + stock
+                + ", quantity=" + quantity + ", flowsPerLogin=" + flowsPerLogin + ", thinkMillis=" + thinkMillis
+                + ", duplicateNotifyRatio=" + duplicateNotifyRatio;
+    }
+}
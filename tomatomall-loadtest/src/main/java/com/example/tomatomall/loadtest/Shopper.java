@@ -0,0 +1,157 @@
+package com.example.tomatomall.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 一个模拟顾客，在截止时间前循环执行：
+ * 登录（每 flowsPerLogin 轮一次）→ 浏览商品列表与抢购商品详情 → 加购 → 结算下单 → 模拟支付宝回调 → 确认购物车已清空。
+ * 商品列表带 If-None-Match，与浏览器行为一致。
+ * 结算只对本轮加购的一项下单，登录后先清掉上次运行遗留的购物车项。
+ */
+public class Shopper implements Runnable {
+
+    private final LoadTestConfig config;
+
+    private final HttpApi api;
+
+    private final LatencyRecorder recorder;
+
+    private final AlipayNotifyStub alipay;
+
+    private final ConsistencyLedger ledger;
+
+    private final String username;
+
+    private final long deadline;
+
+    private String token;
+
+    private String productListEtag;
+
+    public Shopper(LoadTestConfig config, HttpApi api, LatencyRecorder recorder, AlipayNotifyStub alipay,
+                   ConsistencyLedger ledger, String username, long deadline) {
+        this.config = config;
+        this.api = api;
+        this.recorder = recorder;
+        this.alipay = alipay;
+        this.ledger = ledger;
+        this.username = username;
+        this.deadline = deadline;
+    }
+
+    @Override
+    public void run() {
+        int flows = 0;
+        while (System.currentTimeMillis() < deadline && !Thread.currentThread().isInterrupted()) {
+            if (token == null || flows % config.flowsPerLogin == 0) {
+                if (!login()) {
+                    // 被限流或后端不可用，稍后重试
+                    pause(1000);
+                    continue;
+                }
+                clearCart();
+            }
+            flow();
+            flows++;
+            if (config.thinkMillis > 0) {
+                pause(config.thinkMillis);
+            }
+        }
+    }
+
+    private boolean login() {
+        Map<String, String> body = new HashMap<>();
+        body.put("username", username);
+        body.put("password", config.password);
+        HttpApi.Result result = api.json(recorder, "POST /api/accounts/login", "POST", "/api/accounts/login", null, body, null);
+        if (!result.isOk()) {
+            token = null;
+            return false;
+        }
+        token = result.data().asText();
+        return true;
+    }
+
+    private void flow() {
+        List<Integer> productIds = config.productIds;
+        int productId = productIds.get(ThreadLocalRandom.current().nextInt(productIds.size()));
+
+        HttpApi.Result list = api.json(recorder, "GET /api/products", "GET", "/api/products", token, null, productListEtag);
+        if (list.getEtag() != null) {
+            productListEtag = list.getEtag();
+        }
+        api.json(recorder, "GET /api/products/{id}", "GET", "/api/products/" + productId, token, null, null);
+
+        Map<String, Integer> item = new HashMap<>();
+        item.put("productId", productId);
+        item.put("quantity", config.quantity);
+        HttpApi.Result added = api.json(recorder, "POST /api/cart", "POST", "/api/cart", token, item, null);
+        if (!added.isOk()) {
+            return;
+        }
+        int cartItemId = added.data().path("cartItemId").asInt();
+        // 同一商品会合并到购物车已有的行（上一轮的行可能还没被支付事件删掉），按返回的合并后数量记账
+        int quantity = added.data().path("quantity").asInt();
+
+        Map<String, Object> check = new HashMap<>();
+        check.put("cartItemIds", Collections.singletonList(cartItemId));
+        check.put("paymentMethod", "ALIPAY");
+        HttpApi.Result checkout = api.json(recorder, "POST /api/cart/checkout", "POST",
+                "/api/cart/checkout?couponType=0&couponValue=0", token, check, null);
+        if (!checkout.isOk()) {
+            // 库存不足等被拒绝，移除购物车项后进入下一轮
+            deleteCartItem(cartItemId);
+            return;
+        }
+        JsonNode order = checkout.data();
+        int orderId = order.path("orderId").asInt();
+        // 后端按 double 精确比较金额，用 BigDecimal.valueOf 保证字符串能还原出同一个 double
+        String totalAmount = BigDecimal.valueOf(order.path("totalAmount").asDouble()).toPlainString();
+        ConsistencyLedger.PlacedOrder placed = ledger.placed(orderId, username, token, productId, quantity, cartItemId);
+
+        Map<String, String> notify = alipay.tradeSuccess(orderId, totalAmount);
+        HttpApi.Result paid = api.form(recorder, "POST /api/orders/alipay/notify", "/api/orders/alipay/notify", notify);
+        if (!"success".equals(paid.getBody())) {
+            deleteCartItem(cartItemId);
+            return;
+        }
+        placed.notified = true;
+        if (ThreadLocalRandom.current().nextDouble() < config.duplicateNotifyRatio) {
+            // 支付宝未及时收到 success 时会重发同一通知
+            api.form(recorder, "POST /api/orders/alipay/notify (retry)", "/api/orders/alipay/notify", notify);
+        }
+        // 购物车项由后端在支付事件投递后异步删除，压测结束后由 ConsistencyLedger 统一检查
+    }
+
+    /**
+     * 登录后清掉上次遗留的购物车项（上次运行中断、或后端未删除）
+     */
+    private void clearCart() {
+        HttpApi.Result cart = api.json(null, null, "GET", "/api/cart", token, null, null);
+        if (!cart.isOk()) {
+            return;
+        }
+        for (JsonNode item : cart.data().path("cartItems")) {
+            api.json(null, null, "DELETE", "/api/cart/" + item.path("cartItemId").asInt(), token, null, null);
+        }
+    }
+
+    private void deleteCartItem(int cartItemId) {
+        api.json(recorder, "DELETE /api/cart/{id}", "DELETE", "/api/cart/" + cartItemId, token, null, null);
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}